@@ -3,6 +3,7 @@ package com.benx421.tweetaudit;
 import java.io.IOException;
 
 import com.benx421.tweetaudit.application.Application;
+import com.benx421.tweetaudit.config.ConfigException;
 import com.benx421.tweetaudit.config.ConfigLoader;
 import com.benx421.tweetaudit.config.Settings;
 
@@ -13,6 +14,10 @@ public final class Main {
 
   private static final String EXTRACT_TWEETS_COMMAND = "extract-tweets";
   private static final String ANALYZE_TWEETS_COMMAND = "analyze-tweets";
+  private static final String CONVERT_TWEETS_COMMAND = "convert-tweets";
+  private static final String INCREMENTAL_FLAG = "--incremental";
+  private static final String ALL_FLAG = "--all";
+  private static final String MAX_BATCHES_FLAG = "--max-batches";
 
   private Main() {
   }
@@ -25,45 +30,106 @@ public final class Main {
 
     String command = args[0];
 
-    if (!EXTRACT_TWEETS_COMMAND.equals(command) && !ANALYZE_TWEETS_COMMAND.equals(command)) {
+    if (!EXTRACT_TWEETS_COMMAND.equals(command)
+        && !ANALYZE_TWEETS_COMMAND.equals(command)
+        && !CONVERT_TWEETS_COMMAND.equals(command)) {
       System.err.println("Error: Unknown command '" + command + "'");
       printUsage();
       System.exit(1);
     }
 
+    boolean incremental = false;
+    if (EXTRACT_TWEETS_COMMAND.equals(command) && args.length > 1) {
+      if (!INCREMENTAL_FLAG.equals(args[1]) || args.length > 2) {
+        System.err.println("Error: Unknown option for '" + EXTRACT_TWEETS_COMMAND + "'");
+        printUsage();
+        System.exit(1);
+      }
+      incremental = true;
+    }
+
+    int maxBatches = 1;
+    if (ANALYZE_TWEETS_COMMAND.equals(command) && args.length > 1) {
+      maxBatches = parseMaxBatches(args);
+      if (maxBatches < 1) {
+        System.err.println("Error: Invalid option for '" + ANALYZE_TWEETS_COMMAND + "'");
+        printUsage();
+        System.exit(1);
+      }
+    }
+
+    if (CONVERT_TWEETS_COMMAND.equals(command) && args.length < 2) {
+      System.err.println("Error: '" + CONVERT_TWEETS_COMMAND + "' requires an output path");
+      printUsage();
+      System.exit(1);
+    }
+
     try {
       ConfigLoader configLoader = new ConfigLoader();
       Settings settings = configLoader.load();
       Application app = new Application(settings);
 
       switch (command) {
-        case EXTRACT_TWEETS_COMMAND -> executeExtractTweets(app);
-        case ANALYZE_TWEETS_COMMAND -> executeAnalyzeTweets(app);
+        case EXTRACT_TWEETS_COMMAND -> executeExtractTweets(app, incremental);
+        case ANALYZE_TWEETS_COMMAND -> executeAnalyzeTweets(app, maxBatches);
+        case CONVERT_TWEETS_COMMAND -> executeConvertTweets(app, args[1]);
       }
 
+    } catch (ConfigException e) {
+      System.err.println("Error: Invalid configuration: " + e.getMessage());
+      System.exit(1);
     } catch (IOException e) {
       System.err.println("Error: " + e.getMessage());
       System.exit(1);
     }
   }
 
-  private static void executeExtractTweets(Application app) throws IOException {
+  private static void executeExtractTweets(Application app, boolean incremental) throws IOException {
     System.out.println("Extracting tweets from archive...");
-    app.extractTweets();
+    app.extractTweets(incremental);
     System.out.println("Successfully extracted tweets");
   }
 
-  private static void executeAnalyzeTweets(Application app) throws IOException {
+  /**
+   * Parses the options of analyze-tweets.
+   *
+   * @return the number of batches to run, or -1 if the options are invalid
+   */
+  private static int parseMaxBatches(String[] args) {
+    if (args.length == 2 && ALL_FLAG.equals(args[1])) {
+      return Application.ALL_BATCHES;
+    }
+    if (args.length == 3 && MAX_BATCHES_FLAG.equals(args[1])) {
+      try {
+        return Integer.parseInt(args[2]);
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private static void executeAnalyzeTweets(Application app, int maxBatches) throws IOException {
     System.out.println("Analyzing tweets...");
-    app.analyzeTweets();
+    app.analyzeTweets(maxBatches);
     System.out.println("Analysis complete!");
   }
 
+  private static void executeConvertTweets(Application app, String binaryPath) throws IOException {
+    System.out.println("Converting transformed tweets to binary format...");
+    app.convertTweets(binaryPath);
+    System.out.println("Successfully converted tweets");
+  }
+
   private static void printUsage() {
     System.out.println("Usage: tweet-audit <command>");
     System.out.println();
     System.out.println("Commands:");
     System.out.println("  extract-tweets  Extract tweets from Twitter archive");
+    System.out.println("    --incremental  Only append tweets not extracted before");
     System.out.println("  analyze-tweets  Analyze tweets using Gemini AI");
+    System.out.println("    --all  Keep analyzing batches until every tweet is done");
+    System.out.println("    --max-batches <n>  Analyze at most n batches");
+    System.out.println("  convert-tweets <output.bin>  Convert transformed tweets CSV to binary format");
   }
 }
@@ -0,0 +1,294 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Decorator that finds how many Gemini requests can run at once by additive increase and
+ * multiplicative decrease. The limit starts at one request and grows by one for each limit's
+ * worth of requests that succeed, up to the ceiling; it halves when Gemini answers with a rate
+ * limit or overload error, or when recent latency climbs well above the fastest latency seen.
+ * Only requests started since the last cut can cut it again, so one burst of errors halves the
+ * limit once rather than once per request. Every change of limit is logged, so the log tracks
+ * the throughput the client has settled on. Async requests queue for a slot without holding a
+ * thread; one cancelled while queued gives up its place, and one cancelled while running
+ * cancels the wrapped request and frees its slot.
+ */
+public final class AdaptiveGeminiClient implements GeminiClient {
+
+  private static final Logger LOGGER = Logger.getLogger(AdaptiveGeminiClient.class.getName());
+
+  /** Recent latency above this multiple of the baseline counts as congestion. */
+  private static final double LATENCY_TOLERANCE = 2.0;
+
+  /** Weight of each request in the recent latency average. */
+  private static final double RECENT_WEIGHT = 0.25;
+
+  /** Share of the gap to a slower request by which the baseline drifts up, following a slower model. */
+  private static final double BASELINE_DRIFT = 0.01;
+
+  private final GeminiClient delegate;
+  private final int maxLimit;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition slotFreed = lock.newCondition();
+  private final Queue<CompletableFuture<Long>> waiters = new ArrayDeque<>();
+  private int limit = 1;
+  private int inFlight;
+  private int successes;
+  private long epoch;
+  private double baselineNanos;
+  private double recentNanos;
+  private long latestNanos;
+  private long cuts;
+
+  public AdaptiveGeminiClient(GeminiClient delegate, int maxLimit) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("Client cannot be null");
+    }
+    if (maxLimit < 1) {
+      throw new IllegalArgumentException("Max concurrent requests must be positive: " + maxLimit);
+    }
+    this.delegate = delegate;
+    this.maxLimit = maxLimit;
+  }
+
+  @Override
+  public String generateContent(String prompt) throws Exception {
+    long startEpoch = acquire();
+    long start = System.nanoTime();
+    try {
+      String response = delegate.generateContent(prompt);
+      onSuccess(startEpoch, System.nanoTime() - start);
+      return response;
+    } catch (Exception e) {
+      if (isOverload(e)) {
+        cut(startEpoch, "rate limited: " + e.getMessage());
+      }
+      throw e;
+    } finally {
+      release();
+    }
+  }
+
+  @Override
+  public CompletableFuture<String> generateContentAsync(String prompt) {
+    CompletableFuture<Long> slot = acquireAsync();
+    CompletableFuture<String> result = new CompletableFuture<>();
+    result.whenComplete(
+        (value, error) -> {
+          if (error != null) {
+            slot.cancel(false);
+          }
+        });
+    slot.thenAccept(startEpoch -> send(prompt, startEpoch, result));
+    return result;
+  }
+
+  /**
+   * Sends an async request once it has a slot, and frees the slot when the request ends.
+   */
+  private void send(String prompt, long startEpoch, CompletableFuture<String> result) {
+    if (result.isDone()) {
+      release();
+      return;
+    }
+    long start = System.nanoTime();
+    CompletableFuture<String> call;
+    try {
+      call = delegate.generateContentAsync(prompt);
+    } catch (RuntimeException e) {
+      release();
+      result.completeExceptionally(e);
+      return;
+    }
+    result.whenComplete(
+        (value, error) -> {
+          if (error != null) {
+            call.cancel(true);
+          }
+        });
+    call.whenComplete(
+        (response, error) -> {
+          try {
+            if (error == null) {
+              onSuccess(startEpoch, System.nanoTime() - start);
+              result.complete(response);
+              return;
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof Exception e && isOverload(e)) {
+              cut(startEpoch, "rate limited: " + e.getMessage());
+            }
+            result.completeExceptionally(cause);
+          } finally {
+            release();
+          }
+        });
+  }
+
+  /**
+   * Returns the current limit on concurrent requests.
+   */
+  public int limit() {
+    lock.lock();
+    try {
+      return limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Summarizes the controller: its limit, requests in flight, the latest latency, the recent
+   * average and baseline it compares, and how many times it has cut the limit.
+   */
+  public String report() {
+    lock.lock();
+    try {
+      return String.format(
+          "adaptive limit %d/%d, %d in flight, latest latency %d ms, latency %.0f ms (baseline %.0f ms), %d cuts",
+          limit,
+          maxLimit,
+          inFlight,
+          latestNanos / 1_000_000,
+          recentNanos / 1_000_000.0,
+          baselineNanos / 1_000_000.0,
+          cuts);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long acquire() throws InterruptedException {
+    lock.lock();
+    try {
+      while (inFlight >= limit) {
+        slotFreed.await();
+      }
+      inFlight++;
+      return epoch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes a slot for an async request, or queues for one.
+   *
+   * @return a future completed with the epoch once the request has its slot
+   */
+  private CompletableFuture<Long> acquireAsync() {
+    lock.lock();
+    try {
+      if (inFlight < limit && waiters.isEmpty()) {
+        inFlight++;
+        return CompletableFuture.completedFuture(epoch);
+      }
+      CompletableFuture<Long> waiter = new CompletableFuture<>();
+      waiters.add(waiter);
+      return waiter;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release() {
+    lock.lock();
+    try {
+      inFlight--;
+      slotFreed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    admitWaiters();
+  }
+
+  /**
+   * Hands free slots to queued async requests, in order, skipping those cancelled while queued.
+   * The futures are completed outside the lock, as completing one starts its request.
+   */
+  private void admitWaiters() {
+    List<CompletableFuture<Long>> admitted = new ArrayList<>();
+    long admittedEpoch;
+    lock.lock();
+    try {
+      while (inFlight < limit && !waiters.isEmpty()) {
+        CompletableFuture<Long> waiter = waiters.poll();
+        if (!waiter.isDone()) {
+          inFlight++;
+          admitted.add(waiter);
+        }
+      }
+      admittedEpoch = epoch;
+    } finally {
+      lock.unlock();
+    }
+    for (CompletableFuture<Long> waiter : admitted) {
+      if (!waiter.complete(admittedEpoch)) {
+        // Cancelled after it was admitted
+        release();
+      }
+    }
+  }
+
+  private void onSuccess(long startEpoch, long latencyNanos) {
+    lock.lock();
+    try {
+      latestNanos = latencyNanos;
+      if (baselineNanos == 0) {
+        baselineNanos = latencyNanos;
+        recentNanos = latencyNanos;
+      } else {
+        baselineNanos = Math.min(latencyNanos, baselineNanos + (latencyNanos - baselineNanos) * BASELINE_DRIFT);
+        recentNanos += (latencyNanos - recentNanos) * RECENT_WEIGHT;
+      }
+      if (recentNanos > baselineNanos * LATENCY_TOLERANCE) {
+        cut(startEpoch, String.format("latency %.0f ms", recentNanos / 1_000_000.0));
+        return;
+      }
+
+      successes++;
+      if (successes >= limit && limit < maxLimit) {
+        successes = 0;
+        limit++;
+        slotFreed.signalAll();
+        LOGGER.info("Gemini concurrency raised to " + limit + "; " + report());
+      }
+    } finally {
+      lock.unlock();
+    }
+    admitWaiters();
+  }
+
+  private void cut(long startEpoch, String reason) {
+    lock.lock();
+    try {
+      if (startEpoch != epoch) {
+        return;
+      }
+      epoch++;
+      cuts++;
+      successes = 0;
+      limit = Math.max(1, limit / 2);
+      recentNanos = baselineNanos;
+      LOGGER.warning("Gemini concurrency cut to " + limit + " (" + reason + "); " + report());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static boolean isOverload(Exception e) {
+    return GeminiException.find(e)
+        .map(GeminiException::category)
+        .filter(category -> category == GeminiException.Category.RATE_LIMITED
+            || category == GeminiException.Category.UNAVAILABLE)
+        .isPresent();
+  }
+}
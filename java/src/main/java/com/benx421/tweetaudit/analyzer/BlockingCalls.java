@@ -0,0 +1,39 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adapts blocking calls to futures for the async defaults of the analyzer interfaces.
+ */
+final class BlockingCalls {
+
+  private BlockingCalls() {
+  }
+
+  /**
+   * Runs the call on a new virtual thread. If the returned future is cancelled or completed
+   * exceptionally from outside, for example by {@link CompletableFuture#orTimeout}, the thread is
+   * interrupted.
+   */
+  static <T> CompletableFuture<T> onVirtualThread(Callable<T> call) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Thread worker =
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  try {
+                    result.complete(call.call());
+                  } catch (Exception e) {
+                    result.completeExceptionally(e);
+                  }
+                });
+    result.whenComplete(
+        (value, error) -> {
+          if (error != null) {
+            worker.interrupt();
+          }
+        });
+    return result;
+  }
+}
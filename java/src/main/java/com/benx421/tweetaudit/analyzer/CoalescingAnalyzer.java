@@ -0,0 +1,360 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.benx421.tweetaudit.models.AnalysisResult;
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Decorator that gathers concurrent {@link #analyze(Tweet)} calls into multi-tweet requests.
+ * The first caller to arrive opens a group and waits up to the window for others to join; the
+ * group is sent through the wrapped analyzer's {@link TweetAnalyzer#analyzeAll(List)} as soon as
+ * it is full or the window has passed, by that first caller on its own thread. A group is full
+ * when it holds the maximum number of tweets, or when the next tweet would take its estimated
+ * tokens past the wrapped analyzer's {@link TweetAnalyzer#requestTokenBudget()}, so the number
+ * of tweets per request follows their length and the analyzer's budget. Every caller gets
+ * back its own tweet's result, so code written one tweet at a time gets batched requests
+ * without changing.
+ *
+ * <p>A group opened by {@link #analyzeAsync(Tweet)} is sent by a timer instead of a waiting
+ * thread. A lone tweet goes through the wrapped analyzer's own async call; a larger group still
+ * needs a virtual thread, as multi-tweet requests have no async form. Cancelling a caller's
+ * future drops its tweet from a group not yet sent, and once every caller of a sent group has
+ * cancelled, the request itself is cancelled.
+ */
+public final class CoalescingAnalyzer implements TweetAnalyzer {
+
+  private final TweetAnalyzer delegate;
+  private final int maxTweets;
+  private final long windowNanos;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition groupClosed = lock.newCondition();
+  private Group open;
+
+  public CoalescingAnalyzer(TweetAnalyzer delegate, int maxTweets, Duration window) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("Analyzer cannot be null");
+    }
+    if (maxTweets < 1) {
+      throw new IllegalArgumentException("Max tweets per request must be positive: " + maxTweets);
+    }
+    if (window == null || window.isNegative()) {
+      throw new IllegalArgumentException("Window cannot be null or negative");
+    }
+    this.delegate = delegate;
+    this.maxTweets = maxTweets;
+    this.windowNanos = window.toNanos();
+  }
+
+  @Override
+  public AnalysisResult analyze(Tweet tweet) throws AnalyzerException {
+    Joined joined = join(tweet, false);
+    sendTimed(joined.closed());
+    if (joined.first()) {
+      send(joined.group());
+    }
+    return joined.group().result(joined.index(), tweet);
+  }
+
+  /**
+   * Adds the tweet to the open group without holding a thread while the group fills.
+   */
+  @Override
+  public CompletableFuture<AnalysisResult> analyzeAsync(Tweet tweet) {
+    Joined joined = join(tweet, true);
+    Group group = joined.group();
+    CompletableFuture<AnalysisResult> result = group.member(joined.index());
+    result.whenComplete((value, error) -> group.cancelIfAbandoned());
+    if (joined.first() && !joined.closed().contains(group)) {
+      if (windowNanos == 0) {
+        expire(group);
+      } else {
+        CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS).execute(() -> expire(group));
+      }
+    }
+    sendTimed(joined.closed());
+    return result;
+  }
+
+  /**
+   * Passes a caller's explicit batch straight through.
+   */
+  @Override
+  public List<AnalysisResult> analyzeAll(List<Tweet> tweets) throws AnalyzerException {
+    return delegate.analyzeAll(tweets);
+  }
+
+  @Override
+  public int requestTokenBudget() {
+    return delegate.requestTokenBudget();
+  }
+
+  /**
+   * A tweet's place in a group, and the groups its arrival closed.
+   *
+   * @param first whether the tweet opened the group
+   */
+  private record Joined(Group group, int index, boolean first, List<Group> closed) {
+  }
+
+  private Joined join(Tweet tweet, boolean timed) {
+    int tokens = TokenEstimator.estimate(tweet);
+    List<Group> closed = new ArrayList<>(2);
+    lock.lock();
+    try {
+      int budget = delegate.requestTokenBudget();
+      if (open != null && budget > 0 && open.tokens() + tokens > budget) {
+        closed.add(close());
+      }
+      boolean first = open == null;
+      if (first) {
+        open = new Group(timed);
+      }
+      Group group = open;
+      int index = group.add(tweet, tokens);
+      if (group.size() >= maxTweets) {
+        closed.add(close());
+      }
+      return new Joined(group, index, first, closed);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Closes the open group so its first caller, or its timer, sends it. Called with the lock held.
+   *
+   * @return the group closed
+   */
+  private Group close() {
+    Group closed = open;
+    open = null;
+    groupClosed.signalAll();
+    return closed;
+  }
+
+  /**
+   * Closes a timed group once its window has passed, if it is still open, and sends it.
+   */
+  private void expire(Group group) {
+    lock.lock();
+    try {
+      if (open == group) {
+        close();
+      }
+    } finally {
+      lock.unlock();
+    }
+    sendAsync(group);
+  }
+
+  /**
+   * Sends the closed groups that have no caller waiting to send them.
+   */
+  private void sendTimed(List<Group> closed) {
+    for (Group group : closed) {
+      if (group.timed()) {
+        sendAsync(group);
+      }
+    }
+  }
+
+  /**
+   * Waits for the group to fill or for the window to pass, then sends it.
+   */
+  private void send(Group group) {
+    lock.lock();
+    try {
+      long remaining = windowNanos;
+      while (open == group && remaining > 0) {
+        remaining = groupClosed.awaitNanos(remaining);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      group.fail(group.waiting(), new AnalyzerException("Analysis interrupted while collecting tweets", e));
+      return;
+    } finally {
+      if (open == group) {
+        open = null;
+      }
+      lock.unlock();
+    }
+
+    List<Integer> live = group.waiting();
+    try {
+      List<Tweet> tweets = group.tweets(live);
+      group.complete(
+          live, tweets.size() == 1 ? List.of(delegate.analyze(tweets.get(0))) : delegate.analyzeAll(tweets));
+    } catch (AnalyzerException | RuntimeException e) {
+      group.fail(live, e);
+    }
+  }
+
+  /**
+   * Sends a timed group through the wrapped analyzer's async call, unless it has already been
+   * sent or every caller has cancelled.
+   */
+  private void sendAsync(Group group) {
+    if (!group.claim()) {
+      return;
+    }
+    List<Integer> live = group.waiting();
+    if (live.isEmpty()) {
+      return;
+    }
+    List<Tweet> tweets = group.tweets(live);
+    CompletableFuture<List<AnalysisResult>> call;
+    if (tweets.size() == 1) {
+      CompletableFuture<AnalysisResult> single = delegate.analyzeAsync(tweets.get(0));
+      call = single.thenApply(List::of);
+      call.whenComplete(
+          (value, error) -> {
+            if (error != null) {
+              single.cancel(true);
+            }
+          });
+    } else {
+      call = BlockingCalls.onVirtualThread(() -> delegate.analyzeAll(tweets));
+    }
+    group.start(live, call);
+  }
+
+  /**
+   * Tweets collected for one request and a future per tweet for its caller. Tweets are only
+   * added while the group is open, under the analyzer's lock, and only read once it has closed.
+   * A group opened by an async caller is timed: a timer or the caller that fills it sends it.
+   */
+  private static final class Group {
+    private final boolean timed;
+    private final List<Tweet> tweets = new ArrayList<>();
+    private final List<CompletableFuture<AnalysisResult>> members = new ArrayList<>();
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile CompletableFuture<List<AnalysisResult>> call;
+    private long tokens;
+
+    Group(boolean timed) {
+      this.timed = timed;
+    }
+
+    int add(Tweet tweet, int tweetTokens) {
+      tweets.add(tweet);
+      members.add(new CompletableFuture<>());
+      tokens += tweetTokens;
+      return tweets.size() - 1;
+    }
+
+    int size() {
+      return tweets.size();
+    }
+
+    long tokens() {
+      return tokens;
+    }
+
+    boolean timed() {
+      return timed;
+    }
+
+    CompletableFuture<AnalysisResult> member(int index) {
+      return members.get(index);
+    }
+
+    /**
+     * Claims a timed group for sending, so the timer and the caller that fills it send it once.
+     */
+    boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+
+    /**
+     * Returns the indexes of the tweets whose callers are still waiting.
+     */
+    List<Integer> waiting() {
+      List<Integer> live = new ArrayList<>(members.size());
+      for (int i = 0; i < members.size(); i++) {
+        if (!members.get(i).isDone()) {
+          live.add(i);
+        }
+      }
+      return live;
+    }
+
+    List<Tweet> tweets(List<Integer> indexes) {
+      return indexes.stream().map(tweets::get).toList();
+    }
+
+    /**
+     * Hands the results of a sent request to its callers when it completes.
+     */
+    void start(List<Integer> live, CompletableFuture<List<AnalysisResult>> request) {
+      call = request;
+      request.whenComplete(
+          (results, error) -> {
+            if (error == null) {
+              complete(live, results);
+            } else {
+              Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+              fail(live, cause instanceof Exception e ? e : new AnalyzerException("Analysis failed", cause));
+            }
+          });
+      cancelIfAbandoned();
+    }
+
+    /**
+     * Cancels the sent request once no caller is waiting for it.
+     */
+    void cancelIfAbandoned() {
+      CompletableFuture<List<AnalysisResult>> request = call;
+      if (request != null && !request.isDone() && waiting().isEmpty()) {
+        request.cancel(true);
+      }
+    }
+
+    void complete(List<Integer> live, List<AnalysisResult> analyzed) {
+      if (analyzed.size() != live.size()) {
+        fail(
+            live,
+            new AnalyzerException(
+                "Analyzer returned " + analyzed.size() + " results for " + live.size() + " tweets"));
+        return;
+      }
+      for (int i = 0; i < live.size(); i++) {
+        members.get(live.get(i)).complete(analyzed.get(i));
+      }
+    }
+
+    void fail(List<Integer> live, Exception e) {
+      for (int index : live) {
+        members
+            .get(index)
+            .completeExceptionally(
+                e instanceof AnalyzerException
+                    ? e
+                    : new AnalyzerException("Failed to analyze tweet " + tweets.get(index).idString(), e));
+      }
+    }
+
+    AnalysisResult result(int index, Tweet tweet) throws AnalyzerException {
+      try {
+        return members.get(index).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AnalyzerException("Analysis interrupted for tweet " + tweet.idString(), e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof AnalyzerException cause) {
+          throw cause;
+        }
+        throw new AnalyzerException("Failed to analyze tweet " + tweet.idString(), e.getCause());
+      }
+    }
+  }
+}
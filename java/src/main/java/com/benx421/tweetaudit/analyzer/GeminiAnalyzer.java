@@ -1,6 +1,15 @@
 package com.benx421.tweetaudit.analyzer;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 import com.benx421.tweetaudit.config.Criteria;
 import com.benx421.tweetaudit.config.Settings;
@@ -8,40 +17,76 @@ import com.benx421.tweetaudit.models.AnalysisResult;
 import com.benx421.tweetaudit.models.Decision;
 import com.benx421.tweetaudit.models.Tweet;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 
 /**
  * Analyzes tweets using Google Gemini AI.
+ * {@link #analyzeAll(List)} packs several tweets into one prompt under a single criteria header
+ * and reads back a JSON array of decisions keyed by tweet id. With a request token limit, tweets
+ * are packed by their estimated tokens rather than their count; the limit in use halves whenever
+ * Gemini rejects a request as too large and creeps back up to the configured limit while
+ * requests succeed.
  */
 public class GeminiAnalyzer implements TweetAnalyzer {
 
+  private static final Logger LOGGER = Logger.getLogger(GeminiAnalyzer.class.getName());
+
+  /** Requests made for the tweets of a multi-tweet call before falling back to one per tweet. */
+  private static final int MAX_BATCH_ATTEMPTS = 2;
+
+  /** Steps in which the request token limit grows back after it has been cut. */
+  private static final int LIMIT_GROWTH_STEPS = 8;
+
   private final GeminiClient client;
   private final Criteria criteria;
-  private final String username;
-  private final String baseTwitterUrl;
   private final RateLimiter rateLimiter;
   private final RetryPolicy retryPolicy;
   private final Gson gson;
+  private final int maxRequestTokens;
+  private final AtomicInteger requestTokenLimit;
+  private final int batchHeaderTokens;
+  private final AdaptiveGeminiClient adaptiveClient;
+
+  public GeminiAnalyzer(GeminiClient client, Criteria criteria, Duration rateLimitDelay) {
+    this(client, criteria, new RateLimiter(rateLimitDelay), 0);
+  }
 
-  public GeminiAnalyzer(
+  /**
+   * Creates an analyzer that keeps to the given rate limiter and packs multi-tweet requests up
+   * to a token limit.
+   *
+   * @param maxRequestTokens the most estimated prompt tokens per request, or 0 for no limit
+   */
+  GeminiAnalyzer(GeminiClient client, Criteria criteria, RateLimiter rateLimiter, int maxRequestTokens) {
+    this(client, criteria, rateLimiter, maxRequestTokens, null);
+  }
+
+  private GeminiAnalyzer(
       GeminiClient client,
       Criteria criteria,
-      String username,
-      String baseTwitterUrl,
-      Duration rateLimitDelay) {
+      RateLimiter rateLimiter,
+      int maxRequestTokens,
+      AdaptiveGeminiClient adaptiveClient) {
+    if (maxRequestTokens < 0) {
+      throw new IllegalArgumentException("Max request tokens cannot be negative: " + maxRequestTokens);
+    }
     this.client = client;
     this.criteria = criteria;
-    this.username = username;
-    this.baseTwitterUrl = baseTwitterUrl;
-    this.rateLimiter = new RateLimiter(rateLimitDelay);
+    this.rateLimiter = rateLimiter;
     this.retryPolicy = RetryPolicy.withDefaults();
     this.gson = new Gson();
+    this.maxRequestTokens = maxRequestTokens;
+    this.requestTokenLimit = new AtomicInteger(maxRequestTokens);
+    this.batchHeaderTokens = TokenEstimator.estimate(buildBatchPrompt(List.of()));
+    this.adaptiveClient = adaptiveClient;
   }
 
-  public static GeminiAnalyzer create(
-      GeminiClient client, Criteria criteria, String username) {
-    return new GeminiAnalyzer(
-        client, criteria, username, "https://x.com", Duration.ofSeconds(1));
+  public static GeminiAnalyzer create(GeminiClient client, Criteria criteria) {
+    return new GeminiAnalyzer(client, criteria, Duration.ofSeconds(1));
   }
 
   /**
@@ -51,52 +96,296 @@ public class GeminiAnalyzer implements TweetAnalyzer {
    * @return a new GeminiAnalyzer instance
    */
   public static GeminiAnalyzer fromSettings(Settings settings) {
+    RateLimiter rateLimiter =
+        new RateLimiter(
+            settings.rateLimitDelay(),
+            settings.requestsPerMinute(),
+            settings.tokensPerMinute(),
+            settings.requestsPerDay());
+
+    // Hedging sits beneath the adaptive limiter, so its latencies never include the wait for a slot
     GeminiClient client = new GeminiSdkClient(settings.geminiApiKey(), settings.geminiModel());
+    if (settings.hedgePercentile() > 0) {
+      client =
+          new HedgingGeminiClient(client, rateLimiter, settings.hedgePercentile(), settings.hedgeBudgetPercent());
+    }
+    AdaptiveGeminiClient adaptiveClient = null;
+    if (settings.adaptiveConcurrency()) {
+      adaptiveClient = new AdaptiveGeminiClient(client, settings.maxInFlight());
+      client = adaptiveClient;
+    }
 
-    return new GeminiAnalyzer(
-        client,
-        settings.criteria(),
-        settings.username(),
-        settings.baseTwitterUrl(),
-        settings.rateLimitDelay());
+    return new GeminiAnalyzer(client, settings.criteria(), rateLimiter, settings.maxRequestTokens(), adaptiveClient);
+  }
+
+  /**
+   * Returns the adaptive concurrency controller in front of Gemini, if adaptive concurrency is on.
+   */
+  public Optional<AdaptiveGeminiClient> adaptiveClient() {
+    return Optional.ofNullable(adaptiveClient);
   }
 
   @Override
   public AnalysisResult analyze(Tweet tweet) throws AnalyzerException {
     try {
-      rateLimiter.waitIfNeeded();
-
       String prompt = buildPrompt(tweet);
+      rateLimiter.waitIfNeeded(TokenEstimator.estimate(prompt));
 
       String responseJson =
           retryPolicy.execute(
               () -> {
                 String response = client.generateContent(prompt);
                 if (response == null || response.isBlank()) {
-                  throw new AnalyzerException("Empty response from Gemini for tweet " + tweet.id());
+                  throw new AnalyzerException("Empty response from Gemini for tweet " + tweet.idString());
                 }
                 return response;
               });
 
-      GeminiResponse geminiResponse = parseResponse(responseJson, tweet.id());
-      if (geminiResponse == null) {
-        throw new AnalyzerException("Failed to parse Gemini response for tweet " + tweet.id());
+      return toResult(tweet, responseJson);
+
+    } catch (AnalyzerException e) {
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalyzerException("Analysis interrupted for tweet " + tweet.idString(), e);
+    } catch (Exception e) {
+      throw new AnalyzerException("Failed to analyze tweet " + tweet.idString(), e);
+    }
+  }
+
+  /**
+   * Analyzes a tweet without holding a thread while it waits: the rate limiter's delay, the
+   * request and any retry backoff all run on timers and the client's own async calls.
+   */
+  @Override
+  public CompletableFuture<AnalysisResult> analyzeAsync(Tweet tweet) {
+    String prompt = buildPrompt(tweet);
+    long delayNanos = rateLimiter.reserve(TokenEstimator.estimate(prompt)) - System.nanoTime();
+
+    CompletableFuture<String> response =
+        retryPolicy.executeAsync(
+            () -> client.generateContentAsync(prompt), Duration.ofNanos(Math.max(0, delayNanos)));
+    CompletableFuture<AnalysisResult> result =
+        response.handle(
+            (responseJson, error) -> {
+              try {
+                if (error != null) {
+                  Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                  if (cause instanceof AnalyzerException analyzerException) {
+                    throw analyzerException;
+                  }
+                  throw new AnalyzerException("Failed to analyze tweet " + tweet.idString(), cause);
+                }
+                if (responseJson == null || responseJson.isBlank()) {
+                  throw new AnalyzerException("Empty response from Gemini for tweet " + tweet.idString());
+                }
+                return toResult(tweet, responseJson);
+              } catch (AnalyzerException e) {
+                throw new CompletionException(e);
+              } catch (RuntimeException e) {
+                throw new CompletionException(
+                    new AnalyzerException("Failed to analyze tweet " + tweet.idString(), e));
+              }
+            });
+    result.whenComplete(
+        (value, error) -> {
+          if (error != null) {
+            response.cancel(true);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Analyzes the tweets in as few requests as possible. Tweets the response leaves out or
+   * answers with a malformed entry are asked about again in a smaller request, and any still
+   * undecided after that are analyzed one at a time.
+   */
+  @Override
+  public List<AnalysisResult> analyzeAll(List<Tweet> tweets) throws AnalyzerException {
+    if (tweets.size() == 1) {
+      return List.of(analyze(tweets.get(0)));
+    }
+
+    Map<Long, Decision> decisions = new HashMap<>();
+    for (List<Tweet> request : packByTokens(tweets)) {
+      decideAll(request, decisions);
+    }
+
+    List<AnalysisResult> results = new ArrayList<>(tweets.size());
+    for (Tweet tweet : tweets) {
+      results.add(new AnalysisResult(tweet.id(), decisions.get(tweet.id())));
+    }
+    return results;
+  }
+
+  /**
+   * Returns the estimated tweet tokens that currently fit in one request beside the criteria
+   * header, or 0 if requests are not limited by tokens.
+   */
+  @Override
+  public int requestTokenBudget() {
+    int limit = requestTokenLimit.get();
+    return limit == 0 ? 0 : Math.max(1, limit - batchHeaderTokens);
+  }
+
+  private void decideAll(List<Tweet> tweets, Map<Long, Decision> decisions) throws AnalyzerException {
+    List<Tweet> pending = tweets;
+    for (int attempt = 0; attempt < MAX_BATCH_ATTEMPTS && pending.size() > 1; attempt++) {
+      String responseJson;
+      try {
+        responseJson = requestBatch(pending);
+      } catch (AnalyzerException e) {
+        if (!isTokenLimitError(e)) {
+          throw e;
+        }
+        shrinkRequestLimit(pending);
+        int half = pending.size() / 2;
+        decideAll(pending.subList(0, half), decisions);
+        decideAll(pending.subList(half, pending.size()), decisions);
+        return;
+      }
+      growRequestLimit();
+      parseBatchResponse(responseJson, pending, decisions);
+      pending = pending.stream().filter(tweet -> !decisions.containsKey(tweet.id())).toList();
+      if (!pending.isEmpty()) {
+        LOGGER.warning("Gemini left " + pending.size() + " tweets undecided; asking again");
       }
-      Decision decision = Decision.fromString(geminiResponse.decision);
+    }
+    for (Tweet tweet : pending) {
+      decisions.put(tweet.id(), analyze(tweet).decision());
+    }
+  }
+
+  /**
+   * Splits tweets into requests whose estimated prompt fits the current request token limit.
+   * Every request holds at least one tweet, however long.
+   */
+  private List<List<Tweet>> packByTokens(List<Tweet> tweets) {
+    int budget = requestTokenBudget();
+    if (budget == 0) {
+      return List.of(tweets);
+    }
 
-      return new AnalysisResult(tweetUrl(tweet.id()), decision);
+    List<List<Tweet>> requests = new ArrayList<>();
+    List<Tweet> request = new ArrayList<>();
+    long tokens = 0;
+    for (Tweet tweet : tweets) {
+      int cost = TokenEstimator.estimate(tweet);
+      if (!request.isEmpty() && tokens + cost > budget) {
+        requests.add(request);
+        request = new ArrayList<>();
+        tokens = 0;
+      }
+      request.add(tweet);
+      tokens += cost;
+    }
+    requests.add(request);
+    return requests;
+  }
 
+  /**
+   * Cuts the request token limit to half of a request Gemini rejected as too large.
+   */
+  private void shrinkRequestLimit(List<Tweet> rejected) {
+    int rejectedTokens = batchHeaderTokens;
+    for (Tweet tweet : rejected) {
+      rejectedTokens += TokenEstimator.estimate(tweet);
+    }
+    int target = Math.max(batchHeaderTokens + 1, rejectedTokens / 2);
+    int limit = requestTokenLimit.accumulateAndGet(
+        target, (current, cut) -> current == 0 ? cut : Math.min(current, cut));
+    LOGGER.warning(
+        "Gemini rejected a request of about " + rejectedTokens + " tokens; limiting requests to " + limit);
+  }
+
+  /**
+   * Moves the request token limit one step back towards the configured limit.
+   */
+  private void growRequestLimit() {
+    if (maxRequestTokens == 0) {
+      return;
+    }
+    int step = Math.max(1, maxRequestTokens / LIMIT_GROWTH_STEPS);
+    requestTokenLimit.updateAndGet(current -> current == 0 ? 0 : Math.min(maxRequestTokens, current + step));
+  }
+
+  /**
+   * Recognizes Gemini rejecting a prompt for having too many tokens.
+   */
+  private static boolean isTokenLimitError(AnalyzerException e) {
+    return GeminiException.find(e)
+        .filter(failure -> failure.category() == GeminiException.Category.TOKEN_LIMIT)
+        .isPresent();
+  }
+
+  private String requestBatch(List<Tweet> tweets) throws AnalyzerException {
+    try {
+      String prompt = buildBatchPrompt(tweets);
+      rateLimiter.waitIfNeeded(TokenEstimator.estimate(prompt));
+
+      return retryPolicy.execute(
+          () -> {
+            String response = client.generateContent(prompt);
+            if (response == null || response.isBlank()) {
+              throw new AnalyzerException("Empty response from Gemini for " + tweets.size() + " tweets");
+            }
+            return response;
+          });
     } catch (AnalyzerException e) {
       throw e;
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
-      throw new AnalyzerException("Analysis interrupted for tweet " + tweet.id(), e);
+      throw new AnalyzerException("Analysis interrupted for " + tweets.size() + " tweets", e);
     } catch (Exception e) {
-      throw new AnalyzerException("Failed to analyze tweet " + tweet.id(), e);
+      throw new AnalyzerException("Failed to analyze " + tweets.size() + " tweets", e);
     }
   }
 
   private String buildPrompt(Tweet tweet) {
+    return String.format(
+        """
+        You are evaluating tweets for a professional's Twitter cleanup.
+
+        Tweet ID: %s
+        Tweet: "%s"
+
+        Mark for deletion if it violates any of these criteria:
+        %s%s
+
+        Respond in JSON format:
+        {
+          "decision": "DELETE" or "KEEP"
+        }""",
+        tweet.idString(), tweet.content(), criteriaList(), additionalInstructions());
+  }
+
+  private String buildBatchPrompt(List<Tweet> tweets) {
+    StringBuilder tweetList = new StringBuilder();
+    for (Tweet tweet : tweets) {
+      JsonObject entry = new JsonObject();
+      entry.addProperty("id", tweet.idString());
+      entry.addProperty("text", tweet.content());
+      tweetList.append(entry).append("\n");
+    }
+
+    return String.format(
+        """
+        You are evaluating tweets for a professional's Twitter cleanup.
+
+        Mark a tweet for deletion if it violates any of these criteria:
+        %s%s
+
+        Tweets, one JSON object per line:
+        %s
+        Respond with a JSON array holding one entry for every tweet above:
+        [
+          {"id": "<tweet id>", "decision": "DELETE" or "KEEP"}
+        ]""",
+        criteriaList(), additionalInstructions(), tweetList.toString());
+  }
+
+  private String criteriaList() {
     StringBuilder criteriaList = new StringBuilder();
 
     int index = 1;
@@ -113,26 +402,61 @@ public class GeminiAnalyzer implements TweetAnalyzer {
       criteriaList.append(index).append(". Contains any of these words: ").append(words).append("\n");
     }
 
-    String additionalInstructions = "";
-    if (!criteria.additionalInstructions().isBlank()) {
-      additionalInstructions = "\n\nAdditional guidance: " + criteria.additionalInstructions();
+    return criteriaList.toString();
+  }
+
+  private String additionalInstructions() {
+    if (criteria.additionalInstructions().isBlank()) {
+      return "";
     }
+    return "\n\nAdditional guidance: " + criteria.additionalInstructions();
+  }
 
-    return String.format(
-        """
-        You are evaluating tweets for a professional's Twitter cleanup.
+  /**
+   * Reads the decisions for the requested tweets out of a batch response. Entries that are
+   * malformed, carry an unknown decision or name a tweet that was not asked about are skipped,
+   * leaving those tweets undecided.
+   */
+  private void parseBatchResponse(String responseJson, List<Tweet> tweets, Map<Long, Decision> decisions) {
+    Map<String, Long> requested = new HashMap<>();
+    for (Tweet tweet : tweets) {
+      requested.put(tweet.idString(), tweet.id());
+    }
 
-        Tweet ID: %s
-        Tweet: "%s"
+    JsonArray entries;
+    try {
+      JsonElement root = gson.fromJson(responseJson, JsonElement.class);
+      if (root == null || !root.isJsonArray()) {
+        LOGGER.warning("Gemini response for " + tweets.size() + " tweets is not a JSON array");
+        return;
+      }
+      entries = root.getAsJsonArray();
+    } catch (JsonParseException e) {
+      LOGGER.warning("Failed to parse Gemini response for " + tweets.size() + " tweets: " + e.getMessage());
+      return;
+    }
 
-        Mark for deletion if it violates any of these criteria:
-        %s%s
+    for (JsonElement element : entries) {
+      try {
+        JsonObject entry = element.getAsJsonObject();
+        Long tweetId = requested.get(entry.get("id").getAsString().trim());
+        if (tweetId != null) {
+          decisions.put(tweetId, Decision.fromString(entry.get("decision").getAsString()));
+        }
+      } catch (RuntimeException e) {
+        // Malformed entry; its tweet stays undecided and is asked about again
+      }
+    }
+  }
 
-        Respond in JSON format:
-        {
-          "decision": "DELETE" or "KEEP"
-        }""",
-        tweet.id(), tweet.content(), criteriaList.toString(), additionalInstructions);
+  private AnalysisResult toResult(Tweet tweet, String responseJson) throws AnalyzerException {
+    GeminiResponse geminiResponse = parseResponse(responseJson, tweet.idString());
+    if (geminiResponse == null) {
+      throw new AnalyzerException("Failed to parse Gemini response for tweet " + tweet.idString());
+    }
+    Decision decision = Decision.fromString(geminiResponse.decision);
+
+    return new AnalysisResult(tweet.id(), decision);
   }
 
   private GeminiResponse parseResponse(String responseJson, String tweetId)
@@ -163,10 +487,6 @@ public class GeminiAnalyzer implements TweetAnalyzer {
     }
   }
 
-  private String tweetUrl(String tweetId) {
-    return baseTwitterUrl + "/" + username + "/status/" + tweetId;
-  }
-
   private static final class GeminiResponse {
     private String decision;
   }
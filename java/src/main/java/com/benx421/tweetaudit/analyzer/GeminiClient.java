@@ -1,9 +1,20 @@
 package com.benx421.tweetaudit.analyzer;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for Gemini AI client (allows mocking in tests).
  */
 public interface GeminiClient {
 
   String generateContent(String prompt) throws Exception;
+
+  /**
+   * Sends the prompt without blocking the caller. Cancelling the future, or letting it time out,
+   * cancels the request. By default the blocking call runs on a virtual thread, which is
+   * interrupted on cancellation.
+   */
+  default CompletableFuture<String> generateContentAsync(String prompt) {
+    return BlockingCalls.onVirtualThread(() -> generateContent(prompt));
+  }
 }
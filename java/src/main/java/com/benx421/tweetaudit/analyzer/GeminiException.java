@@ -0,0 +1,189 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Exception thrown by a {@link GeminiClient} when a request fails, classified so callers can
+ * decide whether to retry from its category rather than from its message. It carries the delay
+ * Gemini asked for before the next attempt, when it gave one.
+ */
+public class GeminiException extends Exception {
+
+  /** The RetryInfo delay Gemini puts in the body of rate limit errors, e.g. "retryDelay": "37s". */
+  private static final Pattern RETRY_DELAY =
+      Pattern.compile("(?:retryDelay\"?\\s*:\\s*\"|retry in )(\\d+(?:\\.\\d+)?)s", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * What went wrong, and whether trying again can help.
+   */
+  public enum Category {
+    /** Quota or rate limit exceeded (HTTP 429). */
+    RATE_LIMITED(true),
+    /** Gemini is overloaded or failing (HTTP 5xx), or could not be reached. */
+    UNAVAILABLE(true),
+    /** The request timed out. */
+    TIMEOUT(true),
+    /** The prompt has more tokens than the model accepts. */
+    TOKEN_LIMIT(false),
+    /** The API key is missing, wrong or lacks permission (HTTP 401, 403). */
+    AUTHENTICATION(false),
+    /** Gemini rejected the request itself (other HTTP 4xx). */
+    INVALID_REQUEST(false),
+    /** The request was cancelled or its thread interrupted, so it says nothing about Gemini. */
+    CANCELLED(false),
+    /** Anything else, such as an empty response. */
+    UNKNOWN(false);
+
+    private final boolean retryable;
+
+    Category(boolean retryable) {
+      this.retryable = retryable;
+    }
+
+    public boolean retryable() {
+      return retryable;
+    }
+  }
+
+  private final Category category;
+  private final Duration retryAfter;
+
+  public GeminiException(Category category, String message) {
+    this(category, message, null, null);
+  }
+
+  public GeminiException(Category category, String message, Duration retryAfter, Throwable cause) {
+    super(message, cause);
+    this.category = category;
+    this.retryAfter = retryAfter;
+  }
+
+  public Category category() {
+    return category;
+  }
+
+  /**
+   * Returns how long Gemini asked callers to wait before trying again, if it said.
+   */
+  public Optional<Duration> retryAfter() {
+    return Optional.ofNullable(retryAfter);
+  }
+
+  /**
+   * Classifies a Gemini API error from its API status, or from its HTTP code when it has no
+   * status. Gemini reports a prompt over the model's token limit as a plain
+   * {@code INVALID_ARGUMENT} with no status or reason of its own, so for that one status, and
+   * only for it, the message is checked for the token count wording as a fallback; an HTTP 413
+   * is a token limit error whatever its message.
+   *
+   * @param code the HTTP status code
+   * @param status the API status, such as RESOURCE_EXHAUSTED, or null
+   * @param message the error message, which may hold a retry delay
+   */
+  public static GeminiException fromApiError(int code, String status, String message, Throwable cause) {
+    String text = message == null ? "" : message;
+    Category category = status == null || status.isBlank() ? fromCode(code) : fromStatus(status, code);
+    if (category == Category.INVALID_REQUEST
+        && (code == 400 || "INVALID_ARGUMENT".equals(status))
+        && text.toLowerCase().contains("token count")) {
+      category = Category.TOKEN_LIMIT;
+    }
+    String description = "Gemini API error " + code + (status == null ? "" : " " + status) + ": " + text;
+    return new GeminiException(category, description, parseRetryDelay(text), cause);
+  }
+
+  private static Category fromStatus(String status, int code) {
+    return switch (status) {
+      case "RESOURCE_EXHAUSTED" -> Category.RATE_LIMITED;
+      case "DEADLINE_EXCEEDED" -> Category.TIMEOUT;
+      case "UNAVAILABLE", "INTERNAL", "UNKNOWN", "ABORTED" -> Category.UNAVAILABLE;
+      case "UNAUTHENTICATED", "PERMISSION_DENIED" -> Category.AUTHENTICATION;
+      case "INVALID_ARGUMENT", "FAILED_PRECONDITION", "NOT_FOUND", "OUT_OF_RANGE", "UNIMPLEMENTED" ->
+          code == 413 ? Category.TOKEN_LIMIT : Category.INVALID_REQUEST;
+      default -> fromCode(code);
+    };
+  }
+
+  private static Category fromCode(int code) {
+    if (code == 429) {
+      return Category.RATE_LIMITED;
+    } else if (code == 504 || code == 408) {
+      return Category.TIMEOUT;
+    } else if (code >= 500) {
+      return Category.UNAVAILABLE;
+    } else if (code == 401 || code == 403) {
+      return Category.AUTHENTICATION;
+    } else if (code == 413) {
+      return Category.TOKEN_LIMIT;
+    } else if (code >= 400) {
+      return Category.INVALID_REQUEST;
+    }
+    return Category.UNKNOWN;
+  }
+
+  /**
+   * Classifies a failure that did not come back as an API error: timeouts and network errors,
+   * wherever they sit in the cause chain, can be retried; anything else cannot. A cancelled or
+   * interrupted request is checked for first, so an attempt cancelled by a hedge or by its
+   * caller is not mistaken for a timeout.
+   */
+  public static GeminiException fromFailure(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (isCancellation(cause)) {
+        return new GeminiException(Category.CANCELLED, "Gemini request cancelled: " + cause, null, failure);
+      }
+    }
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof HttpTimeoutException
+          || cause instanceof SocketTimeoutException
+          || cause instanceof TimeoutException) {
+        return new GeminiException(Category.TIMEOUT, "Gemini request timed out: " + cause, null, failure);
+      }
+      if (cause instanceof IOException) {
+        return new GeminiException(Category.UNAVAILABLE, "Could not reach Gemini: " + cause, null, failure);
+      }
+    }
+    return new GeminiException(Category.UNKNOWN, "Gemini request failed: " + failure, null, failure);
+  }
+
+  /**
+   * Whether a failure is a cancellation or an interrupt. A socket timeout is an interrupted I/O
+   * error too, but a real timeout.
+   */
+  private static boolean isCancellation(Throwable cause) {
+    return cause instanceof CancellationException
+        || cause instanceof InterruptedException
+        || cause instanceof ClosedByInterruptException
+        || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException));
+  }
+
+  /**
+   * Returns the first GeminiException in a failure's cause chain, if any.
+   */
+  static Optional<GeminiException> find(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof GeminiException gemini) {
+        return Optional.of(gemini);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static Duration parseRetryDelay(String message) {
+    Matcher matcher = RETRY_DELAY.matcher(message);
+    if (!matcher.find()) {
+      return null;
+    }
+    return Duration.ofMillis((long) (Double.parseDouble(matcher.group(1)) * 1000));
+  }
+}
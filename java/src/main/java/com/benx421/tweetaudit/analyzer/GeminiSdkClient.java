@@ -1,6 +1,10 @@
 package com.benx421.tweetaudit.analyzer;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import com.google.genai.Client;
+import com.google.genai.errors.ApiException;
 import com.google.genai.types.GenerateContentConfig;
 import com.google.genai.types.GenerateContentResponse;
 
@@ -32,19 +36,76 @@ public class GeminiSdkClient implements GeminiClient {
     this.config = GenerateContentConfig.builder().responseMimeType("application/json").build();
   }
 
+  /**
+   * Sends the prompt to Gemini.
+   *
+   * @throws GeminiException classified by what went wrong
+   */
   @Override
-  public String generateContent(String prompt) throws Exception {
+  public String generateContent(String prompt) throws GeminiException {
     if (prompt == null || prompt.isBlank()) {
       throw new IllegalArgumentException("Prompt cannot be null or blank");
     }
 
-    GenerateContentResponse response = client.models.generateContent(modelName, prompt, config);
+    GenerateContentResponse response;
+    try {
+      response = client.models.generateContent(modelName, prompt, config);
+    } catch (RuntimeException e) {
+      throw classify(e);
+    }
+    return text(response);
+  }
+
+  /**
+   * Sends the prompt through the SDK's async API, so no thread waits on the request. Cancelling
+   * the returned future, or letting it time out, cancels the SDK's request future.
+   */
+  @Override
+  public CompletableFuture<String> generateContentAsync(String prompt) {
+    if (prompt == null || prompt.isBlank()) {
+      return CompletableFuture.failedFuture(new IllegalArgumentException("Prompt cannot be null or blank"));
+    }
+
+    CompletableFuture<GenerateContentResponse> request;
+    try {
+      request = client.async.models.generateContent(modelName, prompt, config);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(classify(e));
+    }
+    CompletableFuture<String> result =
+        request.handle(
+            (response, error) -> {
+              try {
+                if (error != null) {
+                  throw classify(error instanceof CompletionException ? error.getCause() : error);
+                }
+                return text(response);
+              } catch (GeminiException e) {
+                throw new CompletionException(e);
+              }
+            });
+    result.whenComplete(
+        (value, error) -> {
+          if (error != null) {
+            request.cancel(true);
+          }
+        });
+    return result;
+  }
 
+  private static String text(GenerateContentResponse response) throws GeminiException {
     String responseText = response.text();
     if (responseText == null || responseText.isBlank()) {
-      throw new Exception("Empty response from Gemini API");
+      throw new GeminiException(GeminiException.Category.UNKNOWN, "Empty response from Gemini API");
     }
 
     return responseText;
   }
+
+  private static GeminiException classify(Throwable failure) {
+    if (failure instanceof ApiException e) {
+      return GeminiException.fromApiError(e.code(), e.status(), e.message(), e);
+    }
+    return GeminiException.fromFailure(failure);
+  }
 }
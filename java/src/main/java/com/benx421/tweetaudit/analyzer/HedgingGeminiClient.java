@@ -0,0 +1,291 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Decorator that cuts tail latency by hedging slow requests. A request that has not returned
+ * within the chosen percentile of recent latencies is sent a second time, the first answer to
+ * arrive is used, and the other request is cancelled. Hedges are capped at a share of all
+ * requests and are only sent when the rate limiter has a slot free right away, so they never
+ * push requests past Gemini's quotas. Cancelling interrupts the losing request's thread; a
+ * request already blocked on the network may still run to completion, and its answer is dropped.
+ * Every attempt adds its latency to the window, including a cancelled one, whose time until
+ * cancellation keeps slow requests from dropping out of the percentile. Callers that queue for
+ * a concurrency slot should do so in front of this client, so the wait is not timed as latency.
+ * Async requests hedge on a timer rather than a waiting thread, and cancelling one cancels
+ * both attempts.
+ */
+final class HedgingGeminiClient implements GeminiClient {
+
+  private static final Logger LOGGER = Logger.getLogger(HedgingGeminiClient.class.getName());
+
+  /** Latencies kept for working out the hedge delay. */
+  private static final int WINDOW = 256;
+
+  /** Latencies needed before requests are hedged. */
+  private static final int MIN_SAMPLES = 20;
+
+  /** Hedges that can build up while requests are fast, for a burst of slow ones. */
+  private static final double MAX_HEDGE_CREDIT = 10;
+
+  private final GeminiClient delegate;
+  private final RateLimiter rateLimiter;
+  private final int percentile;
+  private final double hedgesPerRequest;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final long[] latencies = new long[WINDOW];
+  private int samples;
+  private int next;
+  private double hedgeCredit;
+  private long requests;
+  private long hedges;
+  private long hedgeWins;
+
+  /**
+   * Creates a hedging client.
+   *
+   * @param percentile the percentile of recent latency after which a request is hedged, 1 to 99
+   * @param budgetPercent the most hedges as a percentage of requests
+   */
+  HedgingGeminiClient(GeminiClient delegate, RateLimiter rateLimiter, int percentile, int budgetPercent) {
+    if (delegate == null || rateLimiter == null) {
+      throw new IllegalArgumentException("Client and rate limiter cannot be null");
+    }
+    if (percentile < 1 || percentile > 99) {
+      throw new IllegalArgumentException("Hedge percentile must be between 1 and 99: " + percentile);
+    }
+    if (budgetPercent < 0 || budgetPercent > 100) {
+      throw new IllegalArgumentException("Hedge budget must be between 0 and 100 percent: " + budgetPercent);
+    }
+    this.delegate = delegate;
+    this.rateLimiter = rateLimiter;
+    this.percentile = percentile;
+    this.hedgesPerRequest = budgetPercent / 100.0;
+  }
+
+  @Override
+  public String generateContent(String prompt) throws Exception {
+    long hedgeDelay = startRequest();
+    if (hedgeDelay < 0) {
+      return timed(prompt);
+    }
+
+    CompletionService<String> race = new ExecutorCompletionService<>(executor);
+    List<Future<String>> attempts = new ArrayList<>(2);
+    try {
+      attempts.add(race.submit(() -> timed(prompt)));
+      Future<String> done = race.poll(hedgeDelay, TimeUnit.NANOSECONDS);
+      if (done == null) {
+        if (takeHedge(prompt)) {
+          attempts.add(race.submit(() -> timed(prompt)));
+        }
+        done = race.take();
+      }
+
+      Exception failure = null;
+      for (int finished = 1; ; finished++) {
+        try {
+          String response = done.get();
+          if (done != attempts.get(0)) {
+            countHedgeWin();
+          }
+          return response;
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause() instanceof Exception cause ? cause : e;
+          }
+          if (finished == attempts.size()) {
+            throw failure;
+          }
+          done = race.take();
+        }
+      }
+    } finally {
+      for (Future<String> attempt : attempts) {
+        attempt.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  public CompletableFuture<String> generateContentAsync(String prompt) {
+    long hedgeDelay = startRequest();
+    CompletableFuture<String> result = new CompletableFuture<>();
+    List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+    AtomicInteger running = new AtomicInteger(1);
+    result.whenComplete(
+        (value, error) -> {
+          for (CompletableFuture<String> attempt : attempts) {
+            attempt.cancel(true);
+          }
+        });
+
+    race(timedAsync(prompt), false, result, attempts, running);
+    if (hedgeDelay >= 0) {
+      CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.NANOSECONDS)
+          .execute(
+              () -> {
+                // Hedge only while the first attempt is still running, and claim the place in
+                // the race before spending hedge credit on it
+                int count = running.get();
+                if (result.isDone() || count == 0 || !running.compareAndSet(count, count + 1)) {
+                  return;
+                }
+                if (takeHedge(prompt)) {
+                  race(timedAsync(prompt), true, result, attempts, running);
+                } else if (running.decrementAndGet() == 0) {
+                  // The first attempt failed while the hedge held its place
+                  attempts.get(0).whenComplete((response, error) -> fail(result, error));
+                }
+              });
+    }
+    return result;
+  }
+
+  /**
+   * Enters an attempt in the race: the first to succeed completes the result, and the result
+   * fails only once every attempt has failed.
+   */
+  private void race(
+      CompletableFuture<String> attempt,
+      boolean hedge,
+      CompletableFuture<String> result,
+      List<CompletableFuture<String>> attempts,
+      AtomicInteger running) {
+    attempts.add(attempt);
+    if (result.isDone()) {
+      attempt.cancel(true);
+      return;
+    }
+    attempt.whenComplete(
+        (response, error) -> {
+          if (error == null) {
+            if (result.complete(response) && hedge) {
+              countHedgeWin();
+            }
+          } else if (running.decrementAndGet() == 0) {
+            fail(result, error);
+          }
+        });
+  }
+
+  private static void fail(CompletableFuture<String> result, Throwable error) {
+    result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+  }
+
+  /**
+   * Summarizes hedging so far: requests, hedges sent and how many of them answered first.
+   */
+  String report() {
+    lock.lock();
+    try {
+      long hedgeDelayMillis = samples < MIN_SAMPLES ? 0 : percentileNanos() / 1_000_000;
+      return String.format(
+          "hedged %d of %d requests (%d answered first), p%d latency %d ms",
+          hedges, requests, hedgeWins, percentile, hedgeDelayMillis);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Counts a request and earns hedge credit for it.
+   *
+   * @return nanoseconds to wait before hedging it, or -1 if there are too few latencies yet
+   */
+  private long startRequest() {
+    lock.lock();
+    try {
+      requests++;
+      hedgeCredit = Math.min(MAX_HEDGE_CREDIT, hedgeCredit + hedgesPerRequest);
+      return samples < MIN_SAMPLES ? -1 : percentileNanos();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean takeHedge(String prompt) {
+    lock.lock();
+    try {
+      if (hedgeCredit < 1 || !rateLimiter.tryReserve(TokenEstimator.estimate(prompt))) {
+        return false;
+      }
+      hedgeCredit--;
+      hedges++;
+      LOGGER.fine("Hedging a Gemini request; " + report());
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void countHedgeWin() {
+    lock.lock();
+    try {
+      hedgeWins++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sends one attempt and records its latency however it ends.
+   */
+  private String timed(String prompt) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return delegate.generateContent(prompt);
+    } finally {
+      recordLatency(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Sends one async attempt and records its latency however it ends.
+   */
+  private CompletableFuture<String> timedAsync(String prompt) {
+    long start = System.nanoTime();
+    CompletableFuture<String> call;
+    try {
+      call = delegate.generateContentAsync(prompt);
+    } catch (RuntimeException e) {
+      call = CompletableFuture.failedFuture(e);
+    }
+    call.whenComplete((value, error) -> recordLatency(System.nanoTime() - start));
+    return call;
+  }
+
+  private void recordLatency(long latency) {
+    lock.lock();
+    try {
+      latencies[next] = latency;
+      next = (next + 1) % WINDOW;
+      samples = Math.min(WINDOW, samples + 1);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Called with the lock held. */
+  private long percentileNanos() {
+    long[] sorted = Arrays.copyOf(latencies, samples);
+    Arrays.sort(sorted);
+    return sorted[Math.min(samples - 1, samples * percentile / 100)];
+  }
+}
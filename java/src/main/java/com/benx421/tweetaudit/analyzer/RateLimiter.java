@@ -1,32 +1,187 @@
 package com.benx421.tweetaudit.analyzer;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Simple rate limiter to enforce minimum delay between operations.
+ * Keeps requests within Gemini's quotas: a minimum gap between requests, requests per minute,
+ * estimated tokens per minute and requests per day. Each quota is a token bucket kept as the
+ * time its permits are paid back until, which callers advance with a compare-and-set, so taking
+ * a slot never holds a lock and a caller only parks its own thread until its slot comes up. The
+ * gap, per-minute requests and per-minute tokens are paced evenly, so a sustained rate sits at
+ * the quota without bursts; the daily quota lets the day's requests go as fast as the others
+ * allow. Quotas are counted from when the limiter is created, not from Gemini's own reset times.
  */
 class RateLimiter {
 
-  private final Duration minInterval;
-  private long lastRequestTimeNanos;
+  private static final Duration MINUTE = Duration.ofMinutes(1);
+  private static final Duration DAY = Duration.ofDays(1);
+  /** Returned by the try methods when the permits were taken; never a real nanoTime. */
+  private static final long TAKEN = Long.MIN_VALUE;
+
+  private final List<Bucket> requestBuckets = new ArrayList<>();
+  private final Bucket tokenBucket;
 
   RateLimiter(Duration minInterval) {
-    this.minInterval = minInterval;
-    this.lastRequestTimeNanos = 0;
+    this(minInterval, 0, 0, 0);
   }
 
-  synchronized void waitIfNeeded() throws InterruptedException {
+  /**
+   * Creates a limiter for the given quotas; a quota of 0 is not enforced.
+   */
+  RateLimiter(Duration minInterval, int requestsPerMinute, int tokensPerMinute, int requestsPerDay) {
+    if (minInterval == null || minInterval.isNegative()) {
+      throw new IllegalArgumentException("Minimum interval cannot be null or negative");
+    }
+    if (requestsPerMinute < 0 || tokensPerMinute < 0 || requestsPerDay < 0) {
+      throw new IllegalArgumentException(
+          "Quotas cannot be negative: " + requestsPerMinute + " RPM, " + tokensPerMinute + " TPM, "
+              + requestsPerDay + " RPD");
+    }
     long now = System.nanoTime();
-    long elapsedNanos = now - lastRequestTimeNanos;
-    long requiredNanos = minInterval.toNanos();
-
-    if (elapsedNanos < requiredNanos) {
-      long sleepNanos = requiredNanos - elapsedNanos;
-      long sleepMillis = (sleepNanos + 999_999) / 1_000_000;
-      Thread.sleep(sleepMillis);
-      lastRequestTimeNanos = System.nanoTime();
-    } else {
-      lastRequestTimeNanos = now;
+    if (!minInterval.isZero()) {
+      requestBuckets.add(Bucket.paced(1, minInterval, now));
+    }
+    if (requestsPerMinute > 0) {
+      requestBuckets.add(Bucket.paced(requestsPerMinute, MINUTE, now));
+    }
+    if (requestsPerDay > 0) {
+      requestBuckets.add(Bucket.bursting(requestsPerDay, DAY, now));
+    }
+    this.tokenBucket = tokensPerMinute > 0 ? Bucket.paced(tokensPerMinute, MINUTE, now) : null;
+  }
+
+  void waitIfNeeded() throws InterruptedException {
+    waitIfNeeded(0);
+  }
+
+  /**
+   * Reserves a request of the given estimated tokens and parks the calling thread until every
+   * quota allows it.
+   *
+   * @throws InterruptedException if interrupted while waiting; the reservation is not given back
+   */
+  void waitIfNeeded(int tokens) throws InterruptedException {
+    long sendAt = reserve(tokens);
+    for (long delay = sendAt - System.nanoTime(); delay > 0; delay = sendAt - System.nanoTime()) {
+      TimeUnit.NANOSECONDS.sleep(delay);
+    }
+  }
+
+  /**
+   * Reserves a request of the given estimated tokens only if every quota allows it now, for
+   * optional requests that should not be sent late.
+   *
+   * @return whether the request was reserved
+   */
+  boolean tryReserve(int tokens) {
+    return tryTakeAll(tokens, System.nanoTime()) == TAKEN;
+  }
+
+  /**
+   * Reserves a request of the given estimated tokens without waiting. Every quota is charged at
+   * the same time, the one the slowest of them allows, so one quota holding a request back does
+   * not waste the others' slots.
+   *
+   * @return the {@link System#nanoTime()} at which the request may be sent
+   */
+  long reserve(int tokens) {
+    long sendAt = System.nanoTime();
+    for (long later = tryTakeAll(tokens, sendAt); later != TAKEN; later = tryTakeAll(tokens, sendAt)) {
+      sendAt = later;
+    }
+    return sendAt;
+  }
+
+  /**
+   * Charges every quota at {@code at}, or none of them if one cannot be charged then.
+   *
+   * @return {@link #TAKEN} if every quota was charged, otherwise the earliest time the quota that
+   *     refused allows
+   */
+  private long tryTakeAll(int tokens, long at) {
+    for (int i = 0; i < requestBuckets.size(); i++) {
+      long earliest = requestBuckets.get(i).tryTake(1, at);
+      if (earliest != TAKEN) {
+        for (int j = 0; j < i; j++) {
+          requestBuckets.get(j).giveBack(1);
+        }
+        return earliest;
+      }
+    }
+    if (tokenBucket != null) {
+      long earliest = tokenBucket.tryTake(tokens, at);
+      if (earliest != TAKEN) {
+        for (Bucket bucket : requestBuckets) {
+          bucket.giveBack(1);
+        }
+        return earliest;
+      }
+    }
+    return TAKEN;
+  }
+
+  /**
+   * One quota, stored as the time until which the permits taken so far are paid back at the
+   * quota's rate. Permits may be taken once that time is no more than the burst allowance ahead.
+   */
+  private static final class Bucket {
+    private final long limit;
+    private final long nanosPerPermit;
+    private final long burstNanos;
+    private final AtomicLong paidUntil;
+
+    private Bucket(long limit, Duration period, long burstPermits, long now) {
+      this.limit = limit;
+      this.nanosPerPermit = Math.max(1, period.toNanos() / limit);
+      this.burstNanos = burstPermits * nanosPerPermit;
+      this.paidUntil = new AtomicLong(now);
+    }
+
+    /** A bucket that spaces permits evenly across the period. */
+    static Bucket paced(long limit, Duration period, long now) {
+      return new Bucket(limit, period, 0, now);
+    }
+
+    /** A bucket that allows the whole period's permits at once. */
+    static Bucket bursting(long limit, Duration period, long now) {
+      return new Bucket(limit, period, limit - 1, now);
+    }
+
+    /**
+     * Takes permits at {@code at} if the quota allows them then. More permits than the whole
+     * quota are charged as the whole quota.
+     *
+     * @return {@link #TAKEN} if the permits were taken, otherwise the earliest time they could be
+     */
+    long tryTake(long permits, long at) {
+      long charge = charge(permits);
+      while (true) {
+        long current = paidUntil.get();
+        if (current - burstNanos > at) {
+          return current - burstNanos;
+        }
+        if (paidUntil.compareAndSet(current, Math.max(current, at) + charge)) {
+          return TAKEN;
+        }
+      }
+    }
+
+    /**
+     * Returns permits taken by {@link #tryTake} when the request was not reserved after all. This
+     * may leave the bucket paid until a little earlier than before the take, which is harmless
+     * when that is in the past, as a bucket paid until the past allows the same permits as one
+     * paid until now.
+     */
+    void giveBack(long permits) {
+      paidUntil.addAndGet(-charge(permits));
+    }
+
+    private long charge(long permits) {
+      return Math.min(permits, limit) * nanosPerPermit;
     }
   }
 }
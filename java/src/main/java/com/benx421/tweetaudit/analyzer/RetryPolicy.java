@@ -1,26 +1,69 @@
 package com.benx421.tweetaudit.analyzer;
 
 import java.time.Duration;
-import java.util.Set;
+import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
 
 /**
  * Retry policy with exponential backoff for transient errors.
+ * A failure is retried only if a {@link GeminiException} in its cause chain has a retryable
+ * category, and never sooner than the delay Gemini asked for. Retries share one budget, refilled
+ * by a tenth of a retry for every call, so during an outage the policy stops retrying instead of
+ * giving every call its full backoff. A circuit breaker opens after a run of consecutive
+ * failures that point to an outage, that is unavailable or timed out, and fails calls at once
+ * until it has cooled down; then one trial call is let through, and its outcome closes the
+ * circuit or opens it again. Rate limit errors are retried but left to the rate controls.
+ * Cancelled calls are neither retried nor counted for or against the circuit.
  */
 class RetryPolicy {
 
-  private static final Set<String> RETRYABLE_KEYWORDS =
-      Set.of("timeout", "connection", "rate limit", "quota", "503", "429", "temporarily unavailable");
+  private static final Logger LOGGER = Logger.getLogger(RetryPolicy.class.getName());
+
+  /** Retries the budget holds when full, and starts with, in thousandths of a retry. */
+  private static final long MAX_BUDGET_MILLIS = 10_000;
+
+  /** Budget each call adds, in thousandths of a retry: one retry for every ten calls. */
+  private static final long BUDGET_PER_CALL_MILLIS = 100;
+
+  private static final long BUDGET_PER_RETRY_MILLIS = 1_000;
 
   private final int maxRetries;
   private final Duration initialDelay;
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final AtomicLong budgetMillis = new AtomicLong(MAX_BUDGET_MILLIS);
+  private final ReentrantLock circuitLock = new ReentrantLock();
+  private int consecutiveFailures;
+  private boolean open;
+  private long openUntilNanos;
+  private boolean trialInFlight;
 
   RetryPolicy(int maxRetries, Duration initialDelay) {
+    this(maxRetries, initialDelay, 5, Duration.ofSeconds(30));
+  }
+
+  /**
+   * Creates a policy whose circuit opens after {@code failureThreshold} consecutive unavailable
+   * or timed out failures and stays open for {@code openDuration}, or longer if Gemini asked for longer.
+   */
+  RetryPolicy(int maxRetries, Duration initialDelay, int failureThreshold, Duration openDuration) {
     if (maxRetries < 1) {
       throw new IllegalArgumentException("maxRetries must be at least 1, got: " + maxRetries);
     }
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException("failureThreshold must be at least 1, got: " + failureThreshold);
+    }
     this.maxRetries = maxRetries;
     this.initialDelay = initialDelay;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
   }
 
   public static RetryPolicy withDefaults() {
@@ -28,35 +71,229 @@ class RetryPolicy {
   }
 
   <T> T execute(Callable<T> operation) throws Exception {
+    depositBudget();
     for (int attempt = 0; attempt < maxRetries; attempt++) {
+      boolean trial = admit();
       try {
-        return operation.call();
+        T result = operation.call();
+        recordReachable();
+        return result;
       } catch (Exception e) {
-        if (!isRetryable(e) || attempt == maxRetries - 1) {
+        long delayMillis = retryDelayMillis(e, attempt, trial);
+        if (delayMillis < 0) {
           throw e;
         }
-
-        long sleepMillis = calculateBackoff(attempt);
-        Thread.sleep(sleepMillis);
+        TimeUnit.MILLISECONDS.sleep(delayMillis);
       }
     }
 
     throw new IllegalStateException("Retry loop completed without returning or throwing");
   }
 
-  private boolean isRetryable(Exception e) {
-    String errorMessage = e.getMessage();
-    if (errorMessage == null) {
-      return false;
+  /**
+   * Runs an asynchronous operation under the same rules as {@link #execute(Callable)}, waiting
+   * out backoff on a timer instead of a thread. The first attempt starts after {@code delay}.
+   * Cancelling the returned future, or letting it time out, cancels the attempt in flight and
+   * stops further retries.
+   */
+  <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> operation, Duration delay) {
+    depositBudget();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    schedule(() -> attemptAsync(operation, 0, result), delay.toMillis());
+    return result;
+  }
+
+  private <T> void attemptAsync(Supplier<CompletableFuture<T>> operation, int attempt, CompletableFuture<T> result) {
+    if (result.isDone()) {
+      return;
+    }
+    boolean trial;
+    try {
+      trial = admit();
+    } catch (GeminiException e) {
+      result.completeExceptionally(e);
+      return;
+    }
+    CompletableFuture<T> call;
+    try {
+      call = operation.get();
+    } catch (RuntimeException e) {
+      // Never reached Gemini, so it neither closes the circuit nor keeps the trial
+      if (trial) {
+        endTrial();
+      }
+      result.completeExceptionally(e);
+      return;
+    }
+    result.whenComplete(
+        (value, error) -> {
+          if (error != null) {
+            call.cancel(true);
+          }
+        });
+    call.whenComplete(
+        (value, error) -> {
+          if (error == null) {
+            recordReachable();
+            result.complete(value);
+            return;
+          }
+          Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+          long delayMillis = retryDelayMillis(failure, attempt, trial);
+          if (delayMillis < 0) {
+            result.completeExceptionally(failure);
+          } else {
+            schedule(() -> attemptAsync(operation, attempt + 1, result), delayMillis);
+          }
+        });
+  }
+
+  private static void schedule(Runnable task, long delayMillis) {
+    if (delayMillis <= 0) {
+      task.run();
+    } else {
+      CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(task);
+    }
+  }
+
+  /**
+   * Records a failed attempt with the circuit breaker and decides whether to try again.
+   *
+   * @return milliseconds to wait before the next attempt, or -1 to give up
+   */
+  private long retryDelayMillis(Throwable e, int attempt, boolean trial) {
+    Optional<GeminiException> failure = GeminiException.find(e);
+    if (failure.isEmpty() || failure.get().category() == GeminiException.Category.CANCELLED) {
+      if (trial) {
+        endTrial();
+      }
+      return -1;
+    }
+    if (!failure.get().category().retryable()) {
+      recordReachable();
+      return -1;
     }
 
-    String lowerMessage = errorMessage.toLowerCase();
-    return RETRYABLE_KEYWORDS.stream().anyMatch(lowerMessage::contains);
+    Duration retryAfter = failure.get().retryAfter().orElse(Duration.ZERO);
+    if (failure.get().category() == GeminiException.Category.RATE_LIMITED) {
+      if (trial) {
+        endTrial();
+      }
+    } else {
+      recordFailure(trial, retryAfter);
+    }
+    if (attempt >= maxRetries - 1 || isOpen() || !withdrawBudget()) {
+      return -1;
+    }
+    return Math.max(calculateBackoff(attempt), retryAfter.toMillis());
+  }
+
+  /**
+   * Returns whether the circuit is open, failing calls without trying them.
+   */
+  boolean isOpen() {
+    circuitLock.lock();
+    try {
+      return open;
+    } finally {
+      circuitLock.unlock();
+    }
+  }
+
+  /**
+   * Lets a call through the circuit, or fails it at once while the circuit is open.
+   *
+   * @return whether the call is the trial that decides if an open circuit closes
+   */
+  private boolean admit() throws GeminiException {
+    circuitLock.lock();
+    try {
+      if (!open) {
+        return false;
+      }
+      long remaining = openUntilNanos - System.nanoTime();
+      if (remaining > 0 || trialInFlight) {
+        throw new GeminiException(
+            GeminiException.Category.UNAVAILABLE,
+            "Gemini circuit open after " + consecutiveFailures + " consecutive failures; failing fast",
+            Duration.ofNanos(Math.max(0, remaining)),
+            null);
+      }
+      trialInFlight = true;
+      return true;
+    } finally {
+      circuitLock.unlock();
+    }
+  }
+
+  /**
+   * Records that Gemini answered, successfully or with an error retrying cannot fix.
+   */
+  private void recordReachable() {
+    circuitLock.lock();
+    try {
+      if (open) {
+        LOGGER.info("Gemini answered again; closing circuit");
+      }
+      consecutiveFailures = 0;
+      open = false;
+      trialInFlight = false;
+    } finally {
+      circuitLock.unlock();
+    }
+  }
+
+  private void recordFailure(boolean trial, Duration retryAfter) {
+    circuitLock.lock();
+    try {
+      consecutiveFailures++;
+      if (trial || (!open && consecutiveFailures >= failureThreshold)) {
+        Duration openFor = retryAfter.compareTo(openDuration) > 0 ? retryAfter : openDuration;
+        open = true;
+        trialInFlight = false;
+        openUntilNanos = System.nanoTime() + openFor.toNanos();
+        LOGGER.warning(
+            "Gemini failed " + consecutiveFailures + " times in a row; opening circuit for "
+                + openFor.toSeconds() + "s");
+      }
+    } finally {
+      circuitLock.unlock();
+    }
+  }
+
+  private void endTrial() {
+    circuitLock.lock();
+    try {
+      trialInFlight = false;
+    } finally {
+      circuitLock.unlock();
+    }
+  }
+
+  private void depositBudget() {
+    budgetMillis.accumulateAndGet(
+        BUDGET_PER_CALL_MILLIS, (budget, deposit) -> Math.min(MAX_BUDGET_MILLIS, budget + deposit));
+  }
+
+  private boolean withdrawBudget() {
+    long budget;
+    do {
+      budget = budgetMillis.get();
+      if (budget < BUDGET_PER_RETRY_MILLIS) {
+        LOGGER.warning("Retry budget spent; not retrying");
+        return false;
+      }
+    } while (!budgetMillis.compareAndSet(budget, budget - BUDGET_PER_RETRY_MILLIS));
+    return true;
   }
 
+  /**
+   * Doubles the initial delay for each attempt and adds up to one initial delay of jitter, which
+   * is up to a second with the default one-second delay.
+   */
   private long calculateBackoff(int attempt) {
     long exponentialDelay = initialDelay.toMillis() * (1L << attempt);
-    long jitter = (long) (Math.random() * 1000);
+    long jitter = (long) (Math.random() * initialDelay.toMillis());
     return exponentialDelay + jitter;
   }
 }
@@ -0,0 +1,40 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.nio.charset.StandardCharsets;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Estimates how many tokens text costs in a Gemini prompt without calling the API.
+ * English text averages about four UTF-8 bytes per token; the estimate assumes three, so it
+ * errs towards too many tokens, and non-Latin scripts, which take more bytes per character but
+ * also more tokens, are not underestimated by much.
+ */
+public final class TokenEstimator {
+
+  private static final int BYTES_PER_TOKEN = 3;
+
+  /** The id, JSON framing and answer entry each tweet adds to a multi-tweet request. */
+  static final int TWEET_OVERHEAD_TOKENS = 24;
+
+  private TokenEstimator() {
+  }
+
+  /**
+   * Estimates the tokens of a piece of prompt text.
+   */
+  public static int estimate(String text) {
+    return estimateBytes(text.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  /**
+   * Estimates the tokens a tweet adds to a request, including its share of the JSON around it.
+   */
+  public static int estimate(Tweet tweet) {
+    return estimateBytes(tweet.contentLength()) + TWEET_OVERHEAD_TOKENS;
+  }
+
+  private static int estimateBytes(int bytes) {
+    return (bytes + BYTES_PER_TOKEN - 1) / BYTES_PER_TOKEN;
+  }
+}
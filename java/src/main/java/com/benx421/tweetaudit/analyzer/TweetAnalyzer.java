@@ -1,5 +1,9 @@
 package com.benx421.tweetaudit.analyzer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import com.benx421.tweetaudit.models.AnalysisResult;
 import com.benx421.tweetaudit.models.Tweet;
 
@@ -9,4 +13,35 @@ import com.benx421.tweetaudit.models.Tweet;
 public interface TweetAnalyzer {
 
   AnalysisResult analyze(Tweet tweet) throws AnalyzerException;
+
+  /**
+   * Analyzes a tweet without blocking the caller. The future fails with an
+   * {@link AnalyzerException} if the analysis does; cancelling it, or letting it time out,
+   * cancels the analysis. By default {@link #analyze(Tweet)} runs on a virtual thread, which is
+   * interrupted on cancellation.
+   */
+  default CompletableFuture<AnalysisResult> analyzeAsync(Tweet tweet) {
+    return BlockingCalls.onVirtualThread(() -> analyze(tweet));
+  }
+
+  /**
+   * Analyzes several tweets, returning one result per tweet in the order given. Analyzers that
+   * can decide many tweets in one request override this; the default analyzes them one by one.
+   */
+  default List<AnalysisResult> analyzeAll(List<Tweet> tweets) throws AnalyzerException {
+    List<AnalysisResult> results = new ArrayList<>(tweets.size());
+    for (Tweet tweet : tweets) {
+      results.add(analyze(tweet));
+    }
+    return results;
+  }
+
+  /**
+   * Returns the estimated tokens of tweets that fit in one multi-tweet request, as counted by
+   * {@link TokenEstimator#estimate(Tweet)}, or 0 if requests are not limited by tokens. The
+   * budget may change as the analyzer learns what its model accepts.
+   */
+  default int requestTokenBudget() {
+    return 0;
+  }
 }
@@ -0,0 +1,109 @@
+package com.benx421.tweetaudit.application;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import com.benx421.tweetaudit.analyzer.TweetAnalyzer;
+import com.benx421.tweetaudit.models.AnalysisResult;
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Starts analyzer calls through {@link TweetAnalyzer#analyzeAsync(Tweet)} with a bounded number
+ * in flight, so an analyzer with a truly asynchronous client holds no thread per call.
+ * Calls start in the order they are submitted; a caller blocks in {@link #submit(Tweet)} until a
+ * slot is free. The analyzer is shared by every call, so its rate limiter still spaces out the
+ * requests that reach Gemini, and a coalescing analyzer can gather concurrent calls into
+ * multi-tweet requests.
+ */
+final class AnalysisDispatcher implements AutoCloseable {
+
+  private final TweetAnalyzer analyzer;
+  private final int maxInFlight;
+  private final Semaphore slots;
+  private final Set<CompletableFuture<AnalysisResult>> running = ConcurrentHashMap.newKeySet();
+  private volatile boolean failed;
+  private volatile boolean closed;
+
+  AnalysisDispatcher(TweetAnalyzer analyzer, int maxInFlight) {
+    if (analyzer == null) {
+      throw new IllegalArgumentException("Analyzer cannot be null");
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("Max in-flight calls must be positive: " + maxInFlight);
+    }
+    this.analyzer = analyzer;
+    this.maxInFlight = maxInFlight;
+    this.slots = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Starts analyzing a tweet as soon as fewer than the maximum number of calls are in flight.
+   *
+   * @throws InterruptedException if interrupted while waiting for a free slot
+   */
+  CompletableFuture<AnalysisResult> submit(Tweet tweet) throws InterruptedException {
+    slots.acquire();
+    if (closed) {
+      slots.release();
+      throw new RejectedExecutionException("Dispatcher is closed");
+    }
+
+    CompletableFuture<AnalysisResult> call;
+    try {
+      call = analyzer.analyzeAsync(tweet);
+    } catch (RuntimeException e) {
+      failed = true;
+      slots.release();
+      throw e;
+    }
+    call.whenComplete((value, error) -> slots.release());
+    CompletableFuture<AnalysisResult> result =
+        call.whenComplete(
+            (value, error) -> {
+              if (error != null) {
+                failed = true;
+              }
+            });
+    running.add(result);
+    result.whenComplete(
+        (value, error) -> {
+          running.remove(result);
+          if (error != null) {
+            call.cancel(true);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Returns whether any call has failed, so callers can stop submitting more work.
+   */
+  boolean hasFailed() {
+    return failed;
+  }
+
+  /**
+   * Returns the number of calls currently running or about to start.
+   */
+  int inFlight() {
+    return maxInFlight - slots.availablePermits();
+  }
+
+  int maxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Cancels the calls still in flight and refuses new ones.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (CompletableFuture<AnalysisResult> call : running) {
+      call.cancel(true);
+    }
+  }
+}
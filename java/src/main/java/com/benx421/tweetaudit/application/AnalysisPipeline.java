@@ -0,0 +1,554 @@
+package com.benx421.tweetaudit.application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import com.benx421.tweetaudit.analyzer.AdaptiveGeminiClient;
+import com.benx421.tweetaudit.analyzer.TokenEstimator;
+import com.benx421.tweetaudit.config.Settings;
+import com.benx421.tweetaudit.models.AnalysisResult;
+import com.benx421.tweetaudit.models.Decision;
+import com.benx421.tweetaudit.models.Tweet;
+import com.benx421.tweetaudit.storage.CSVWriter;
+import com.benx421.tweetaudit.storage.Checkpoint;
+import com.benx421.tweetaudit.storage.DecisionIndex;
+import com.benx421.tweetaudit.storage.DecisionJournal;
+import com.benx421.tweetaudit.storage.ProgressBitmap;
+import com.benx421.tweetaudit.storage.TweetStore;
+
+/**
+ * One analysis run over the transformed tweets: reads batches, resolves or analyzes each row,
+ * and commits results and progress. The caller opens the files and the dispatcher and keeps
+ * them open across batches; the pipeline only uses them.
+ */
+final class AnalysisPipeline {
+
+  private static final Logger LOGGER = Logger.getLogger(AnalysisPipeline.class.getName());
+  private static final byte[] RETWEET_PREFIX = "RT @".getBytes(StandardCharsets.US_ASCII);
+  private static final int MIN_STAGE_QUEUE_CAPACITY = 64;
+
+  /** Most rows in a batch sized by tokens, unless {@code batchSize} is larger. */
+  static final int MAX_TOKEN_BATCH_ROWS = 5_000;
+
+  private final Settings settings;
+  private final Checkpoint checkpoint;
+  private final long analysisFingerprint;
+  private final TweetStore store;
+  private final DecisionJournal journal;
+  private final DecisionIndex decisions;
+  private final ProgressBitmap progress;
+  private final CSVWriter writer;
+  private final AnalysisDispatcher dispatcher;
+  private final AdaptiveGeminiClient adaptiveClient;
+
+  /**
+   * The progress files, results writer and decision stores one run commits to.
+   *
+   * @param analysisFingerprint identifies the model and criteria, for reusing indexed decisions
+   * @param progress the completed rows, including every row below the checkpoint
+   */
+  record RunState(
+      Checkpoint checkpoint,
+      long analysisFingerprint,
+      DecisionJournal journal,
+      DecisionIndex decisions,
+      ProgressBitmap progress,
+      CSVWriter writer) {
+  }
+
+  /**
+   * Creates a pipeline over open files.
+   *
+   * @param adaptiveClient the adaptive concurrency controller whose state is logged after each
+   *     batch, or null if adaptive concurrency is off
+   */
+  AnalysisPipeline(
+      Settings settings,
+      TweetStore store,
+      RunState state,
+      AnalysisDispatcher dispatcher,
+      AdaptiveGeminiClient adaptiveClient) {
+    this.settings = settings;
+    this.checkpoint = state.checkpoint();
+    this.analysisFingerprint = state.analysisFingerprint();
+    this.store = store;
+    this.journal = state.journal();
+    this.decisions = state.decisions();
+    this.progress = state.progress();
+    this.writer = state.writer();
+    this.dispatcher = dispatcher;
+    this.adaptiveClient = adaptiveClient;
+  }
+
+  /**
+   * Runs the analysis as three stages joined by bounded queues.
+   * <ol>
+   *   <li>The read stage, on its own platform thread, reads each batch from the transformed
+   *       tweets, skips rows already done and retweets, and resolves tweets whose decision is
+   *       already journaled or indexed. This is the CPU-bound work.
+   *   <li>The analyze stage, on a virtual thread, hands the remaining tweets to the dispatcher,
+   *       whose virtual threads build the prompt, wait on Gemini and parse the response.
+   *   <li>The commit stage, on the calling thread, writes results, journals decisions and saves
+   *       the checkpoint at the end of each batch, in row order.
+   * </ol>
+   * The read stage never looks past the rows it has handed on, so it works from a snapshot of the
+   * progress bitmap taken before the run. Because the queues are bounded, a slow writer or a slow
+   * API holds back the reader instead of letting work pile up in memory; queue depths are logged
+   * after each batch to show which stage is the bottleneck.
+   */
+  void run(int watermark, int maxBatches) throws IOException {
+    int capacity =
+        Math.max(MIN_STAGE_QUEUE_CAPACITY, 2 * settings.maxInFlight() * settings.tweetsPerRequest());
+    StageQueue<StageItem> toAnalyze = new StageQueue<>("analyze", capacity);
+    StageQueue<StageItem> toCommit = new StageQueue<>("commit", capacity);
+    ProgressBitmap done = new ProgressBitmap();
+    done.or(progress);
+
+    ExecutorService readStage = Executors.newSingleThreadExecutor();
+    ExecutorService analyzeStage = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+      readStage.execute(() -> readRows(done, watermark, maxBatches, toAnalyze));
+      analyzeStage.execute(() -> dispatchRows(toAnalyze, toCommit));
+      commitRows(maxBatches, toAnalyze, toCommit);
+    } catch (IOException e) {
+      stopStages(readStage, analyzeStage);
+      commitFinished(watermark, toCommit, e);
+      saveProgress(e);
+      throw e;
+    } finally {
+      stopStages(readStage, analyzeStage);
+    }
+  }
+
+  /**
+   * An item handed from one analysis stage to the next. Each batch is a {@link BatchStart}, a
+   * {@link RowWork} per row still to do, then a {@link BatchEnd}; a run ends with {@link EndOfRun}.
+   */
+  private sealed interface StageItem {
+  }
+
+  private record BatchStart(int startIdx, int endIdx, String totalLabel) implements StageItem {
+  }
+
+  private record BatchEnd() implements StageItem {
+  }
+
+  /**
+   * Ends a run, either after the last batch or because reading failed.
+   *
+   * @param exhausted whether the run stopped because no tweets were left
+   */
+  private record EndOfRun(int startIdx, boolean exhausted, IOException failure) implements StageItem {
+  }
+
+  /**
+   * Where a row's decision comes from.
+   */
+  private enum DecisionSource {
+    RETWEET,
+    JOURNAL,
+    INDEX,
+    ANALYZER
+  }
+
+  /**
+   * A row on its way through the stages. Rows decided by the analyzer get their result once the
+   * analyze stage has submitted them; the others carry their decision from the read stage.
+   */
+  private record RowWork(
+      int row,
+      Tweet tweet,
+      long fingerprint,
+      DecisionSource source,
+      Decision decision,
+      Future<AnalysisResult> result) implements StageItem {
+
+    RowWork withResult(Future<AnalysisResult> result) {
+      return new RowWork(row, tweet, fingerprint, source, decision, result);
+    }
+  }
+
+  /**
+   * Counts what happened to the rows of one batch.
+   */
+  private static final class BatchStats {
+    private final int startIdx;
+    private final int endIdx;
+    private final String totalLabel;
+    private int analyzed;
+    private int replayed;
+    private int reused;
+    private int deleteCandidates;
+
+    BatchStats(int startIdx, int endIdx, String totalLabel) {
+      this.startIdx = startIdx;
+      this.endIdx = endIdx;
+      this.totalLabel = totalLabel;
+    }
+  }
+
+  /**
+   * Read stage: reads up to {@code maxBatches} batches and resolves every row that needs no
+   * analyzer call.
+   */
+  private void readRows(ProgressBitmap done, int watermark, int maxBatches, StageQueue<StageItem> out) {
+    try {
+      out.put(readBatches(done, watermark, maxBatches, out));
+    } catch (InterruptedException e) {
+      // Stopped by the commit stage
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private EndOfRun readBatches(ProgressBitmap done, int watermark, int maxBatches, StageQueue<StageItem> out)
+      throws InterruptedException {
+    int startIdx = done.nextClear(watermark);
+    try {
+      for (int batches = 0; batches < maxBatches; batches++) {
+        LOGGER.info("Resuming from tweet index " + startIdx);
+        List<Tweet> batch = readBatch(startIdx);
+        if (batch.isEmpty()) {
+          return new EndOfRun(startIdx, true, null);
+        }
+
+        int endIdx = startIdx + batch.size();
+        int total = store.sizeIfKnown();
+        out.put(new BatchStart(startIdx, endIdx, total < 0 ? "unknown" : Integer.toString(total)));
+        for (int i = 0; i < batch.size(); i++) {
+          int row = startIdx + i;
+          if (!done.contains(row)) {
+            out.put(resolve(row, batch.get(i)));
+          }
+        }
+        out.put(new BatchEnd());
+        startIdx = done.nextClear(endIdx);
+      }
+      return new EndOfRun(startIdx, false, null);
+    } catch (IOException e) {
+      return new EndOfRun(startIdx, false, e);
+    } catch (RuntimeException e) {
+      LOGGER.severe("Failed to read transformed tweets: " + e.getMessage());
+      return new EndOfRun(
+          startIdx, false, new IOException("Failed to read transformed tweets: " + e.getMessage(), e));
+    }
+  }
+
+  /**
+   * Reads the batch starting at {@code startIdx}. Without a per-minute token budget a batch is
+   * {@code batchSize} rows. With one, rows are read {@code batchSize} at a time until their
+   * estimated tokens would pass a minute's budget, so a batch holds about a minute of requests
+   * and grows or shrinks with the length of its tweets. A batch never holds more than
+   * {@link #MAX_TOKEN_BATCH_ROWS} rows, or {@code batchSize} if that is larger, so a generous
+   * budget and short tweets cannot pull a huge batch into memory.
+   */
+  private List<Tweet> readBatch(int startIdx) throws IOException {
+    try {
+      if (settings.tokensPerMinute() <= 0) {
+        return store.read(startIdx, settings.batchSize());
+      }
+
+      int maxRows = Math.max(settings.batchSize(), MAX_TOKEN_BATCH_ROWS);
+      List<Tweet> batch = new ArrayList<>();
+      long tokens = 0;
+      while (true) {
+        int count = Math.min(settings.batchSize(), maxRows - batch.size());
+        List<Tweet> rows = store.read(startIdx + batch.size(), count);
+        for (Tweet tweet : rows) {
+          int cost = TokenEstimator.estimate(tweet);
+          if (!batch.isEmpty() && tokens + cost > settings.tokensPerMinute()) {
+            return batch;
+          }
+          batch.add(tweet);
+          tokens += cost;
+        }
+        if (rows.size() < count || batch.size() == maxRows) {
+          return batch;
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.severe("Failed to parse transformed tweets: " + e.getMessage());
+      throw new IOException("Failed to parse transformed tweets: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Decides a row without the analyzer where possible: retweets are skipped, a decision journaled
+   * by an earlier, interrupted run is replayed, and a tweet already decided with the same text,
+   * model and criteria, as recorded in the decision index by tweet id, reuses that decision even
+   * if it has moved to another row.
+   */
+  private RowWork resolve(int row, Tweet tweet) {
+    if (isRetweet(tweet)) {
+      return new RowWork(row, tweet, 0, DecisionSource.RETWEET, null, null);
+    }
+    Decision journaled = journal.decision(row, tweet.id());
+    if (journaled != null) {
+      return new RowWork(row, tweet, 0, DecisionSource.JOURNAL, journaled, null);
+    }
+    long fingerprint = DecisionIndex.fingerprint(analysisFingerprint, tweet);
+    Decision known = decisions.get(tweet.id(), fingerprint);
+    if (known != null) {
+      return new RowWork(row, tweet, fingerprint, DecisionSource.INDEX, known, null);
+    }
+    return new RowWork(row, tweet, fingerprint, DecisionSource.ANALYZER, null, null);
+  }
+
+  /**
+   * Analyze stage: submits the rows that need the analyzer, waiting while the dispatcher is at its
+   * in-flight limit, and passes every item on in order. Once a call has failed nothing more is
+   * submitted, and a call that cannot even be started ends the run; either way the stage closes
+   * with an {@link EndOfRun} carrying the failure, so the commit stage never waits on it forever.
+   */
+  private void dispatchRows(StageQueue<StageItem> in, StageQueue<StageItem> out) {
+    try {
+      out.put(forwardRows(in, out));
+    } catch (InterruptedException e) {
+      // Stopped by the commit stage
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private EndOfRun forwardRows(StageQueue<StageItem> in, StageQueue<StageItem> out)
+      throws InterruptedException {
+    while (true) {
+      StageItem item = in.take();
+      if (item instanceof EndOfRun end) {
+        return end;
+      }
+      if (item instanceof RowWork work && work.source() == DecisionSource.ANALYZER) {
+        if (dispatcher.hasFailed()) {
+          return new EndOfRun(work.row(), false, new IOException("Analysis stopped after a failed call"));
+        }
+        try {
+          item = work.withResult(dispatcher.submit(work.tweet()));
+        } catch (RuntimeException e) {
+          String message = "Failed to analyze tweet " + work.tweet().idString() + ": " + e.getMessage();
+          LOGGER.severe(message);
+          return new EndOfRun(work.row(), false, new IOException(message, e));
+        }
+      }
+      out.put(item);
+    }
+  }
+
+  /**
+   * Commit stage: commits rows in order and saves progress at the end of each batch. The
+   * checkpoint holds the first row not yet done; it follows each decided tweet through
+   * group-committed updates and is saved with the bitmap when a batch ends.
+   */
+  private void commitRows(
+      int maxBatches, StageQueue<StageItem> toAnalyze, StageQueue<StageItem> toCommit)
+      throws IOException {
+    BatchStats stats = null;
+    int batches = 0;
+    while (true) {
+      StageItem item = takeItem(toCommit);
+      switch (item) {
+        case BatchStart start -> {
+          stats = new BatchStats(start.startIdx(), start.endIdx(), start.totalLabel());
+          LOGGER.info(
+              String.format(
+                  "Processing batch (tweets %d-%d of %s)", start.startIdx() + 1, start.endIdx(), start.totalLabel()));
+          System.out.printf(
+              "Processing tweets %d to %d (total: %s)%n", start.startIdx(), start.endIdx() - 1, start.totalLabel());
+        }
+        case RowWork work -> {
+          try {
+            commitRow(work, stats);
+          } catch (IOException e) {
+            LOGGER.severe("Failed to write results: " + e.getMessage());
+            throw new IOException("Failed to write results: " + e.getMessage(), e);
+          }
+        }
+        case BatchEnd end -> {
+          finishBatch(stats);
+          LOGGER.info(
+              String.format(
+                  "Pipeline: %s; %s; analyzer %d/%d tweets in flight%s",
+                  toAnalyze.report(),
+                  toCommit.report(),
+                  dispatcher.inFlight(),
+                  dispatcher.maxInFlight(),
+                  adaptiveClient == null ? "" : "; " + adaptiveClient.report()));
+          batches++;
+        }
+        case EndOfRun end -> {
+          if (end.failure() != null) {
+            throw end.failure();
+          }
+          if (end.exhausted() && end.startIdx() == 0) {
+            LOGGER.warning("No tweets found to analyze");
+          } else if (end.exhausted()) {
+            LOGGER.info("All tweets already analyzed");
+            System.out.println("All tweets already analyzed");
+          }
+          if (maxBatches > 1) {
+            LOGGER.info("Run complete! Processed " + batches + " batches");
+            System.out.printf("Run complete! Processed %d batches%n", batches);
+          }
+          return;
+        }
+      }
+    }
+  }
+
+  private static StageItem takeItem(StageQueue<StageItem> queue) throws IOException {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Analysis interrupted", e);
+    }
+  }
+
+  /**
+   * Commits one row. An analyzed tweet's result row is written before its decision is journaled,
+   * so a tweet is never marked done without its result.
+   */
+  private void commitRow(RowWork work, BatchStats stats) throws IOException {
+    Decision decision = work.decision();
+    switch (work.source()) {
+      case RETWEET -> {
+      }
+      case JOURNAL -> stats.replayed++;
+      case INDEX -> stats.reused++;
+      case ANALYZER -> {
+        decision = awaitResult(work).decision();
+        stats.analyzed++;
+        if (decision == Decision.DELETE) {
+          writer.writeResult(new AnalysisResult(work.tweet().id(), decision));
+        }
+        journal.record(work.row(), work.tweet().id(), decision);
+        decisions.put(work.tweet().id(), work.fingerprint(), decision);
+      }
+    }
+    if (decision == Decision.DELETE) {
+      stats.deleteCandidates++;
+    }
+    markDone(work.row(), stats.startIdx);
+  }
+
+  private AnalysisResult awaitResult(RowWork work) throws IOException {
+    Tweet tweet = work.tweet();
+    try {
+      AnalysisResult result = work.result().get();
+      LOGGER.fine("Tweet " + tweet.idString() + ": " + result.decision());
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Analysis interrupted for tweet " + tweet.idString(), e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      LOGGER.severe("Failed to analyze tweet " + tweet.idString() + ": " + cause.getMessage());
+      throw new IOException("Failed to analyze tweet " + tweet.idString() + ": " + cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * Saves the bitmap and checkpoint at the end of a batch and drops the journal records the
+   * checkpoint now covers.
+   */
+  private void finishBatch(BatchStats stats) throws IOException {
+    try {
+      int watermark = progress.nextClear(stats.startIdx);
+      progress.save(progressPath());
+      checkpoint.save(watermark);
+      LOGGER.info("Checkpoint saved at index " + watermark);
+      journal.compact(watermark);
+    } catch (IOException e) {
+      LOGGER.severe("Error saving checkpoint: " + e.getMessage());
+      throw new IOException("Error saving checkpoint: " + e.getMessage(), e);
+    }
+
+    if (stats.replayed > 0) {
+      LOGGER.info("Reused " + stats.replayed + " decisions journaled by an earlier run");
+    }
+    if (stats.reused > 0) {
+      LOGGER.info("Reused " + stats.reused + " decisions recorded for the same tweet text and criteria");
+    }
+
+    LOGGER.info(
+        String.format(
+            "Batch complete! Analyzed %d tweets, found %d deletion candidates (%d/%s total)",
+            stats.analyzed, stats.deleteCandidates, stats.endIdx, stats.totalLabel));
+    LOGGER.info("Results written to " + settings.processedResultsPath());
+    System.out.printf(
+        "Batch complete! Processed %d tweets (%d/%s total)%n",
+        stats.endIdx - stats.startIdx, stats.endIdx, stats.totalLabel);
+  }
+
+  /**
+   * After a failure, commits the rows already queued for the commit stage that completed, so
+   * tweets Gemini has already answered are not paid for again. Calls still running are
+   * cancelled.
+   */
+  private void commitFinished(int watermark, StageQueue<StageItem> toCommit, IOException failure) {
+    BatchStats stats = new BatchStats(watermark, watermark, "unknown");
+    for (StageItem item = toCommit.poll(); item != null; item = toCommit.poll()) {
+      if (!(item instanceof RowWork work)) {
+        continue;
+      }
+      if (work.result() != null && work.result().state() != Future.State.SUCCESS) {
+        work.result().cancel(true);
+        continue;
+      }
+      try {
+        commitRow(work, stats);
+      } catch (IOException e) {
+        failure.addSuppressed(e);
+        return;
+      }
+    }
+  }
+
+  private static void stopStages(ExecutorService... stages) {
+    for (ExecutorService stage : stages) {
+      stage.shutdownNow();
+    }
+    for (ExecutorService stage : stages) {
+      stage.close();
+    }
+  }
+
+  /**
+   * Marks a row as done and moves the checkpoint to the first row still to do.
+   */
+  private void markDone(int row, int startIdx) throws IOException {
+    progress.add(row);
+    checkpoint.update(progress.nextClear(startIdx));
+  }
+
+  /**
+   * Saves the progress made before a failure, keeping the failure as the primary error.
+   */
+  private void saveProgress(Exception failure) {
+    try {
+      progress.save(progressPath());
+      checkpoint.flush();
+    } catch (IOException e) {
+      failure.addSuppressed(e);
+    }
+  }
+
+  /**
+   * Checks if a tweet is a retweet by looking for "RT @" prefix.
+   *
+   * @param tweet the tweet to check
+   * @return true if the tweet is a retweet, false otherwise
+   */
+  private static boolean isRetweet(Tweet tweet) {
+    return tweet.contentStartsWith(RETWEET_PREFIX);
+  }
+
+  private Path progressPath() {
+    return ProgressBitmap.pathFor(settings.checkpointPath());
+  }
+}
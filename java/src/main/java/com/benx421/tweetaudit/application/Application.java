@@ -1,19 +1,35 @@
 package com.benx421.tweetaudit.application;
 
 import java.io.IOException;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.logging.Logger;
 
+import com.benx421.tweetaudit.analyzer.AdaptiveGeminiClient;
+import com.benx421.tweetaudit.analyzer.CoalescingAnalyzer;
 import com.benx421.tweetaudit.analyzer.GeminiAnalyzer;
 import com.benx421.tweetaudit.analyzer.TweetAnalyzer;
+import com.benx421.tweetaudit.config.Criteria;
 import com.benx421.tweetaudit.config.Settings;
-import com.benx421.tweetaudit.models.AnalysisResult;
-import com.benx421.tweetaudit.models.Decision;
 import com.benx421.tweetaudit.models.Tweet;
+import com.benx421.tweetaudit.storage.BinaryTweetWriter;
 import com.benx421.tweetaudit.storage.CSVWriter;
 import com.benx421.tweetaudit.storage.Checkpoint;
+import com.benx421.tweetaudit.storage.DecisionIndex;
+import com.benx421.tweetaudit.storage.DecisionJournal;
 import com.benx421.tweetaudit.storage.ParserType;
+import com.benx421.tweetaudit.storage.ProgressBitmap;
+import com.benx421.tweetaudit.storage.TweetIdSet;
 import com.benx421.tweetaudit.storage.TweetParser;
+import com.benx421.tweetaudit.storage.TweetReader;
+import com.benx421.tweetaudit.storage.TweetStore;
+import com.benx421.tweetaudit.storage.TweetWriter;
 
 /**
  * Orchestrates tweet extraction and analysis workflows.
@@ -21,19 +37,27 @@ import com.benx421.tweetaudit.storage.TweetParser;
  */
 public final class Application {
 
+  /** Pass to {@link #analyzeTweets(int)} to keep going until every tweet has been analyzed. */
+  public static final int ALL_BATCHES = Integer.MAX_VALUE;
+
   private static final Logger LOGGER = Logger.getLogger(Application.class.getName());
 
   private final TweetAnalyzer analyzer;
+  private final AdaptiveGeminiClient adaptiveClient;
   private final Settings settings;
   private final Checkpoint checkpoint;
+  private final long analysisFingerprint;
 
   public Application(Settings settings) {
     if (settings == null) {
       throw new IllegalArgumentException("Settings cannot be null");
     }
+    GeminiAnalyzer geminiAnalyzer = GeminiAnalyzer.fromSettings(settings);
     this.settings = settings;
-    this.analyzer = GeminiAnalyzer.fromSettings(settings);
+    this.analyzer = geminiAnalyzer;
+    this.adaptiveClient = geminiAnalyzer.adaptiveClient().orElse(null);
     this.checkpoint = new Checkpoint(settings.checkpointPath());
+    this.analysisFingerprint = analysisFingerprint(settings);
   }
 
   // Package-private constructor for testing with mock analyzer
@@ -46,163 +70,430 @@ public final class Application {
     }
     this.settings = settings;
     this.analyzer = analyzer;
+    this.adaptiveClient = null;
     this.checkpoint = new Checkpoint(settings.checkpointPath());
+    this.analysisFingerprint = analysisFingerprint(settings);
   }
 
   /**
-   * Parses the Twitter archive JSON and exports tweets to CSV format.
+   * Parses the Twitter archive and exports tweets to the transformed tweets file.
    * This is the first step in the workflow, transforming raw archive data into a processable
-   * format.
+   * format. The archive may be a JSON array, an archive {@code tweets.js} data file, the
+   * archive's data directory holding {@code tweets.js} and {@code tweets-partN.js}, or the
+   * downloaded archive ZIP itself, which is read in place without extracting media. The output is
+   * an indexed CSV, or the binary columnar format when the transformed path ends in {@code .bin}.
+   * Tweets are streamed from the archive straight into the output, so memory use does not grow
+   * with archive size. The output is written to a temporary file and moved into place only once
+   * the whole archive has been read, leaving any previous output intact on failure.
+   * The ids of the extracted tweets are saved next to the output for later incremental extracts.
    *
    * @throws IOException if an I/O error occurs during parsing or writing
    */
   public void extractTweets() throws IOException {
+    extractTweets(false);
+  }
+
+  /**
+   * Parses the Twitter archive into the transformed tweets file, optionally incrementally.
+   * An incremental extract keeps every row already in the transformed file where it is and
+   * appends only tweets whose ids were not extracted before, so the analysis checkpoint stays
+   * valid and only the new tweets are left to analyze. Without an existing transformed file it
+   * behaves like a full extract.
+   *
+   * @param incremental whether to append unseen tweets instead of rewriting the file
+   * @throws IOException if an I/O error occurs during parsing or writing
+   */
+  public void extractTweets(boolean incremental) throws IOException {
     LOGGER.info("Reading tweets from " + settings.tweetsArchivePath());
-    TweetParser parser = new TweetParser(settings.tweetsArchivePath(), ParserType.JSON);
+    TweetParser parser =
+        new TweetParser(
+            settings.tweetsArchivePath(),
+            ParserType.fromPath(settings.tweetsArchivePath()),
+            settings.parseThreads());
 
-    List<Tweet> tweets;
+    Path outputPath = Paths.get(settings.transformedTweetsPath()).normalize();
+    if (incremental && Files.exists(outputPath)) {
+      appendNewTweets(parser, outputPath);
+      return;
+    }
+
+    Path tempPath = outputPath.resolveSibling(outputPath.getFileName() + ".tmp");
+    Path indexPath = CSVWriter.indexPath(outputPath);
+    Path tempIndexPath = CSVWriter.indexPath(tempPath);
+    Path idsPath = TweetIdSet.pathFor(outputPath);
+    Path tempIdsPath = TweetIdSet.pathFor(tempPath);
+
+    int count = 0;
+    TweetIdSet ids = new TweetIdSet();
     try {
-      tweets = parser.parse();
+      try (TweetReader reader = openArchive(parser);
+          TweetWriter writer = TweetWriter.create(tempPath.toString(), transformedFormat())) {
+        for (Tweet tweet = nextTweet(reader); tweet != null; tweet = nextTweet(reader)) {
+          writer.writeTweet(tweet);
+          ids.add(tweet.id());
+          count++;
+        }
+      }
+      ids.setRowCount(count);
+      ids.save(tempIdsPath);
+    } catch (ArchiveParseException e) {
+      deleteAll(tempPath, tempIndexPath, tempIdsPath);
+      throw e;
     } catch (IOException e) {
-      LOGGER.severe(
-          "Failed to parse tweets from "
-              + settings.tweetsArchivePath()
-              + ": "
-              + e.getMessage());
-      throw new IOException(
-          "Failed to parse tweets from "
-              + settings.tweetsArchivePath()
-              + " (file may not be valid JSON): "
-              + e.getMessage(),
-          e);
-    }
-
-    LOGGER.info("Extracted " + tweets.size() + " tweets, writing to CSV");
-
-    try (CSVWriter writer = CSVWriter.create(settings.transformedTweetsPath(), false)) {
-      writer.writeTweets(tweets);
+      deleteAll(tempPath, tempIndexPath, tempIdsPath);
+      LOGGER.severe("Error writing transformed tweets: " + e.getMessage());
+      throw new IOException("Error writing transformed tweets: " + e.getMessage(), e);
+    }
+
+    boolean rowsMoved = Files.exists(outputPath) && !keepsExistingRows(outputPath, tempPath);
+
+    try {
+      Files.move(tempPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      if (Files.exists(tempIndexPath)) {
+        Files.move(
+            tempIndexPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      Files.move(tempIdsPath, idsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     } catch (IOException e) {
-      LOGGER.severe("Error writing tweets to CSV: " + e.getMessage());
-      throw new IOException("Error writing tweets to CSV: " + e.getMessage(), e);
+      LOGGER.severe("Error writing transformed tweets: " + e.getMessage());
+      throw new IOException("Error writing transformed tweets: " + e.getMessage(), e);
+    }
+
+    if (rowsMoved) {
+      resetRowProgress();
     }
 
     LOGGER.info(
         "Successfully wrote "
-            + tweets.size()
+            + count
             + " tweets to "
             + settings.transformedTweetsPath());
-    System.out.printf("Extracted %d tweets to %s%n", tweets.size(), settings.transformedTweetsPath());
+    System.out.printf("Extracted %d tweets to %s%n", count, settings.transformedTweetsPath());
+  }
+
+  /**
+   * Converts the transformed tweets CSV into the binary columnar format.
+   *
+   * @param binaryPath where to write the binary file; use it as TRANSFORMED_TWEETS_PATH afterwards
+   * @throws IOException if the CSV cannot be read or the binary file cannot be written
+   */
+  public void convertTweets(String binaryPath) throws IOException {
+    LOGGER.info("Converting " + settings.transformedTweetsPath() + " to " + binaryPath);
+
+    int count;
+    try {
+      count = BinaryTweetWriter.convertCsv(settings.transformedTweetsPath(), binaryPath);
+    } catch (IOException e) {
+      LOGGER.severe("Failed to convert transformed tweets: " + e.getMessage());
+      throw new IOException("Failed to convert transformed tweets: " + e.getMessage(), e);
+    }
+
+    LOGGER.info("Successfully converted " + count + " tweets to " + binaryPath);
+    System.out.printf("Converted %d tweets to %s%n", count, binaryPath);
   }
 
   /**
    * Processes one batch of tweets using the Gemini analyzer.
    * Resumes from the last checkpoint, analyzes batchSize tweets, writes flagged results,
-   * and saves progress.
+   * and saves progress. Binary files and CSVs with a current offset index read only the rows in
+   * the batch; other CSVs are read up to the end of the batch and no further.
    *
    * @throws IOException if an I/O error occurs during analysis
    */
   public void analyzeTweets() throws IOException {
+    analyzeTweets(1);
+  }
+
+  /**
+   * Processes up to {@code maxBatches} batches in one run. The transformed tweets, analyzer,
+   * results writer and progress files stay open across batches, and progress is checkpointed
+   * after each batch exactly as in single-batch runs, so stopping the run at any point loses at
+   * most the tweet in flight.
+   *
+   * @param maxBatches the most batches to process, or {@link #ALL_BATCHES} to run until every
+   *     tweet has been analyzed
+   * @throws IOException if an I/O error occurs during analysis
+   */
+  public void analyzeTweets(int maxBatches) throws IOException {
+    if (maxBatches < 1) {
+      throw new IllegalArgumentException("Max batches must be positive: " + maxBatches);
+    }
+
     LOGGER.info("Loading tweets from " + settings.transformedTweetsPath());
-    List<Tweet> tweets;
+    TweetStore store;
     try {
-      tweets = parseTransformedTweets();
+      store = TweetStore.open(settings.transformedTweetsPath());
     } catch (IOException e) {
       LOGGER.severe("Failed to parse transformed tweets: " + e.getMessage());
       throw new IOException("Failed to parse transformed tweets: " + e.getMessage(), e);
     }
 
-    if (tweets.isEmpty()) {
-      LOGGER.warning("No tweets found to analyze");
-      return;
+    try (store) {
+      analyzeBatches(store, maxBatches);
     }
+  }
 
-    LOGGER.info("Loaded " + tweets.size() + " tweets for analysis");
-
-    int startIdx;
+  private void analyzeBatches(TweetStore store, int maxBatches) throws IOException {
+    ProgressBitmap progress;
+    int watermark;
     try {
-      startIdx = checkpoint.load();
+      watermark = checkpoint.load();
+      progress = ProgressBitmap.load(progressPath());
+      progress.addRange(0, watermark);
     } catch (IOException e) {
       LOGGER.severe("Failed to load checkpoint: " + e.getMessage());
       throw new IOException("Failed to load checkpoint: " + e.getMessage(), e);
     }
 
-    LOGGER.info("Resuming from tweet index " + startIdx);
-
-    if (startIdx >= tweets.size()) {
-      LOGGER.info("All tweets already analyzed");
-      System.out.println("All tweets already analyzed");
-      return;
+    DecisionJournal journal;
+    try {
+      journal = DecisionJournal.open(DecisionJournal.pathFor(settings.checkpointPath()), watermark);
+    } catch (IOException e) {
+      LOGGER.severe("Failed to load decision journal: " + e.getMessage());
+      throw new IOException("Failed to load decision journal: " + e.getMessage(), e);
     }
 
-    int endIdx = Math.min(startIdx + settings.batchSize(), tweets.size());
+    try (journal) {
+      DecisionIndex decisions;
+      try {
+        decisions = DecisionIndex.open(DecisionIndex.pathFor(settings.checkpointPath()));
+      } catch (IOException e) {
+        LOGGER.severe("Failed to load decision index: " + e.getMessage());
+        throw new IOException("Failed to load decision index: " + e.getMessage(), e);
+      }
 
-    LOGGER.info(
-        String.format(
-            "Processing batch (tweets %d-%d of %d)", startIdx + 1, endIdx, tweets.size()));
-    System.out.printf("Processing tweets %d to %d (total: %d)%n", startIdx, endIdx - 1, tweets.size());
+      try (decisions;
+          CSVWriter writer =
+              CSVWriter.create(settings.processedResultsPath(), true, settings.tweetUrlPrefix());
+          AnalysisDispatcher dispatcher =
+              new AnalysisDispatcher(requestAnalyzer(), settings.maxInFlight() * settings.tweetsPerRequest())) {
+        AnalysisPipeline.RunState state =
+            new AnalysisPipeline.RunState(checkpoint, analysisFingerprint, journal, decisions, progress, writer);
+        AnalysisPipeline pipeline = new AnalysisPipeline(settings, store, state, dispatcher, adaptiveClient);
+        pipeline.run(watermark, maxBatches);
+      }
+    }
+  }
 
-    int analyzedCount = 0;
-    int deleteCandidates = 0;
+  /**
+   * Checks whether the rows of the previous transformed file are still the first rows of the new
+   * one, in which case row-based progress still points at the right tweets. Only the id columns
+   * are compared; no tweet text is decoded from binary files.
+   */
+  private boolean keepsExistingRows(Path previousPath, Path newPath) {
+    try (TweetStore previous = TweetStore.open(previousPath.toString(), transformedFormat());
+        TweetStore current = TweetStore.open(newPath.toString(), transformedFormat())) {
+      int rows = current.size();
+      return previous.forEachId((row, id) -> row < rows && current.id(row) == id);
+    } catch (IOException e) {
+      LOGGER.warning("Could not compare with previous transformed tweets: " + e.getMessage());
+      return false;
+    }
+  }
 
-    try (CSVWriter writer = CSVWriter.create(settings.processedResultsPath(), true)) {
-      for (int i = startIdx; i < endIdx; i++) {
-        Tweet tweet = tweets.get(i);
+  /**
+   * Clears the row-based checkpoint, progress bitmap and journal after the transformed rows have
+   * moved. Analysis then walks the file from the first row again, and tweets already decided are
+   * answered from the decision index instead of the analyzer.
+   */
+  private void resetRowProgress() throws IOException {
+    if (!checkpoint.exists() && !Files.exists(progressPath())) {
+      return;
+    }
+    LOGGER.info("Transformed tweet rows have moved; restarting analysis from decisions recorded by tweet id");
+    try {
+      checkpoint.reset();
+      Files.deleteIfExists(progressPath());
+      Files.deleteIfExists(DecisionJournal.pathFor(settings.checkpointPath()));
+    } catch (IOException e) {
+      LOGGER.severe("Error resetting checkpoint: " + e.getMessage());
+      throw new IOException("Error resetting checkpoint: " + e.getMessage(), e);
+    }
+  }
 
-        if (isRetweet(tweet)) {
-          continue;
-        }
+  /**
+   * Appends the archive's unseen tweets to the existing transformed file. The unseen tweets are
+   * streamed into a temporary file first and only appended once the whole archive has been read,
+   * so a malformed archive leaves the output untouched without holding the new tweets in memory.
+   */
+  private void appendNewTweets(TweetParser parser, Path outputPath) throws IOException {
+    TweetIdSet ids;
+    try {
+      ids = loadExtractedIds(outputPath);
+    } catch (IOException e) {
+      LOGGER.severe("Failed to read existing transformed tweets: " + e.getMessage());
+      throw new IOException("Failed to read existing transformed tweets: " + e.getMessage(), e);
+    }
 
-        AnalysisResult result;
-        try {
-          result = analyzer.analyze(tweet);
-          analyzedCount++;
-          LOGGER.fine("Tweet " + tweet.id() + ": " + result.decision());
-        } catch (Exception e) {
-          LOGGER.severe("Failed to analyze tweet " + tweet.id() + ": " + e.getMessage());
-          throw new IOException("Failed to analyze tweet " + tweet.id() + ": " + e.getMessage(), e);
+    Path newPath = outputPath.resolveSibling(outputPath.getFileName() + ".new.tmp");
+    Path idsPath = TweetIdSet.pathFor(outputPath);
+    Path tempIdsPath = TweetIdSet.pathFor(outputPath.resolveSibling(outputPath.getFileName() + ".tmp"));
+    int unseen = 0;
+    int alreadyExtracted = 0;
+    try {
+      try (TweetReader reader = openArchive(parser);
+          TweetWriter writer = TweetWriter.create(newPath.toString(), transformedFormat())) {
+        for (Tweet tweet = nextTweet(reader); tweet != null; tweet = nextTweet(reader)) {
+          if (ids.add(tweet.id())) {
+            writer.writeTweet(tweet);
+            unseen++;
+          } else {
+            alreadyExtracted++;
+          }
         }
+      }
 
-        if (result.decision() == Decision.DELETE) {
-          deleteCandidates++;
-          writer.writeResult(result);
+      if (unseen > 0) {
+        try (TweetReader reader = new TweetParser(newPath.toString(), transformedFormat()).open();
+            TweetWriter writer = TweetWriter.append(outputPath.toString(), transformedFormat())) {
+          for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+            writer.writeTweet(tweet);
+          }
         }
       }
+      ids.setRowCount(ids.rowCount() + unseen);
+      ids.save(tempIdsPath);
+      Files.move(tempIdsPath, idsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (ArchiveParseException e) {
+      throw e;
     } catch (IOException e) {
-      LOGGER.severe("Failed to write results: " + e.getMessage());
-      throw new IOException("Failed to write results: " + e.getMessage(), e);
+      Files.deleteIfExists(tempIdsPath);
+      LOGGER.severe("Error writing transformed tweets: " + e.getMessage());
+      throw new IOException("Error writing transformed tweets: " + e.getMessage(), e);
+    } finally {
+      deleteAll(newPath, CSVWriter.indexPath(newPath));
     }
 
+    LOGGER.info(
+        "Appended "
+            + unseen
+            + " new tweets to "
+            + settings.transformedTweetsPath()
+            + " ("
+            + alreadyExtracted
+            + " already extracted)");
+    System.out.printf(
+        "Extracted %d new tweets to %s (%d already extracted)%n",
+        unseen, settings.transformedTweetsPath(), alreadyExtracted);
+  }
+
+  /**
+   * Loads the ids already in the transformed file from the saved id set, or rebuilds them from
+   * the file itself when the id set is missing or does not match the file.
+   */
+  private TweetIdSet loadExtractedIds(Path outputPath) throws IOException {
+    try (TweetStore store = TweetStore.open(outputPath.toString(), transformedFormat())) {
+      int rows = store.size();
+      Path idsPath = TweetIdSet.pathFor(outputPath);
+      if (Files.exists(idsPath)) {
+        try {
+          TweetIdSet ids = TweetIdSet.load(idsPath);
+          if (ids.rowCount() == rows) {
+            return ids;
+          }
+          LOGGER.warning("Extracted tweet ids are out of date; rebuilding from " + outputPath);
+        } catch (IOException e) {
+          LOGGER.warning("Ignoring unreadable extracted tweet ids: " + e.getMessage());
+        }
+      }
+
+      TweetIdSet ids = new TweetIdSet();
+      store.forEachId(
+          (row, id) -> {
+            ids.add(id);
+            return true;
+          });
+      ids.setRowCount(rows);
+      return ids;
+    }
+  }
+
+  /**
+   * Identifies the model and criteria decisions are made with, so that decisions made under
+   * different settings are not reused.
+   */
+  private static long analysisFingerprint(Settings settings) {
+    Criteria criteria = settings.criteria();
+    String key =
+        String.join(
+            "\u0000",
+            settings.geminiModel(),
+            String.join("\u0001", criteria.forbiddenWords()),
+            String.join("\u0001", criteria.topicsToExclude()),
+            String.join("\u0001", criteria.toneRequirements()),
+            criteria.additionalInstructions());
     try {
-      checkpoint.save(endIdx);
-      LOGGER.info("Checkpoint saved at index " + endIdx);
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(digest).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Returns the analyzer the dispatcher calls one tweet at a time. With more than one tweet per
+   * request, concurrent calls are coalesced into multi-tweet requests, and enough calls are let
+   * in flight to fill {@code MAX_IN_FLIGHT} requests.
+   */
+  private TweetAnalyzer requestAnalyzer() {
+    if (settings.tweetsPerRequest() == 1) {
+      return analyzer;
+    }
+    return new CoalescingAnalyzer(analyzer, settings.tweetsPerRequest(), settings.requestWindow());
+  }
+
+  private Path progressPath() {
+    return ProgressBitmap.pathFor(settings.checkpointPath());
+  }
+
+  private static void deleteAll(Path... paths) throws IOException {
+    for (Path path : paths) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private ParserType transformedFormat() {
+    return ParserType.fromPath(settings.transformedTweetsPath()) == ParserType.BINARY
+        ? ParserType.BINARY
+        : ParserType.CSV;
+  }
+
+  private TweetReader openArchive(TweetParser parser) throws ArchiveParseException {
+    try {
+      return parser.open();
     } catch (IOException e) {
-      LOGGER.severe("Error saving checkpoint: " + e.getMessage());
-      throw new IOException("Error saving checkpoint: " + e.getMessage(), e);
+      throw archiveParseFailure(e);
     }
+  }
 
-    LOGGER.info(
-        String.format(
-            "Batch complete! Analyzed %d tweets, found %d deletion candidates (%d/%d total)",
-            analyzedCount, deleteCandidates, endIdx, tweets.size()));
-    LOGGER.info("Results written to " + settings.processedResultsPath());
-    System.out.printf(
-        "Batch complete! Processed %d tweets (%d/%d total)%n",
-        endIdx - startIdx, endIdx, tweets.size());
+  private Tweet nextTweet(TweetReader reader) throws ArchiveParseException {
+    try {
+      return reader.next();
+    } catch (IOException e) {
+      throw archiveParseFailure(e);
+    }
   }
 
-  private List<Tweet> parseTransformedTweets() throws IOException {
-    TweetParser parser = new TweetParser(settings.transformedTweetsPath(), ParserType.CSV);
-    return parser.parse();
+  private ArchiveParseException archiveParseFailure(IOException e) {
+    LOGGER.severe(
+        "Failed to parse tweets from "
+            + settings.tweetsArchivePath()
+            + ": "
+            + e.getMessage());
+    return new ArchiveParseException(
+        "Failed to parse tweets from "
+            + settings.tweetsArchivePath()
+            + " (file may not be valid JSON): "
+            + e.getMessage(),
+        e);
   }
 
   /**
-   * Checks if a tweet is a retweet by looking for "RT @" prefix.
-   *
-   * @param tweet the tweet to check
-   * @return true if the tweet is a retweet, false otherwise
+   * Distinguishes archive parse failures from output write failures while streaming.
    */
-  private static boolean isRetweet(Tweet tweet) {
-    String content = tweet.content();
-    return content != null && content.startsWith("RT @");
+  private static final class ArchiveParseException extends IOException {
+    ArchiveParseException(String message, Throwable cause) {
+      super(message, cause);
+    }
   }
 }
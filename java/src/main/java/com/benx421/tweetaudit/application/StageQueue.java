@@ -0,0 +1,101 @@
+package com.benx421.tweetaudit.application;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded queue between two stages of the analysis pipeline.
+ * A full queue blocks the stage feeding it, so a slow stage holds back every stage before it.
+ * The queue samples its depth on every put and times how long each side waits, which points at
+ * the bottleneck: a queue that stays full is drained by the slowest stage, one that stays empty is
+ * fed by it.
+ */
+final class StageQueue<T> {
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final String name;
+  private final int capacity;
+  private final BlockingQueue<T> queue;
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder depthTotal = new LongAdder();
+  private final AtomicInteger peakDepth = new AtomicInteger();
+  private final LongAdder producerWaitNanos = new LongAdder();
+  private final LongAdder consumerWaitNanos = new LongAdder();
+
+  StageQueue(String name, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.name = name;
+    this.capacity = capacity;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Adds an item, waiting while the queue is full.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  void put(T item) throws InterruptedException {
+    if (!queue.offer(item)) {
+      long start = System.nanoTime();
+      queue.put(item);
+      producerWaitNanos.add(System.nanoTime() - start);
+    }
+    int depth = queue.size();
+    puts.increment();
+    depthTotal.add(depth);
+    peakDepth.accumulateAndGet(depth, Math::max);
+  }
+
+  /**
+   * Removes the next item, waiting while the queue is empty.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  T take() throws InterruptedException {
+    T item = queue.poll();
+    if (item == null) {
+      long start = System.nanoTime();
+      item = queue.take();
+      consumerWaitNanos.add(System.nanoTime() - start);
+    }
+    return item;
+  }
+
+  /**
+   * Removes the next item, or returns null if the queue is empty.
+   */
+  T poll() {
+    return queue.poll();
+  }
+
+  int depth() {
+    return queue.size();
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Summarizes the queue since the previous report and starts a new reporting interval.
+   */
+  String report() {
+    long samples = puts.sumThenReset();
+    long total = depthTotal.sumThenReset();
+    double averageDepth = samples == 0 ? 0 : (double) total / samples;
+    return String.format(
+        "%s queue %d/%d (avg %.1f, peak %d, producer waited %.0f ms, consumer waited %.0f ms)",
+        name,
+        queue.size(),
+        capacity,
+        averageDepth,
+        peakDepth.getAndSet(0),
+        producerWaitNanos.sumThenReset() / NANOS_PER_MILLI,
+        consumerWaitNanos.sumThenReset() / NANOS_PER_MILLI);
+  }
+}
@@ -0,0 +1,15 @@
+package com.benx421.tweetaudit.config;
+
+/**
+ * Exception thrown when a configuration value is malformed or out of range.
+ */
+public class ConfigException extends RuntimeException {
+
+  public ConfigException(String message) {
+    super(message);
+  }
+
+  public ConfigException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -6,6 +6,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.UnaryOperator;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
@@ -18,9 +21,15 @@ public final class ConfigLoader {
 
   private static final String DEFAULT_CONFIG_FILE = "config.json";
   private final Gson gson;
+  private final UnaryOperator<String> environment;
 
   public ConfigLoader() {
+    this(System::getenv);
+  }
+
+  ConfigLoader(UnaryOperator<String> environment) {
     this.gson = new Gson();
+    this.environment = environment;
   }
 
   public Settings load() {
@@ -47,6 +56,18 @@ public final class ConfigLoader {
     getEnv("BATCH_SIZE").ifPresent(value -> builder.batchSize(Integer.parseInt(value)));
     getEnv("RATE_LIMIT_SECONDS")
         .ifPresent(value -> builder.rateLimitDelay(Duration.ofMillis((long) (Double.parseDouble(value) * 1000))));
+    getIntEnv("PARSE_THREADS", 1, Integer.MAX_VALUE).ifPresent(builder::parseThreads);
+    getIntEnv("MAX_IN_FLIGHT", 1, Integer.MAX_VALUE).ifPresent(builder::maxInFlight);
+    getIntEnv("TWEETS_PER_REQUEST", 1, Integer.MAX_VALUE).ifPresent(builder::tweetsPerRequest);
+    getIntEnv("MAX_REQUEST_TOKENS", 0, Integer.MAX_VALUE).ifPresent(builder::maxRequestTokens);
+    getIntEnv("TOKENS_PER_MINUTE", 0, Integer.MAX_VALUE).ifPresent(builder::tokensPerMinute);
+    getIntEnv("REQUESTS_PER_MINUTE", 0, Integer.MAX_VALUE).ifPresent(builder::requestsPerMinute);
+    getIntEnv("REQUESTS_PER_DAY", 0, Integer.MAX_VALUE).ifPresent(builder::requestsPerDay);
+    getEnv("ADAPTIVE_CONCURRENCY").ifPresent(value -> builder.adaptiveConcurrency(Boolean.parseBoolean(value)));
+    getIntEnv("HEDGE_PERCENTILE", 0, 99).ifPresent(builder::hedgePercentile);
+    getIntEnv("HEDGE_BUDGET_PERCENT", 0, 100).ifPresent(builder::hedgeBudgetPercent);
+    getIntEnv("REQUEST_WINDOW_MS", 0, Integer.MAX_VALUE)
+        .ifPresent(millis -> builder.requestWindow(Duration.ofMillis(millis)));
     getEnv("TWEETS_ARCHIVE_PATH").ifPresent(builder::tweetsArchivePath);
     getEnv("TRANSFORMED_TWEETS_PATH").ifPresent(builder::transformedTweetsPath);
     getEnv("CHECKPOINT_PATH").ifPresent(builder::checkpointPath);
@@ -79,9 +100,31 @@ public final class ConfigLoader {
     }
   }
 
-  private java.util.Optional<String> getEnv(String key) {
-    String value = System.getenv(key);
-    return value != null && !value.isBlank() ? java.util.Optional.of(value) : java.util.Optional.empty();
+  private Optional<String> getEnv(String key) {
+    String value = environment.apply(key);
+    return value != null && !value.isBlank() ? Optional.of(value) : Optional.empty();
+  }
+
+  /**
+   * Reads a whole number from the environment, failing at load time with the variable's name if
+   * it is malformed or outside {@code [min, max]}.
+   */
+  private OptionalInt getIntEnv(String key, int min, int max) {
+    Optional<String> value = getEnv(key);
+    if (value.isEmpty()) {
+      return OptionalInt.empty();
+    }
+    int parsed;
+    try {
+      parsed = Integer.parseInt(value.get().strip());
+    } catch (NumberFormatException e) {
+      throw new ConfigException(key + " must be a whole number, got: " + value.get(), e);
+    }
+    if (parsed < min || parsed > max) {
+      String range = max == Integer.MAX_VALUE ? "at least " + min : "between " + min + " and " + max;
+      throw new ConfigException(key + " must be " + range + ", got: " + parsed);
+    }
+    return OptionalInt.of(parsed);
   }
 
   private static final class ConfigFile {
@@ -17,6 +17,17 @@ public final class Settings {
   private final String geminiModel;
   private final int batchSize;
   private final Duration rateLimitDelay;
+  private final int parseThreads;
+  private final int maxInFlight;
+  private final int tweetsPerRequest;
+  private final Duration requestWindow;
+  private final int maxRequestTokens;
+  private final int tokensPerMinute;
+  private final int requestsPerMinute;
+  private final int requestsPerDay;
+  private final boolean adaptiveConcurrency;
+  private final int hedgePercentile;
+  private final int hedgeBudgetPercent;
   private final Criteria criteria;
 
   private Settings(Builder builder) {
@@ -30,6 +41,17 @@ public final class Settings {
     this.geminiModel = builder.geminiModel;
     this.batchSize = builder.batchSize;
     this.rateLimitDelay = builder.rateLimitDelay;
+    this.parseThreads = builder.parseThreads;
+    this.maxInFlight = builder.maxInFlight;
+    this.tweetsPerRequest = builder.tweetsPerRequest;
+    this.requestWindow = builder.requestWindow;
+    this.maxRequestTokens = builder.maxRequestTokens;
+    this.tokensPerMinute = builder.tokensPerMinute;
+    this.requestsPerMinute = builder.requestsPerMinute;
+    this.requestsPerDay = builder.requestsPerDay;
+    this.adaptiveConcurrency = builder.adaptiveConcurrency;
+    this.hedgePercentile = builder.hedgePercentile;
+    this.hedgeBudgetPercent = builder.hedgeBudgetPercent;
     this.criteria = builder.criteria;
   }
 
@@ -77,12 +99,95 @@ public final class Settings {
     return rateLimitDelay;
   }
 
+  public int parseThreads() {
+    return parseThreads;
+  }
+
+  /**
+   * Returns how many Gemini requests may be in flight at once during analysis.
+   */
+  public int maxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Returns how many tweets are packed into each Gemini request.
+   */
+  public int tweetsPerRequest() {
+    return tweetsPerRequest;
+  }
+
+  /**
+   * Returns how long a multi-tweet request waits for more tweets before it is sent part full.
+   */
+  public Duration requestWindow() {
+    return requestWindow;
+  }
+
+  /**
+   * Returns the most estimated prompt tokens per Gemini request, or 0 for no limit.
+   */
+  public int maxRequestTokens() {
+    return maxRequestTokens;
+  }
+
+  /**
+   * Returns the most estimated prompt tokens sent to Gemini per minute, or 0 for no limit.
+   */
+  public int tokensPerMinute() {
+    return tokensPerMinute;
+  }
+
+  /**
+   * Returns the most Gemini requests per minute, or 0 for no limit.
+   */
+  public int requestsPerMinute() {
+    return requestsPerMinute;
+  }
+
+  /**
+   * Returns the most Gemini requests per day, or 0 for no limit.
+   */
+  public int requestsPerDay() {
+    return requestsPerDay;
+  }
+
+  /**
+   * Returns whether the number of concurrent Gemini requests adapts to rate limit errors and
+   * latency, with {@link #maxInFlight()} as its ceiling.
+   */
+  public boolean adaptiveConcurrency() {
+    return adaptiveConcurrency;
+  }
+
+  /**
+   * Returns the percentile of recent Gemini latency after which a request is sent again, or 0
+   * to never hedge.
+   */
+  public int hedgePercentile() {
+    return hedgePercentile;
+  }
+
+  /**
+   * Returns the most hedged requests as a percentage of all requests.
+   */
+  public int hedgeBudgetPercent() {
+    return hedgeBudgetPercent;
+  }
+
   public Criteria criteria() {
     return criteria;
   }
 
+  /**
+   * Returns the part of a tweet URL that precedes the tweet id.
+   */
+  public String tweetUrlPrefix() {
+    return baseTwitterUrl + "/" + username + "/status/";
+  }
+
   public String tweetUrl(String tweetId) {
-    return baseTwitterUrl + "/" + username + "/status/" + tweetId;
+    return tweetUrlPrefix() + tweetId;
   }
 
   public static final class Builder {
@@ -96,6 +201,17 @@ public final class Settings {
     private String geminiModel = "gemini-2.5-flash";
     private int batchSize = 10;
     private Duration rateLimitDelay = Duration.ofSeconds(1);
+    private int parseThreads = Runtime.getRuntime().availableProcessors();
+    private int maxInFlight = 1;
+    private int tweetsPerRequest = 1;
+    private Duration requestWindow = Duration.ofMillis(100);
+    private int maxRequestTokens = 0;
+    private int tokensPerMinute = 0;
+    private int requestsPerMinute = 0;
+    private int requestsPerDay = 0;
+    private boolean adaptiveConcurrency = false;
+    private int hedgePercentile = 0;
+    private int hedgeBudgetPercent = 5;
     private Criteria criteria = Criteria.defaults();
 
     public Builder tweetsArchivePath(String path) {
@@ -148,6 +264,61 @@ public final class Settings {
       return this;
     }
 
+    public Builder parseThreads(int threads) {
+      this.parseThreads = threads;
+      return this;
+    }
+
+    public Builder maxInFlight(int requests) {
+      this.maxInFlight = requests;
+      return this;
+    }
+
+    public Builder tweetsPerRequest(int tweets) {
+      this.tweetsPerRequest = tweets;
+      return this;
+    }
+
+    public Builder requestWindow(Duration window) {
+      this.requestWindow = window;
+      return this;
+    }
+
+    public Builder maxRequestTokens(int tokens) {
+      this.maxRequestTokens = tokens;
+      return this;
+    }
+
+    public Builder tokensPerMinute(int tokens) {
+      this.tokensPerMinute = tokens;
+      return this;
+    }
+
+    public Builder requestsPerMinute(int requests) {
+      this.requestsPerMinute = requests;
+      return this;
+    }
+
+    public Builder requestsPerDay(int requests) {
+      this.requestsPerDay = requests;
+      return this;
+    }
+
+    public Builder adaptiveConcurrency(boolean adaptive) {
+      this.adaptiveConcurrency = adaptive;
+      return this;
+    }
+
+    public Builder hedgePercentile(int percentile) {
+      this.hedgePercentile = percentile;
+      return this;
+    }
+
+    public Builder hedgeBudgetPercent(int percent) {
+      this.hedgeBudgetPercent = percent;
+      return this;
+    }
+
     public Builder criteria(Criteria criteria) {
       this.criteria = criteria;
       return this;
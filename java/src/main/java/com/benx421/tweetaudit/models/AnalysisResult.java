@@ -2,21 +2,18 @@ package com.benx421.tweetaudit.models;
 
 /**
  * The analysis result for a single tweet.
+ * Only the tweet id is kept; the tweet URL is rendered when the result is written.
  */
-public record AnalysisResult(String tweetUrl, Decision decision) {
+public record AnalysisResult(long tweetId, Decision decision) {
 
   public AnalysisResult {
-    if (tweetUrl == null || tweetUrl.isBlank()) {
-      throw new IllegalArgumentException("Tweet URL cannot be null or blank");
-    }
-    tweetUrl = tweetUrl.trim();
     if (decision == null) {
       decision = Decision.KEEP;
     }
   }
 
-  public AnalysisResult(String tweetUrl) {
-    this(tweetUrl, Decision.KEEP);
+  public AnalysisResult(long tweetId) {
+    this(tweetId, Decision.KEEP);
   }
 
   public boolean shouldDelete() {
@@ -27,16 +24,16 @@ public record AnalysisResult(String tweetUrl, Decision decision) {
     return decision == Decision.KEEP;
   }
 
-  public static AnalysisResult forDeletion(String tweetUrl) {
-    return new AnalysisResult(tweetUrl, Decision.DELETE);
+  public static AnalysisResult forDeletion(long tweetId) {
+    return new AnalysisResult(tweetId, Decision.DELETE);
   }
 
-  public static AnalysisResult forKeeping(String tweetUrl) {
-    return new AnalysisResult(tweetUrl, Decision.KEEP);
+  public static AnalysisResult forKeeping(long tweetId) {
+    return new AnalysisResult(tweetId, Decision.KEEP);
   }
 
   @Override
   public String toString() {
-    return "AnalysisResult[tweetUrl=" + tweetUrl + ", decision=" + decision + "]";
+    return "AnalysisResult[tweetId=" + Long.toUnsignedString(tweetId) + ", decision=" + decision + "]";
   }
 }
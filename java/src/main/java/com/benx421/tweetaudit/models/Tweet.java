@@ -1,30 +1,126 @@
 package com.benx421.tweetaudit.models;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 /**
  * A tweet from the Twitter archive.
+ * The id is kept as an unsigned 64-bit value and the content as UTF-8 bytes, which are only
+ * decoded when {@link #content()} is called.
  */
-public record Tweet(String id, String content) {
+public final class Tweet {
+
+  private final long id;
+  private final byte[] content;
+
+  /**
+   * Creates a tweet from its id and UTF-8 encoded content. The array is not copied and must not
+   * be modified afterwards.
+   */
+  public Tweet(long id, byte[] content) {
+    if (content == null) {
+      throw new IllegalArgumentException("Tweet content cannot be null");
+    }
+    this.id = id;
+    this.content = content;
+  }
 
-  public Tweet {
+  public Tweet(long id, String content) {
+    this(id, encode(content));
+  }
+
+  public Tweet(String id, String content) {
+    this(parseId(id), encode(content));
+  }
+
+  /**
+   * Parses a decimal tweet id such as an archive's {@code id_str}.
+   *
+   * @throws IllegalArgumentException if the id is blank or not an unsigned 64-bit number
+   */
+  public static long parseId(String id) {
     if (id == null || id.isBlank()) {
       throw new IllegalArgumentException("Tweet ID cannot be null or blank");
     }
-    if (content == null) {
-      throw new IllegalArgumentException("Tweet content cannot be null");
+    try {
+      return Long.parseUnsignedLong(id.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Tweet ID must be numeric: " + id, e);
     }
-    id = id.trim();
+  }
+
+  public long id() {
+    return id;
+  }
+
+  public String idString() {
+    return Long.toUnsignedString(id);
+  }
+
+  /**
+   * Decodes the tweet text.
+   */
+  public String content() {
+    return new String(content, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns a read-only view of the UTF-8 encoded tweet text.
+   */
+  public ByteBuffer contentBytes() {
+    return ByteBuffer.wrap(content).asReadOnlyBuffer();
+  }
+
+  public int contentLength() {
+    return content.length;
+  }
+
+  /**
+   * Writes the UTF-8 encoded tweet text without copying it.
+   */
+  public void writeContentTo(OutputStream out) throws IOException {
+    out.write(content);
+  }
+
+  /**
+   * Checks the encoded text for a prefix without decoding it.
+   */
+  public boolean contentStartsWith(byte[] prefix) {
+    return content.length >= prefix.length
+        && Arrays.equals(content, 0, prefix.length, prefix, 0, prefix.length);
   }
 
   public String contentPreview() {
-    return content.length() > 50 ? content.substring(0, 50) + "..." : content;
+    String text = content();
+    return text.length() > 50 ? text.substring(0, 50) + "..." : text;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Tweet other && id == other.id && Arrays.equals(content, other.content);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(id) + Arrays.hashCode(content);
   }
 
   @Override
   public String toString() {
-    return "Tweet[id=" + id + ", content=" + contentPreview() + "]";
+    return "Tweet[id=" + idString() + ", content=" + contentPreview() + "]";
   }
 
   public static Tweet of(String id, String content) {
     return new Tweet(id, content);
   }
+
+  private static byte[] encode(String content) {
+    if (content == null) {
+      throw new IllegalArgumentException("Tweet content cannot be null");
+    }
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
 }
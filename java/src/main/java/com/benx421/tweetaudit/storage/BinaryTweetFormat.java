@@ -0,0 +1,93 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Layout of the binary columnar transformed tweets file.
+ *
+ * <pre>
+ * header   magic (int), version (int)
+ * texts    per row: byte length (int), UTF-8 bytes
+ * ids      per row: tweet id (long)
+ * offsets  per row: file offset of the row's text record (long)
+ * footer   row count (long), ids offset (long), offsets offset (long),
+ *          CRC32 of everything before the footer (int), version (int), magic (int)
+ * </pre>
+ *
+ * <p>All values are big-endian. The fixed-size id and offset columns let readers locate any row
+ * without scanning the text column.
+ */
+final class BinaryTweetFormat {
+
+  static final int MAGIC = 0x5457424E; // "TWBN"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+  static final int FOOTER_BYTES = 3 * Long.BYTES + 3 * Integer.BYTES;
+
+  private BinaryTweetFormat() {
+  }
+
+  /**
+   * Reads and validates the footer of a binary tweets file.
+   *
+   * @throws IOException if the file is not a valid binary tweets file
+   */
+  static Footer readFooter(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size < HEADER_BYTES + FOOTER_BYTES) {
+      throw new IOException("Invalid binary tweets file: file is truncated");
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    readFully(channel, header, 0);
+    header.flip();
+    if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+      throw new IOException("Invalid binary tweets file: unrecognized format");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(FOOTER_BYTES);
+    readFully(channel, buffer, size - FOOTER_BYTES);
+    buffer.flip();
+    Footer footer =
+        new Footer(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+    if (buffer.getInt() != VERSION || buffer.getInt() != MAGIC) {
+      throw new IOException("Invalid binary tweets file: unrecognized footer");
+    }
+
+    long columnBytes = footer.rowCount() * Long.BYTES;
+    if (footer.rowCount() < 0
+        || footer.rowCount() > Integer.MAX_VALUE
+        || footer.idsOffset() < HEADER_BYTES
+        || footer.offsetsOffset() != footer.idsOffset() + columnBytes
+        || footer.offsetsOffset() + columnBytes != size - FOOTER_BYTES) {
+      throw new IOException("Invalid binary tweets file: footer does not match file size");
+    }
+    return footer;
+  }
+
+  static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of binary tweets file");
+      }
+      position += read;
+    }
+  }
+
+  /**
+   * Footer fields locating the columns of a binary tweets file.
+   */
+  record Footer(long rowCount, long idsOffset, long offsetsOffset, int checksum) {
+
+    /**
+     * Returns the offset just past the last text record.
+     */
+    long textsEnd() {
+      return idsOffset;
+    }
+  }
+}
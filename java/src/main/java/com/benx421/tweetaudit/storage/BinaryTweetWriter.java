@@ -0,0 +1,265 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Writes tweets in the binary columnar format described by {@link BinaryTweetFormat}.
+ * Tweet ids are stored as primitive longs and text as length-prefixed UTF-8, so nothing needs
+ * escaping on write or unescaping on read.
+ * Must be used with try-with-resources; the id and offset columns and the footer are written
+ * on close.
+ */
+public final class BinaryTweetWriter implements TweetWriter {
+
+  private static final Set<PosixFilePermission> FILE_PERMISSIONS =
+      Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+
+  private final DataOutputStream out;
+  private final CRC32 checksum;
+  private long[] ids;
+  private long[] offsets;
+  private int rowCount;
+  private long position;
+  private boolean closed;
+  private Path tempPath;
+  private Path publishPath;
+  private boolean failed;
+
+  private BinaryTweetWriter(Path path) throws IOException {
+    Path dir = path.getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+
+    this.checksum = new CRC32();
+    OutputStream file = new BufferedOutputStream(Files.newOutputStream(path));
+    this.out = new DataOutputStream(new CheckedOutputStream(file, checksum));
+    this.ids = new long[1024];
+    this.offsets = new long[1024];
+
+    try {
+      try {
+        Files.setPosixFilePermissions(path, FILE_PERMISSIONS);
+      } catch (UnsupportedOperationException e) {
+        // POSIX permissions not supported on this file system (e.g., Windows)
+      }
+
+      out.writeInt(BinaryTweetFormat.MAGIC);
+      out.writeInt(BinaryTweetFormat.VERSION);
+    } catch (IOException | RuntimeException e) {
+      // Leave neither an open stream nor a file without a header behind
+      try {
+        out.close();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    this.position = BinaryTweetFormat.HEADER_BYTES;
+  }
+
+  public static BinaryTweetWriter create(String path) throws IOException {
+    if (path == null || path.isBlank()) {
+      throw new IllegalArgumentException("Path cannot be null or blank");
+    }
+    return new BinaryTweetWriter(Paths.get(path).normalize());
+  }
+
+  /**
+   * Opens a writer that adds rows after those already in a binary tweets file. The existing rows
+   * are copied byte for byte, with their checksum verified, into a temporary file that replaces
+   * the original on close, so the original is untouched if writing fails. Creates the file if it
+   * does not exist yet.
+   *
+   * @param path the binary tweets file to extend
+   * @return a writer positioned after the existing rows
+   * @throws IOException if the existing file is invalid or the temporary file cannot be written
+   */
+  public static BinaryTweetWriter append(String path) throws IOException {
+    if (path == null || path.isBlank()) {
+      throw new IllegalArgumentException("Path cannot be null or blank");
+    }
+    Path target = Paths.get(path).normalize();
+    if (!Files.exists(target)) {
+      return create(path);
+    }
+
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    BinaryTweetWriter writer = new BinaryTweetWriter(temp);
+    writer.tempPath = temp;
+    try {
+      writer.copyRows(target);
+    } catch (IOException | RuntimeException e) {
+      writer.failed = true;
+      try {
+        writer.close();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    writer.publishPath = target;
+    return writer;
+  }
+
+  /**
+   * Converts a transformed tweets CSV into the binary format.
+   *
+   * @param csvPath the CSV to read
+   * @param binaryPath the binary file to write
+   * @return the number of tweets converted
+   * @throws IOException if the CSV cannot be read or the binary file cannot be written
+   */
+  public static int convertCsv(String csvPath, String binaryPath) throws IOException {
+    List<Tweet> tweets = new TweetParser(csvPath, ParserType.CSV).parse();
+    try (BinaryTweetWriter writer = create(binaryPath)) {
+      writer.writeTweets(tweets);
+    }
+    return tweets.size();
+  }
+
+  public void writeTweets(List<Tweet> tweets) throws IOException {
+    for (Tweet tweet : tweets) {
+      writeTweet(tweet);
+    }
+  }
+
+  @Override
+  public void writeTweet(Tweet tweet) throws IOException {
+    try {
+      writeRow(tweet);
+    } catch (IOException | RuntimeException e) {
+      failed = true;
+      throw e;
+    }
+  }
+
+  private void writeRow(Tweet tweet) throws IOException {
+    if (rowCount == ids.length) {
+      ids = Arrays.copyOf(ids, rowCount * 2);
+      offsets = Arrays.copyOf(offsets, rowCount * 2);
+    }
+    ids[rowCount] = tweet.id();
+    offsets[rowCount] = position;
+    rowCount++;
+
+    int length = tweet.contentLength();
+    out.writeInt(length);
+    tweet.writeContentTo(out);
+    position += Integer.BYTES + length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    try {
+      writeColumns();
+    } catch (IOException | RuntimeException e) {
+      failed = true;
+      throw e;
+    } finally {
+      if (tempPath != null) {
+        if (failed || publishPath == null) {
+          Files.deleteIfExists(tempPath);
+        } else {
+          Files.move(tempPath, publishPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the rows of an existing binary tweets file into this writer without decoding them.
+   */
+  private void copyRows(Path source) throws IOException {
+    try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+      BinaryTweetFormat.Footer footer = BinaryTweetFormat.readFooter(channel);
+      int rows = (int) footer.rowCount();
+
+      CRC32 sourceChecksum = new CRC32();
+      DataInputStream in =
+          new DataInputStream(
+              new CheckedInputStream(
+                  new BufferedInputStream(Channels.newInputStream(channel.position(0))), sourceChecksum));
+      in.skipNBytes(BinaryTweetFormat.HEADER_BYTES);
+
+      byte[] buffer = new byte[64 * 1024];
+      long remaining = footer.textsEnd() - BinaryTweetFormat.HEADER_BYTES;
+      while (remaining > 0) {
+        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (read < 0) {
+          throw new EOFException("Unexpected end of binary tweets file");
+        }
+        out.write(buffer, 0, read);
+        remaining -= read;
+      }
+
+      ids = new long[Math.max(rows, 1024)];
+      offsets = new long[ids.length];
+      for (int i = 0; i < rows; i++) {
+        ids[i] = in.readLong();
+      }
+      for (int i = 0; i < rows; i++) {
+        offsets[i] = in.readLong();
+      }
+      if ((int) sourceChecksum.getValue() != footer.checksum()) {
+        throw new IOException("Invalid binary tweets file: checksum mismatch");
+      }
+
+      rowCount = rows;
+      position = footer.textsEnd();
+    }
+  }
+
+  private void writeColumns() throws IOException {
+    try (out) {
+      long idsOffset = position;
+      for (int i = 0; i < rowCount; i++) {
+        out.writeLong(ids[i]);
+      }
+      long offsetsOffset = idsOffset + (long) rowCount * Long.BYTES;
+      for (int i = 0; i < rowCount; i++) {
+        out.writeLong(offsets[i]);
+      }
+
+      int crc = (int) checksum.getValue();
+      out.writeLong(rowCount);
+      out.writeLong(idsOffset);
+      out.writeLong(offsetsOffset);
+      out.writeInt(crc);
+      out.writeInt(BinaryTweetFormat.VERSION);
+      out.writeInt(BinaryTweetFormat.MAGIC);
+    }
+  }
+}
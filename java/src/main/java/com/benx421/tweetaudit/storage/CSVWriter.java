@@ -1,14 +1,19 @@
 package com.benx421.tweetaudit.storage;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 import com.benx421.tweetaudit.models.AnalysisResult;
 import com.benx421.tweetaudit.models.Tweet;
@@ -17,15 +22,28 @@ import com.benx421.tweetaudit.models.Tweet;
  * Writes CSV files with automatic directory creation.
  * Must be used with try-with-resources to ensure proper resource cleanup.
  */
-public final class CSVWriter implements AutoCloseable {
+public final class CSVWriter implements TweetWriter {
 
   private static final Set<PosixFilePermission> FILE_PERMISSIONS =
       Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+  private static final byte[] LINE_SEPARATOR_BYTES = LINE_SEPARATOR.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RESULT_SUFFIX = (",false" + LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+  private static final int MAX_ID_DIGITS = 20;
 
-  private final BufferedWriter writer;
+  private final OutputStream out;
+  private final TweetIndex.Writer index;
+  private final CRC32 rowChecksum;
+  private final byte[] resultPrefix;
+  private final byte[] resultSuffix;
+  private final byte[] digits;
+  private byte[] row;
+  private int rowLength;
+  private long position;
   private boolean skipHeader;
 
-  private CSVWriter(Path path, boolean shouldAppend) throws IOException {
+  private CSVWriter(Path path, boolean shouldAppend, TweetIndex.Writer index, String tweetUrlPrefix)
+      throws IOException {
 
     Path dir = path.getParent();
     if (dir != null) {
@@ -34,7 +52,24 @@ public final class CSVWriter implements AutoCloseable {
 
     boolean fileExists = Files.exists(path);
     this.skipHeader = shouldAppend && fileExists;
-    this.writer = new BufferedWriter(new FileWriter(path.toFile(), shouldAppend));
+    this.position = shouldAppend && fileExists ? Files.size(path) : 0;
+    this.out = new BufferedOutputStream(new FileOutputStream(path.toFile(), shouldAppend));
+    this.index = index;
+    this.rowChecksum = new CRC32();
+    this.digits = new byte[MAX_ID_DIGITS];
+    this.row = new byte[256];
+
+    if (tweetUrlPrefix == null) {
+      this.resultPrefix = null;
+      this.resultSuffix = null;
+    } else if (needsQuoting(tweetUrlPrefix)) {
+      this.resultPrefix =
+          ("\"" + tweetUrlPrefix.replace("\"", "\"\"")).getBytes(StandardCharsets.UTF_8);
+      this.resultSuffix = ("\"" + ",false" + LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8);
+    } else {
+      this.resultPrefix = tweetUrlPrefix.getBytes(StandardCharsets.UTF_8);
+      this.resultSuffix = RESULT_SUFFIX;
+    }
 
     try {
       Files.setPosixFilePermissions(path, FILE_PERMISSIONS);
@@ -47,55 +82,242 @@ public final class CSVWriter implements AutoCloseable {
     if (path == null || path.isBlank()) {
       throw new IllegalArgumentException("Path cannot be null or blank");
     }
-    return new CSVWriter(Paths.get(path).normalize(), shouldAppend);
+    return new CSVWriter(Paths.get(path).normalize(), shouldAppend, null, null);
   }
 
-  public void writeTweets(List<Tweet> tweets) throws IOException {
-    if (!skipHeader) {
-      writer.write("id,text");
-      writer.newLine();
+  /**
+   * Creates a results writer. Result rows are rendered as {@code tweetUrlPrefix} followed by the
+   * tweet id, written straight into the output buffer without building a URL string per result.
+   *
+   * @param path the results CSV
+   * @param shouldAppend whether to append to an existing file
+   * @param tweetUrlPrefix the URL up to the tweet id, e.g. {@code https://x.com/user/status/}
+   * @return a new writer
+   * @throws IOException if the file cannot be created
+   */
+  public static CSVWriter create(String path, boolean shouldAppend, String tweetUrlPrefix)
+      throws IOException {
+    if (path == null || path.isBlank()) {
+      throw new IllegalArgumentException("Path cannot be null or blank");
+    }
+    if (tweetUrlPrefix == null || tweetUrlPrefix.isBlank()) {
+      throw new IllegalArgumentException("Tweet URL prefix cannot be null or blank");
+    }
+    return new CSVWriter(Paths.get(path).normalize(), shouldAppend, null, tweetUrlPrefix);
+  }
+
+  /**
+   * Creates a tweet CSV writer that also writes a sidecar offset index next to the file.
+   * The index maps each row number to its byte offset and checksum so readers can seek
+   * straight to a row instead of parsing everything before it.
+   *
+   * The tweet header is written immediately, so the file is valid even if no tweets follow.
+   *
+   * @param path the CSV file to write; the index is written to {@code path + ".idx"}
+   * @return a new writer that truncates any existing file and index
+   * @throws IOException if either file cannot be created
+   */
+  public static CSVWriter createIndexed(String path) throws IOException {
+    if (path == null || path.isBlank()) {
+      throw new IllegalArgumentException("Path cannot be null or blank");
     }
+    Path csvPath = Paths.get(path).normalize();
+    Path dir = csvPath.getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    CSVWriter writer =
+        new CSVWriter(csvPath, false, new TweetIndex.Writer(TweetIndex.pathFor(csvPath)), null);
+    writer.writeTweetHeader();
+    return writer;
+  }
+
+  /**
+   * Opens a tweet CSV for appending rows, extending its sidecar index when the index is current.
+   * A stale or missing index is removed rather than extended, and readers fall back to scanning
+   * the CSV until the next full extract. Creates an indexed file if none exists yet.
+   *
+   * @param path the CSV file to append to
+   * @return a writer positioned at the end of the file
+   * @throws IOException if either file cannot be opened
+   */
+  public static CSVWriter appendIndexed(String path) throws IOException {
+    if (path == null || path.isBlank()) {
+      throw new IllegalArgumentException("Path cannot be null or blank");
+    }
+    Path csvPath = Paths.get(path).normalize();
+    if (!Files.exists(csvPath)) {
+      return createIndexed(path);
+    }
+
+    Path indexPath = TweetIndex.pathFor(csvPath);
+    TweetIndex.Writer index = TweetIndex.Writer.appendTo(indexPath, Files.size(csvPath));
+    if (index == null) {
+      Files.deleteIfExists(indexPath);
+    }
+    return new CSVWriter(csvPath, true, index, null);
+  }
+
+  /**
+   * Returns the path of the sidecar index written by {@link #createIndexed(String)}.
+   */
+  public static Path indexPath(Path csvPath) {
+    return TweetIndex.pathFor(csvPath);
+  }
+
+  public void writeTweets(List<Tweet> tweets) throws IOException {
+    writeTweetHeader();
 
     for (Tweet tweet : tweets) {
-      writer.write(escapeCsv(tweet.id()));
-      writer.write(',');
-      writer.write(escapeCsv(tweet.content()));
-      writer.newLine();
+      writeTweet(tweet);
     }
 
-    writer.flush();
+    out.flush();
   }
 
+  /**
+   * Writes the tweet CSV header unless it has already been written or the file is being
+   * appended to.
+   */
+  public void writeTweetHeader() throws IOException {
+    if (!skipHeader) {
+      writeLine("id,text");
+      skipHeader = true;
+    }
+  }
+
+  /**
+   * Writes a single tweet row. Output is buffered; rows reach the file on flush or close.
+   */
+  @Override
+  public void writeTweet(Tweet tweet) throws IOException {
+    writeTweetHeader();
+
+    rowLength = 0;
+    appendId(tweet.id());
+    append((byte) ',');
+    appendEscaped(tweet.contentBytes());
+    append(LINE_SEPARATOR_BYTES);
+    if (index != null) {
+      rowChecksum.reset();
+      rowChecksum.update(row, 0, rowLength);
+      index.add(position, (int) rowChecksum.getValue());
+    }
+    writeRow();
+  }
+
+  /**
+   * Writes a result row with the tweet URL. Requires a writer created with a tweet URL prefix.
+   */
   public void writeResult(AnalysisResult result) throws IOException {
+    if (resultPrefix == null) {
+      throw new IllegalStateException("Writer was created without a tweet URL prefix");
+    }
     if (!skipHeader) {
-      writer.write("tweet_url,deleted");
-      writer.newLine();
+      writeLine("tweet_url,deleted");
       skipHeader = true;
     }
 
-    writer.write(escapeCsv(result.tweetUrl()));
-    writer.write(',');
-    writer.write("false");
-    writer.newLine();
-    writer.flush();
+    rowLength = 0;
+    append(resultPrefix);
+    appendId(result.tweetId());
+    append(resultSuffix);
+    writeRow();
+    out.flush();
   }
 
   @Override
   public void close() throws IOException {
-    if (writer != null) {
-      writer.close();
+    try {
+      out.close();
+    } finally {
+      if (index != null) {
+        index.finish(position);
+      }
+    }
+  }
+
+  private void writeLine(String line) throws IOException {
+    write((line + LINE_SEPARATOR).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void write(byte[] bytes) throws IOException {
+    out.write(bytes);
+    position += bytes.length;
+  }
+
+  private void writeRow() throws IOException {
+    out.write(row, 0, rowLength);
+    position += rowLength;
+  }
+
+  private void appendId(long id) {
+    int start = digits.length;
+    long value = id;
+    if (value < 0) {
+      long quotient = Long.divideUnsigned(value, 10);
+      digits[--start] = (byte) ('0' + (value - quotient * 10));
+      value = quotient;
     }
+    do {
+      digits[--start] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    append(digits, start, digits.length - start);
   }
 
-  private String escapeCsv(String value) {
-    if (value == null) {
-      return "";
+  /**
+   * Appends UTF-8 text as a CSV field. Quotes, commas and line breaks are ASCII and never occur
+   * inside a multi-byte sequence, so the text can be escaped without decoding it.
+   */
+  private void appendEscaped(ByteBuffer text) {
+    boolean quote = false;
+    for (int i = text.position(); i < text.limit() && !quote; i++) {
+      byte b = text.get(i);
+      quote = b == ',' || b == '"' || b == '\n' || b == '\r';
+    }
+
+    if (!quote) {
+      int length = text.remaining();
+      ensureCapacity(length);
+      text.get(row, rowLength, length);
+      rowLength += length;
+      return;
     }
 
-    if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
-      return "\"" + value.replace("\"", "\"\"") + "\"";
+    append((byte) '"');
+    while (text.hasRemaining()) {
+      byte b = text.get();
+      if (b == '"') {
+        append((byte) '"');
+      }
+      append(b);
     }
+    append((byte) '"');
+  }
+
+  private void append(byte b) {
+    ensureCapacity(1);
+    row[rowLength++] = b;
+  }
+
+  private void append(byte[] bytes) {
+    append(bytes, 0, bytes.length);
+  }
+
+  private void append(byte[] bytes, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(bytes, offset, row, rowLength, length);
+    rowLength += length;
+  }
+
+  private void ensureCapacity(int extra) {
+    if (rowLength + extra > row.length) {
+      row = Arrays.copyOf(row, Math.max(row.length * 2, rowLength + extra));
+    }
+  }
 
-    return value;
+  private static boolean needsQuoting(String value) {
+    return value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r");
   }
 }
@@ -1,27 +1,58 @@
 package com.benx421.tweetaudit.storage;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
 import java.util.Set;
 
 /**
  * Manages progress tracking for tweet analysis.
+ * Every save writes a temporary file, forces it to disk and renames it over the checkpoint, so a
+ * crash or power loss leaves either the old or the new index, never a partial file. Frequent
+ * progress updates go through {@link #update(int)}, which commits at most once per commit
+ * interval; {@link #flush()} commits whatever is still pending.
  */
 public final class Checkpoint {
 
+  /** Default upper bound on how often {@link #update(int)} writes to disk. */
+  public static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofSeconds(1);
+
   private static final Set<PosixFilePermission> FILE_PERMISSIONS =
       Set.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+  private static final boolean POSIX =
+      FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+  private static final int NONE = -1;
 
   private final Path path;
+  private final long commitIntervalNanos;
+  private int pending = NONE;
+  private long lastCommitNanos;
 
   public Checkpoint(String path) {
+    this(path, DEFAULT_COMMIT_INTERVAL);
+  }
+
+  public Checkpoint(String path, Duration commitInterval) {
     if (path == null || path.isBlank()) {
       throw new IllegalArgumentException("Path cannot be null or blank");
     }
+    if (commitInterval == null || commitInterval.isNegative()) {
+      throw new IllegalArgumentException("Commit interval cannot be null or negative");
+    }
     this.path = Paths.get(path).normalize();
+    this.commitIntervalNanos = commitInterval.toNanos();
+    this.lastCommitNanos = System.nanoTime() - commitIntervalNanos;
   }
 
   public int load() throws IOException {
@@ -40,22 +71,102 @@ public final class Checkpoint {
     }
   }
 
+  public boolean exists() {
+    return Files.exists(path);
+  }
+
+  /**
+   * Deletes the checkpoint and any pending update, so analysis starts again from the first row.
+   */
+  public void reset() throws IOException {
+    pending = NONE;
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Durably saves the index, discarding any pending update.
+   */
   public void save(int index) throws IOException {
-    if (index < 0) {
-      throw new IllegalArgumentException("Index cannot be negative: " + index);
+    checkIndex(index);
+    pending = NONE;
+    commit(index);
+  }
+
+  /**
+   * Records progress, writing it to disk only if the commit interval has passed since the last
+   * write. Updates in between are coalesced and only the latest index is kept.
+   *
+   * @return true if the index was written
+   */
+  public boolean update(int index) throws IOException {
+    checkIndex(index);
+    pending = index;
+    if (System.nanoTime() - lastCommitNanos < commitIntervalNanos) {
+      return false;
     }
+    flush();
+    return true;
+  }
 
+  /**
+   * Writes the latest pending update, if any.
+   */
+  public void flush() throws IOException {
+    if (pending != NONE) {
+      int index = pending;
+      commit(index);
+      pending = NONE;
+    }
+  }
+
+  private void commit(int index) throws IOException {
     Path dir = path.getParent();
     if (dir != null) {
       Files.createDirectories(dir);
     }
 
-    Files.writeString(path, String.valueOf(index));
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    Files.deleteIfExists(tempPath);
+    try (FileChannel channel =
+        FileChannel.open(tempPath, Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), permissions())) {
+      ByteBuffer content = ByteBuffer.wrap(String.valueOf(index).getBytes(StandardCharsets.US_ASCII));
+      while (content.hasRemaining()) {
+        channel.write(content);
+      }
+      channel.force(true);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempPath);
+      throw e;
+    }
 
-    try {
-      Files.setPosixFilePermissions(path, FILE_PERMISSIONS);
-    } catch (UnsupportedOperationException e) {
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(dir);
+    lastCommitNanos = System.nanoTime();
+  }
+
+  private static FileAttribute<?>[] permissions() {
+    if (!POSIX) {
       // POSIX permissions not supported on this file system (e.g., Windows)
+      return new FileAttribute<?>[0];
+    }
+    return new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(FILE_PERMISSIONS)};
+  }
+
+  /**
+   * Forces the rename itself to disk. Not every platform can open a directory for this, in which
+   * case the rename is left to the file system's own ordering.
+   */
+  static void syncDirectory(Path dir) {
+    try (FileChannel channel = FileChannel.open(dir == null ? Paths.get(".") : dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Directories cannot be opened or synced on this platform
+    }
+  }
+
+  private static void checkIndex(int index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("Index cannot be negative: " + index);
     }
   }
 }
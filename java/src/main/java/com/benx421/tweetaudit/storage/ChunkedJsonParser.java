@@ -0,0 +1,347 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Parses a single large archive file on several cores.
+ * The file is memory-mapped and a brace- and quote-aware byte scan splits the top-level tweet
+ * array at element boundaries into chunks of roughly equal size. Each chunk is decoded as its
+ * own JSON array on a {@link ForkJoinPool}, and the reader hands out the results in file order.
+ * Only a few chunks per thread are decoded ahead of the reader, so memory use stays bounded by
+ * the chunk size rather than the archive size. The scan only tracks string and nesting state,
+ * so it runs far faster than the JSON decoding it distributes.
+ */
+final class ChunkedJsonParser {
+
+  /** Files smaller than this are not worth splitting. */
+  static final long MIN_PARALLEL_BYTES = 8L << 20;
+
+  private static final long MIN_CHUNK_BYTES = 1L << 20;
+  private static final long MAX_CHUNK_BYTES = 8L << 20;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  /** Chunks decoded ahead of the reader per thread, so threads stay busy while it drains one. */
+  private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+  private static final int MAX_PREFIX_LENGTH = 256;
+  private static final String DATA_FILE_PREFIX = "window.YTD.";
+
+  private ChunkedJsonParser() {
+  }
+
+  /**
+   * Opens a reader over a JSON tweet array, or an archive data file when {@code dataFile} is set.
+   * The file stays mapped until the reader is closed.
+   *
+   * @param file the file to parse
+   * @param dataFile whether the array is preceded by a {@code window.YTD.* = } assignment
+   * @param parallelism the number of threads to decode chunks on
+   * @return a reader over the tweets in file order
+   * @throws IOException if the file cannot be read or is not a valid tweet array
+   */
+  static ChunkReader open(Path file, boolean dataFile, int parallelism) throws IOException {
+    return open(file, dataFile, parallelism, MIN_CHUNK_BYTES);
+  }
+
+  static ChunkReader open(Path file, boolean dataFile, int parallelism, long minChunkBytes)
+      throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    Arena arena = Arena.ofShared();
+    try {
+      MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+      long start = arrayStart(data, dataFile);
+      long evenBytes = data.byteSize() / ((long) parallelism * CHUNKS_PER_THREAD);
+      long chunkBytes = Math.max(minChunkBytes, Math.min(MAX_CHUNK_BYTES, evenBytes));
+      List<long[]> chunks = split(data, start, chunkBytes);
+      return new ChunkReader(channel, arena, data, chunks, parallelism);
+    } catch (IOException | RuntimeException e) {
+      try {
+        arena.close();
+      } finally {
+        channel.close();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Parses a whole file into a list, for callers that need every tweet at once.
+   */
+  static List<Tweet> parse(Path file, boolean dataFile, int parallelism, long minChunkBytes)
+      throws IOException {
+    try (TweetReader reader = open(file, dataFile, parallelism, minChunkBytes)) {
+      List<Tweet> tweets = new ArrayList<>();
+      for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+        tweets.add(tweet);
+      }
+      return tweets;
+    }
+  }
+
+  /**
+   * Returns the offset of the opening bracket of the tweet array.
+   */
+  private static long arrayStart(MemorySegment data, boolean dataFile) throws IOException {
+    long size = data.byteSize();
+    long i = 0;
+    if (size >= 3 && byteAt(data, 0) == (byte) 0xEF && byteAt(data, 1) == (byte) 0xBB
+        && byteAt(data, 2) == (byte) 0xBF) {
+      i = 3;
+    }
+    i = skipWhitespace(data, i);
+    if (i < size && byteAt(data, i) == '[') {
+      return i;
+    }
+    if (!dataFile) {
+      throw new IOException("Invalid JSON format: expected a tweet array");
+    }
+
+    StringBuilder prefix = new StringBuilder();
+    while (i < size && byteAt(data, i) != '=' && prefix.length() < MAX_PREFIX_LENGTH) {
+      prefix.append((char) byteAt(data, i++));
+    }
+    if (i >= size || byteAt(data, i) != '=' || !prefix.toString().strip().startsWith(DATA_FILE_PREFIX)) {
+      throw new IOException("Invalid archive data file: expected '" + DATA_FILE_PREFIX + "' prefix");
+    }
+
+    i = skipWhitespace(data, i + 1);
+    if (i >= size || byteAt(data, i) != '[') {
+      throw new IOException("Invalid JSON format: expected a tweet array");
+    }
+    return i;
+  }
+
+  /**
+   * Splits the array elements into {@code [start, end)} ranges of at least {@code chunkBytes},
+   * cutting only at top-level commas outside strings.
+   */
+  private static List<long[]> split(MemorySegment data, long arrayStart, long chunkBytes)
+      throws IOException {
+    List<long[]> chunks = new ArrayList<>();
+    long size = data.byteSize();
+    long chunkStart = arrayStart + 1;
+    long arrayEnd = -1;
+    int depth = 0;
+    boolean inString = false;
+    boolean escaped = false;
+
+    for (long i = chunkStart; i < size && arrayEnd < 0; i++) {
+      byte b = byteAt(data, i);
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (b == '\\') {
+          escaped = true;
+        } else if (b == '"') {
+          inString = false;
+        }
+      } else if (b == '"') {
+        inString = true;
+      } else if (b == '{' || b == '[') {
+        depth++;
+      } else if (b == '}' || b == ']') {
+        if (depth == 0) {
+          if (b == '}') {
+            throw new IOException("Invalid JSON format: unbalanced '}' at byte " + i);
+          }
+          arrayEnd = i;
+        } else {
+          depth--;
+        }
+      } else if (b == ',' && depth == 0 && i - chunkStart >= chunkBytes) {
+        addChunk(data, chunks, chunkStart, i);
+        chunkStart = i + 1;
+      }
+    }
+
+    if (arrayEnd < 0) {
+      throw new IOException("Invalid JSON format: unterminated tweet array");
+    }
+    if (skipWhitespace(data, arrayEnd + 1) != size) {
+      throw new IOException("Invalid JSON format: unexpected content after tweet array");
+    }
+    if (!chunks.isEmpty() || skipWhitespace(data, chunkStart) != arrayEnd) {
+      addChunk(data, chunks, chunkStart, arrayEnd);
+    }
+    return chunks;
+  }
+
+  private static void addChunk(MemorySegment data, List<long[]> chunks, long start, long end)
+      throws IOException {
+    if (skipWhitespace(data, start) >= end) {
+      throw new IOException("Invalid JSON format: empty array element at byte " + start);
+    }
+    if (end - start > Integer.MAX_VALUE - 2) {
+      throw new IOException("Invalid JSON format: array element too large at byte " + start);
+    }
+    chunks.add(new long[] {start, end});
+  }
+
+  private static List<Tweet> decodeChunk(MemorySegment data, long start, long end) throws IOException {
+    int length = (int) (end - start);
+    byte[] json = new byte[length + 2];
+    json[0] = '[';
+    MemorySegment.copy(data, ValueLayout.JAVA_BYTE, start, json, 1, length);
+    json[length + 1] = ']';
+
+    List<Tweet> tweets = new ArrayList<>();
+    try (TweetReader reader =
+        new JsonTweetReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8))) {
+      for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+        tweets.add(tweet);
+      }
+    }
+    return tweets;
+  }
+
+  private static List<Tweet> await(Future<List<Tweet>> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing archive");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException("Failed to parse archive chunk: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  private static void awaitTermination(ForkJoinPool pool) {
+    boolean interrupted = false;
+    boolean terminated = false;
+    while (!terminated) {
+      try {
+        terminated = pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Hands out decoded chunks in file order while later chunks are decoded on the pool.
+   */
+  static final class ChunkReader implements TweetReader {
+    private final FileChannel channel;
+    private final Arena arena;
+    private final MemorySegment data;
+    private final List<long[]> chunks;
+    private final ForkJoinPool pool;
+    private final int maxAhead;
+    private final ArrayDeque<Future<List<Tweet>>> ahead = new ArrayDeque<>();
+    private Iterator<Tweet> current = Collections.emptyIterator();
+    private int started;
+    private boolean closed;
+
+    private ChunkReader(FileChannel channel, Arena arena, MemorySegment data, List<long[]> chunks, int parallelism) {
+      this.channel = channel;
+      this.arena = arena;
+      this.data = data;
+      this.chunks = chunks;
+      int threads = Math.min(parallelism, chunks.size());
+      this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+      this.maxAhead = threads * CHUNKS_AHEAD_PER_THREAD;
+    }
+
+    @Override
+    public Tweet next() throws IOException {
+      while (!current.hasNext()) {
+        if (pool == null) {
+          if (started == chunks.size()) {
+            return null;
+          }
+          long[] chunk = chunks.get(started++);
+          current = decodeChunk(data, chunk[0], chunk[1]).iterator();
+          continue;
+        }
+
+        startChunks();
+        Future<List<Tweet>> next = ahead.poll();
+        if (next == null) {
+          return null;
+        }
+        current = await(next).iterator();
+        startChunks();
+      }
+      return current.next();
+    }
+
+    /** Chunks handed to the pool so far, including any already read. */
+    int chunksStarted() {
+      return started;
+    }
+
+    int chunkCount() {
+      return chunks.size();
+    }
+
+    private void startChunks() {
+      while (ahead.size() < maxAhead && started < chunks.size()) {
+        long[] chunk = chunks.get(started++);
+        ahead.add(pool.submit(() -> decodeChunk(data, chunk[0], chunk[1])));
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        if (pool != null) {
+          // Chunks read straight from the mapping, so no task may outlive the arena.
+          pool.shutdownNow();
+          awaitTermination(pool);
+        }
+      } finally {
+        try {
+          arena.close();
+        } finally {
+          channel.close();
+        }
+      }
+    }
+  }
+
+  private static long skipWhitespace(MemorySegment data, long i) {
+    long size = data.byteSize();
+    while (i < size) {
+      byte b = byteAt(data, i);
+      if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+        break;
+      }
+      i++;
+    }
+    return i;
+  }
+
+  private static byte byteAt(MemorySegment data, long offset) {
+    return data.get(ValueLayout.JAVA_BYTE, offset);
+  }
+}
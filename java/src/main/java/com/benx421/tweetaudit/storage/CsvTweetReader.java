@@ -0,0 +1,85 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Reads tweets from a transformed tweets CSV one record at a time.
+ */
+final class CsvTweetReader implements TweetReader {
+
+  private final CSVParser parser;
+  private final Iterator<CSVRecord> records;
+
+  private CsvTweetReader(CSVParser parser) {
+    this.parser = parser;
+    this.records = parser.iterator();
+  }
+
+  /**
+   * Opens a CSV file and validates its header row.
+   *
+   * @throws IOException if the file cannot be opened or does not have 'id,text' headers
+   */
+  static CsvTweetReader open(Path path) throws IOException {
+    CSVParser parser =
+        new CSVParser(
+            Files.newBufferedReader(path, StandardCharsets.UTF_8),
+            CSVFormat.RFC4180.withFirstRecordAsHeader());
+    try {
+      if (parser.getHeaderNames().isEmpty()) {
+        throw new IOException("CSV file is empty");
+      }
+      if (!parser.getHeaderNames().equals(List.of("id", "text"))) {
+        throw new IOException("Invalid CSV format: expected 'id,text' headers");
+      }
+      return new CsvTweetReader(parser);
+    } catch (IOException | RuntimeException e) {
+      parser.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public Tweet next() throws IOException {
+    CSVRecord record;
+    try {
+      if (!records.hasNext()) {
+        return null;
+      }
+      record = records.next();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    if (record.size() != 2) {
+      throw new IOException(
+          "Invalid CSV record at line "
+              + record.getRecordNumber()
+              + ": expected 2 fields, got "
+              + record.size());
+    }
+    try {
+      return new Tweet(record.get(0), record.get(1));
+    } catch (IllegalArgumentException e) {
+      throw new IOException(
+          "Invalid CSV record at line " + record.getRecordNumber() + ": " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    parser.close();
+  }
+}
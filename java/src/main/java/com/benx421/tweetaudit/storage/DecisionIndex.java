@@ -0,0 +1,319 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.benx421.tweetaudit.models.Decision;
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * On-disk hash index of analysis decisions keyed by tweet id.
+ * Unlike the checkpoint, which counts rows of the transformed file, entries stay valid when the
+ * file is re-extracted, reordered or filtered. Each entry carries a fingerprint of the tweet text
+ * and the analysis settings it was decided with, so a decision is only reused for the same text
+ * under the same model and criteria. The file is an open-addressing table memory-mapped through
+ * the FFM API, so a lookup or insert touches a single slot and an insert is in the file's pages,
+ * surviving the process exiting, as soon as it returns. Lookups and inserts may come from
+ * different threads.
+ *
+ * <pre>
+ * header: magic (int), version (int), capacity (int), count (int), 16 reserved bytes
+ * slot:   tweet id (long), fingerprint (long), state (int), CRC32 of the preceding fields (int)
+ * </pre>
+ *
+ * A slot with state 0 is empty; otherwise the state is the decision's ordinal plus one.
+ */
+public final class DecisionIndex implements Closeable {
+
+  static final int HEADER_BYTES = 32;
+  static final int SLOT_BYTES = 24;
+
+  private static final ValueLayout.OfInt INT =
+      ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+  private static final ValueLayout.OfLong LONG =
+      ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+  private static final int MAGIC = 0x54444958; // "TDIX"
+  private static final int VERSION = 1;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int MAX_CAPACITY = 1 << 30;
+  private static final Decision[] DECISIONS = Decision.values();
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private static final long CAPACITY_OFFSET = 2 * Integer.BYTES;
+  private static final long COUNT_OFFSET = 3 * Integer.BYTES;
+  private static final long FINGERPRINT_OFFSET = Long.BYTES;
+  private static final long STATE_OFFSET = 2 * Long.BYTES;
+  private static final long CRC_OFFSET = STATE_OFFSET + Integer.BYTES;
+
+  private final Path path;
+  private final CRC32 checksum = new CRC32();
+  private final ByteBuffer scratch = ByteBuffer.allocate((int) CRC_OFFSET);
+  private Arena arena;
+  private MemorySegment table;
+  private int capacity;
+  private int count;
+
+  private DecisionIndex(Path path, Arena arena, MemorySegment table) {
+    this.path = path;
+    this.arena = arena;
+    this.table = table;
+    this.capacity = table.get(INT, CAPACITY_OFFSET);
+    this.count = table.get(INT, COUNT_OFFSET);
+  }
+
+  /**
+   * Returns the path of the decision index kept next to a checkpoint file.
+   */
+  public static Path pathFor(String checkpointPath) {
+    Path checkpoint = Path.of(checkpointPath).normalize();
+    return checkpoint.resolveSibling(checkpoint.getFileName() + ".decisions");
+  }
+
+  /**
+   * Combines the fingerprint of the analysis settings with the tweet's text.
+   */
+  public static long fingerprint(long analysisFingerprint, Tweet tweet) {
+    long hash = FNV_OFFSET ^ analysisFingerprint;
+    ByteBuffer text = tweet.contentBytes();
+    while (text.hasRemaining()) {
+      hash = (hash ^ (text.get() & 0xFF)) * FNV_PRIME;
+    }
+    return mix64(hash);
+  }
+
+  /**
+   * Opens an index, creating an empty one if the file does not exist.
+   *
+   * @throws IOException if the file cannot be mapped or is not a decision index
+   */
+  public static DecisionIndex open(Path path) throws IOException {
+    Path dir = path.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    if (!Files.exists(path)) {
+      Path tempPath = tempPath(path);
+      try (Arena arena = Arena.ofConfined()) {
+        create(tempPath, INITIAL_CAPACITY, arena).force();
+      }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Arena arena = Arena.ofShared();
+    try {
+      MemorySegment table = map(path, arena);
+      if (table.byteSize() < HEADER_BYTES || table.get(INT, 0) != MAGIC || table.get(INT, Integer.BYTES) != VERSION) {
+        throw new IOException("Invalid decision index: unrecognized format");
+      }
+      int capacity = table.get(INT, CAPACITY_OFFSET);
+      int count = table.get(INT, COUNT_OFFSET);
+      if (capacity < INITIAL_CAPACITY || Integer.bitCount(capacity) != 1 || count < 0 || count > capacity
+          || table.byteSize() != HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+        throw new IOException("Invalid decision index: inconsistent header");
+      }
+      return new DecisionIndex(path, arena, table);
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  private static MemorySegment map(Path path, Arena arena) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size(), arena);
+    }
+  }
+
+  /**
+   * Creates an empty table file and maps it.
+   */
+  private static MemorySegment create(Path path, int capacity, Arena arena) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      long size = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+      channel.write(ByteBuffer.allocate(1), size - 1);
+      MemorySegment table = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+      table.set(INT, 0, MAGIC);
+      table.set(INT, Integer.BYTES, VERSION);
+      table.set(INT, CAPACITY_OFFSET, capacity);
+      table.set(INT, COUNT_OFFSET, 0);
+      return table;
+    }
+  }
+
+  /**
+   * Returns the recorded decision for a tweet, or null if there is none for this fingerprint.
+   */
+  public synchronized Decision get(long tweetId, long fingerprint) {
+    int mask = capacity - 1;
+    for (int i = mix(tweetId) & mask, probes = 0; probes < capacity; i = (i + 1) & mask, probes++) {
+      long offset = slotOffset(i);
+      int state = state(table, offset);
+      if (state == 0) {
+        return null;
+      }
+      if (state > 0 && table.get(LONG, offset) == tweetId) {
+        return table.get(LONG, offset + FINGERPRINT_OFFSET) == fingerprint ? DECISIONS[state - 1] : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Records the decision for a tweet, replacing any earlier one.
+   *
+   * @throws IOException if the index has to grow and cannot be rewritten
+   */
+  public synchronized void put(long tweetId, long fingerprint, Decision decision) throws IOException {
+    if (decision == null) {
+      throw new IllegalArgumentException("Decision cannot be null");
+    }
+    if ((count + 1L) * 4 > capacity * 3L) {
+      grow();
+    }
+
+    int mask = capacity - 1;
+    for (int i = mix(tweetId) & mask, probes = 0; probes < capacity; i = (i + 1) & mask, probes++) {
+      long offset = slotOffset(i);
+      int state = state(table, offset);
+      if (state == 0 || (state > 0 && table.get(LONG, offset) == tweetId)) {
+        writeSlot(table, offset, tweetId, fingerprint, decision.ordinal() + 1);
+        if (state == 0) {
+          count++;
+          table.set(INT, COUNT_OFFSET, count);
+        }
+        return;
+      }
+    }
+    throw new IOException("Decision index is full");
+  }
+
+  /**
+   * Returns the number of tweets with a recorded decision.
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * Rebuilds the table at twice the capacity in a temporary file and renames it into place.
+   */
+  private void grow() throws IOException {
+    if (capacity >= MAX_CAPACITY) {
+      throw new IOException("Decision index cannot grow past " + MAX_CAPACITY + " slots");
+    }
+    int newCapacity = capacity * 2;
+    int newMask = newCapacity - 1;
+    int moved = 0;
+    Path tempPath = tempPath(path);
+    try (Arena tempArena = Arena.ofConfined()) {
+      MemorySegment grown = create(tempPath, newCapacity, tempArena);
+      for (int i = 0; i < capacity; i++) {
+        long offset = slotOffset(i);
+        int state = state(table, offset);
+        if (state <= 0) {
+          continue;
+        }
+        long tweetId = table.get(LONG, offset);
+        int target = mix(tweetId) & newMask;
+        while (grown.get(INT, slotOffset(target) + STATE_OFFSET) != 0) {
+          target = (target + 1) & newMask;
+        }
+        writeSlot(grown, slotOffset(target), tweetId, table.get(LONG, offset + FINGERPRINT_OFFSET), state);
+        moved++;
+      }
+      grown.set(INT, COUNT_OFFSET, moved);
+      grown.force();
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempPath);
+      throw e;
+    }
+
+    arena.close();
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    arena = Arena.ofShared();
+    table = map(path, arena);
+    capacity = newCapacity;
+    count = moved;
+  }
+
+  /**
+   * Returns a slot's state: 0 if empty, -1 if the slot is corrupted, otherwise the decision
+   * ordinal plus one.
+   */
+  private int state(MemorySegment segment, long offset) {
+    int state = segment.get(INT, offset + STATE_OFFSET);
+    if (state == 0) {
+      return 0;
+    }
+    int crc = slotChecksum(segment.get(LONG, offset), segment.get(LONG, offset + FINGERPRINT_OFFSET), state);
+    if (segment.get(INT, offset + CRC_OFFSET) != crc || state < 1 || state > DECISIONS.length) {
+      return -1;
+    }
+    return state;
+  }
+
+  private void writeSlot(MemorySegment segment, long offset, long tweetId, long fingerprint, int state) {
+    segment.set(LONG, offset, tweetId);
+    segment.set(LONG, offset + FINGERPRINT_OFFSET, fingerprint);
+    segment.set(INT, offset + STATE_OFFSET, state);
+    segment.set(INT, offset + CRC_OFFSET, slotChecksum(tweetId, fingerprint, state));
+  }
+
+  private int slotChecksum(long tweetId, long fingerprint, int state) {
+    scratch.clear();
+    scratch.putLong(tweetId).putLong(fingerprint).putInt(state);
+    checksum.reset();
+    checksum.update(scratch.array(), 0, scratch.position());
+    return (int) checksum.getValue();
+  }
+
+  private static Path tempPath(Path path) {
+    return path.resolveSibling(path.getFileName() + ".tmp");
+  }
+
+  private static long slotOffset(int i) {
+    return HEADER_BYTES + (long) i * SLOT_BYTES;
+  }
+
+  private static int mix(long value) {
+    return (int) (mix64(value) >>> 32);
+  }
+
+  private static long mix64(long value) {
+    long z = value * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Forces the table to disk and unmaps it.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      table.force();
+    } finally {
+      arena.close();
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.benx421.tweetaudit.models.Decision;
+
+/**
+ * Append-only journal of per-tweet analysis decisions, kept next to the checkpoint.
+ * Each decision is written as soon as it is known, so a run that fails part way through a batch
+ * keeps the tweets it already paid for, even those past the checkpoint. The checkpoint moves
+ * up to the first row not yet done and is written at most once per commit interval, so the
+ * journal covers rows finished out of order and rows whose checkpoint write is still pending.
+ * Records carry their row, so they may be written in any completion order, and lookups may
+ * come from a different thread than the one recording decisions.
+ *
+ * <pre>
+ * row (int), tweet id (long), decision (byte), CRC32 of the preceding fields (int)
+ * </pre>
+ *
+ * A torn or corrupted record at the end of the file, as left by a crash mid-write, is dropped on
+ * open along with anything after it.
+ */
+public final class DecisionJournal implements Closeable {
+
+  static final int RECORD_BYTES = Integer.BYTES + Long.BYTES + 1 + Integer.BYTES;
+
+  private static final Decision[] DECISIONS = Decision.values();
+
+  private final Path path;
+  private final Map<Integer, Entry> entries;
+  private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+  private final CRC32 checksum = new CRC32();
+  private FileChannel channel;
+
+  private record Entry(long tweetId, Decision decision) {
+  }
+
+  private DecisionJournal(Path path, Map<Integer, Entry> entries, FileChannel channel) {
+    this.path = path;
+    this.entries = entries;
+    this.channel = channel;
+  }
+
+  /**
+   * Returns the path of the journal kept next to a checkpoint file.
+   */
+  public static Path pathFor(String checkpointPath) {
+    Path checkpoint = Path.of(checkpointPath).normalize();
+    return checkpoint.resolveSibling(checkpoint.getFileName() + ".journal");
+  }
+
+  /**
+   * Opens a journal for appending, replaying the decisions it already holds. Records for rows
+   * before {@code fromRow} are already covered by the checkpoint and are ignored.
+   *
+   * @throws IOException if the journal cannot be read or opened
+   */
+  public static DecisionJournal open(Path path, int fromRow) throws IOException {
+    Path dir = path.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+
+    FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      Map<Integer, Entry> entries = new HashMap<>();
+      long valid = replay(channel, fromRow, entries);
+      if (valid < channel.size()) {
+        channel.truncate(valid);
+      }
+      channel.position(valid);
+      return new DecisionJournal(path, entries, channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static long replay(FileChannel channel, int fromRow, Map<Integer, Entry> entries)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 256);
+    CRC32 crc = new CRC32();
+    long valid = 0;
+    channel.position(0);
+    while (channel.read(buffer) > 0 || buffer.position() > 0) {
+      buffer.flip();
+      if (buffer.remaining() < RECORD_BYTES) {
+        break;
+      }
+      while (buffer.remaining() >= RECORD_BYTES) {
+        int start = buffer.position();
+        crc.reset();
+        crc.update(buffer.slice(start, RECORD_BYTES - Integer.BYTES));
+        int row = buffer.getInt();
+        long tweetId = buffer.getLong();
+        int decision = buffer.get();
+        int stored = buffer.getInt();
+        if (stored != (int) crc.getValue() || row < 0 || decision < 0 || decision >= DECISIONS.length) {
+          return valid;
+        }
+        if (row >= fromRow) {
+          entries.put(row, new Entry(tweetId, DECISIONS[decision]));
+        }
+        valid += RECORD_BYTES;
+      }
+      buffer.compact();
+    }
+    return valid;
+  }
+
+  /**
+   * Returns the decision recorded for a row, or null if the row has not been decided. A record
+   * for a different tweet id, left over from an earlier transformed file, does not count.
+   */
+  public synchronized Decision decision(int row, long tweetId) {
+    Entry entry = entries.get(row);
+    return entry != null && entry.tweetId() == tweetId ? entry.decision() : null;
+  }
+
+  /**
+   * Returns the number of rows with a recorded decision.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Appends a decision. The record is handed to the operating system before this returns, so it
+   * survives the process exiting.
+   *
+   * @throws IOException if the record cannot be written
+   */
+  public synchronized void record(int row, long tweetId, Decision decision) throws IOException {
+    if (row < 0) {
+      throw new IllegalArgumentException("Row cannot be negative: " + row);
+    }
+    if (decision == null) {
+      throw new IllegalArgumentException("Decision cannot be null");
+    }
+
+    write(channel, row, tweetId, decision);
+    entries.put(row, new Entry(tweetId, decision));
+  }
+
+  /**
+   * Drops the records the checkpoint now covers. Decisions for rows at or past
+   * {@code checkpointRow} are kept, so the journal can be compacted while later rows are still
+   * in flight.
+   *
+   * @throws IOException if the journal cannot be rewritten
+   */
+  public synchronized void compact(int checkpointRow) throws IOException {
+    entries.keySet().removeIf(row -> row < checkpointRow);
+    if (entries.isEmpty()) {
+      channel.truncate(0);
+      channel.position(0);
+      return;
+    }
+
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel temp =
+        FileChannel.open(
+            tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+        write(temp, entry.getKey(), entry.getValue().tweetId(), entry.getValue().decision());
+      }
+      temp.force(true);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempPath);
+      throw e;
+    }
+
+    channel.close();
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    Checkpoint.syncDirectory(path.toAbsolutePath().getParent());
+    channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private void write(FileChannel target, int row, long tweetId, Decision decision) throws IOException {
+    record.clear();
+    record.putInt(row).putLong(tweetId).put((byte) decision.ordinal());
+    checksum.reset();
+    checksum.update(record.array(), 0, record.position());
+    record.putInt((int) checksum.getValue());
+    record.flip();
+    while (record.hasRemaining()) {
+      target.write(record);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+}
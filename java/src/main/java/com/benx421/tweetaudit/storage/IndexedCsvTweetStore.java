@@ -0,0 +1,155 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Tweet store over the transformed tweets CSV that uses the sidecar {@link TweetIndex} to seek
+ * directly to the requested rows. Reading a batch costs time proportional to the batch, not to
+ * the size of the file.
+ */
+final class IndexedCsvTweetStore implements TweetStore {
+
+  private static final String HEADER = "id,text";
+
+  private final FileChannel data;
+  private final TweetIndex index;
+
+  private IndexedCsvTweetStore(FileChannel data, TweetIndex index) {
+    this.data = data;
+    this.index = index;
+  }
+
+  /**
+   * Opens the store if the index matches the CSV it sits next to.
+   *
+   * @return the store, or null if the index is missing, invalid, or stale
+   * @throws IOException if the CSV cannot be opened
+   */
+  static IndexedCsvTweetStore openIfCurrent(Path csvPath, Path indexPath) throws IOException {
+    TweetIndex index;
+    try {
+      index = TweetIndex.open(indexPath);
+    } catch (IOException e) {
+      return null;
+    }
+
+    FileChannel data = null;
+    try {
+      data = FileChannel.open(csvPath, StandardOpenOption.READ);
+      if (data.size() != index.dataLength() || !hasHeader(data, index.dataStart())) {
+        data.close();
+        index.close();
+        return null;
+      }
+      return new IndexedCsvTweetStore(data, index);
+    } catch (IOException e) {
+      if (data != null) {
+        data.close();
+      }
+      index.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int size() {
+    return index.rowCount();
+  }
+
+  @Override
+  public List<Tweet> read(int start, int count) throws IOException {
+    if (start < 0 || start >= index.rowCount() || count <= 0) {
+      return List.of();
+    }
+    int rows = Math.min(count, index.rowCount() - start);
+
+    TweetIndex.Span span = index.span(start, rows);
+    long[] offsets = span.offsets();
+    ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(offsets[rows] - offsets[0]));
+    readFully(data, bytes, offsets[0]);
+
+    CRC32 checksum = new CRC32();
+    for (int i = 0; i < rows; i++) {
+      checksum.reset();
+      checksum.update(bytes.array(), (int) (offsets[i] - offsets[0]), (int) (offsets[i + 1] - offsets[i]));
+      if ((int) checksum.getValue() != span.checksums()[i]) {
+        throw new IOException(
+            "Tweet index checksum mismatch at row " + (start + i) + "; re-run extract-tweets");
+      }
+    }
+
+    List<Tweet> tweets = new ArrayList<>(rows);
+    try (Reader reader =
+            new InputStreamReader(new ByteArrayInputStream(bytes.array()), StandardCharsets.UTF_8);
+        CSVParser parser = new CSVParser(reader, CSVFormat.RFC4180)) {
+      for (CSVRecord record : parser) {
+        if (record.size() != 2) {
+          throw new IOException(
+              "Invalid CSV record at row "
+                  + (start + tweets.size())
+                  + ": expected 2 fields, got "
+                  + record.size());
+        }
+        try {
+          tweets.add(new Tweet(record.get(0), record.get(1)));
+        } catch (IllegalArgumentException e) {
+          throw new IOException(
+              "Invalid CSV record at row " + (start + tweets.size()) + ": " + e.getMessage(), e);
+        }
+      }
+    }
+
+    if (tweets.size() != rows) {
+      throw new IOException(
+          "Tweet index is out of sync with CSV at row " + start + "; re-run extract-tweets");
+    }
+    return tweets;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      data.close();
+    } finally {
+      index.close();
+    }
+  }
+
+  private static boolean hasHeader(FileChannel data, long dataStart) throws IOException {
+    if (dataStart > HEADER.length() + 2) {
+      return false;
+    }
+    ByteBuffer header = ByteBuffer.allocate((int) dataStart);
+    readFully(data, header, 0);
+    return new String(header.array(), StandardCharsets.UTF_8).strip().equals(HEADER);
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of transformed tweets file");
+      }
+      position += read;
+    }
+  }
+}
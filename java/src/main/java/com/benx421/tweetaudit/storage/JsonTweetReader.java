@@ -0,0 +1,154 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.benx421.tweetaudit.models.Tweet;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streams tweets out of a Twitter archive JSON array at the token level.
+ * Only {@code id_str} and {@code full_text} are materialized; every other field is skipped
+ * without building objects for it, so memory use does not grow with archive size.
+ */
+final class JsonTweetReader implements TweetReader {
+
+  private static final String DATA_FILE_PREFIX = "window.YTD.";
+  private static final int MAX_PREFIX_LENGTH = 256;
+
+  private final JsonReader json;
+  private boolean started;
+  private boolean finished;
+
+  JsonTweetReader(Reader reader) {
+    this.json = new JsonReader(reader);
+  }
+
+  /**
+   * Creates a reader for an archive data file such as {@code tweets.js}, which wraps the tweet
+   * array in a {@code window.YTD.tweets.partN = } assignment. The prefix is consumed directly
+   * from the stream, so the file is never copied. Files that already start with a bare JSON
+   * array are accepted as-is.
+   *
+   * @param reader a buffered reader positioned at the start of the data file
+   * @return a reader over the tweets in the data file
+   * @throws IOException if the file has neither a data file prefix nor a JSON array
+   */
+  static JsonTweetReader forDataFile(BufferedReader reader) throws IOException {
+    StringBuilder prefix = new StringBuilder();
+    reader.mark(MAX_PREFIX_LENGTH);
+
+    int c = reader.read();
+    if (c == '\uFEFF') {
+      reader.mark(MAX_PREFIX_LENGTH);
+      c = reader.read();
+    }
+    while (c != -1 && c != '=' && prefix.length() < MAX_PREFIX_LENGTH - 1) {
+      if (c == '[' && prefix.toString().isBlank()) {
+        reader.reset();
+        return new JsonTweetReader(reader);
+      }
+      prefix.append((char) c);
+      c = reader.read();
+    }
+
+    if (c != '=' || !prefix.toString().strip().startsWith(DATA_FILE_PREFIX)) {
+      throw new IOException("Invalid archive data file: expected '" + DATA_FILE_PREFIX + "' prefix");
+    }
+
+    return new JsonTweetReader(reader);
+  }
+
+  @Override
+  public Tweet next() throws IOException {
+    if (finished) {
+      return null;
+    }
+
+    try {
+      if (!started) {
+        json.beginArray();
+        started = true;
+      }
+
+      if (!json.hasNext()) {
+        json.endArray();
+        if (json.peek() != JsonToken.END_DOCUMENT) {
+          throw new IOException("Invalid JSON format: unexpected content after tweet array");
+        }
+        finished = true;
+        return null;
+      }
+
+      return readWrapper();
+
+    } catch (IllegalStateException e) {
+      throw new IOException("Invalid JSON format: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    json.close();
+  }
+
+  private Tweet readWrapper() throws IOException {
+    if (json.peek() == JsonToken.NULL) {
+      throw new IOException("Invalid tweet wrapper: missing tweet data");
+    }
+
+    Tweet tweet = null;
+    json.beginObject();
+    while (json.hasNext()) {
+      if ("tweet".equals(json.nextName()) && json.peek() != JsonToken.NULL) {
+        tweet = readTweet();
+      } else {
+        json.skipValue();
+      }
+    }
+    json.endObject();
+
+    if (tweet == null) {
+      throw new IOException("Invalid tweet wrapper: missing tweet data");
+    }
+    return tweet;
+  }
+
+  private Tweet readTweet() throws IOException {
+    String id = null;
+    String fullText = null;
+
+    json.beginObject();
+    while (json.hasNext()) {
+      String name = json.nextName();
+      if ("id_str".equals(name)) {
+        id = nextStringOrNull();
+      } else if ("full_text".equals(name)) {
+        fullText = nextStringOrNull();
+      } else {
+        json.skipValue();
+      }
+    }
+    json.endObject();
+
+    if (id == null || fullText == null) {
+      throw new IOException("Invalid tweet data: missing id or full_text");
+    }
+
+    try {
+      return new Tweet(id, fullText);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid tweet data: " + e.getMessage(), e);
+    }
+  }
+
+  private String nextStringOrNull() throws IOException {
+    if (json.peek() == JsonToken.NULL) {
+      json.nextNull();
+      return null;
+    }
+    return json.nextString();
+  }
+}
@@ -0,0 +1,205 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Read-only tweet store that memory-maps a binary tweets file instead of loading it.
+ * Opening only reads the footer, so start-up cost does not depend on file size, and tweets live
+ * in the page cache rather than on the heap until a row is read. Rows are bounds-checked as they
+ * are read; the whole-file checksum is only verified by {@link #openReader(Path)}, which reads
+ * every row anyway, since checking it here would touch every page on open.
+ */
+final class MappedTweetStore implements TweetStore {
+
+  private static final ValueLayout.OfInt INT =
+      ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+  private static final ValueLayout.OfLong LONG =
+      ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+  private final Arena arena;
+  private final MemorySegment segment;
+  private final int rowCount;
+  private final long idsOffset;
+  private final long offsetsOffset;
+  private final int checksum;
+
+  private MappedTweetStore(Arena arena, MemorySegment segment, BinaryTweetFormat.Footer footer) {
+    this.arena = arena;
+    this.segment = segment;
+    this.rowCount = (int) footer.rowCount();
+    this.idsOffset = footer.idsOffset();
+    this.offsetsOffset = footer.offsetsOffset();
+    this.checksum = footer.checksum();
+  }
+
+  /**
+   * Maps a binary tweets file written by {@link BinaryTweetWriter}.
+   *
+   * @throws IOException if the file cannot be mapped or is not a valid binary tweets file
+   */
+  static MappedTweetStore open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      BinaryTweetFormat.Footer footer = BinaryTweetFormat.readFooter(channel);
+      Arena arena = Arena.ofShared();
+      try {
+        MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        return new MappedTweetStore(arena, segment, footer);
+      } catch (IOException | RuntimeException e) {
+        arena.close();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Maps a binary tweets file and returns a reader over its rows in order. Each row is copied to
+   * the heap only when it is read, and the checksum is verified as the rows go by; a mismatch is
+   * reported once the last row has been read.
+   *
+   * @throws IOException if the file cannot be mapped or is not a valid binary tweets file
+   */
+  static TweetReader openReader(Path path) throws IOException {
+    return open(path).new RowReader();
+  }
+
+  @Override
+  public int size() {
+    return rowCount;
+  }
+
+  @Override
+  public List<Tweet> read(int start, int count) throws IOException {
+    if (start < 0 || start >= rowCount || count <= 0) {
+      return List.of();
+    }
+
+    int end = (int) Math.min((long) start + count, rowCount);
+    List<Tweet> tweets = new ArrayList<>(end - start);
+    for (int row = start; row < end; row++) {
+      tweets.add(tweet(row));
+    }
+    return tweets;
+  }
+
+  /**
+   * Returns the tweet id of a row without touching its text.
+   */
+  @Override
+  public long id(int row) {
+    checkRow(row);
+    return segment.get(LONG, idsOffset + (long) row * Long.BYTES);
+  }
+
+  /**
+   * Returns a zero-copy view of a row's UTF-8 text. The view is only valid until the store is
+   * closed.
+   *
+   * @throws IOException if the row's text record lies outside the text column
+   */
+  MemorySegment text(int row) throws IOException {
+    checkRow(row);
+    long offset = segment.get(LONG, offsetsOffset + (long) row * Long.BYTES);
+    if (offset < BinaryTweetFormat.HEADER_BYTES || offset + Integer.BYTES > idsOffset) {
+      throw new IOException("Invalid binary tweets file: bad text offset at row " + row);
+    }
+    int length = segment.get(INT, offset);
+    if (length < 0 || offset + Integer.BYTES + length > idsOffset) {
+      throw new IOException("Invalid binary tweets file: bad text length at row " + row);
+    }
+    return segment.asSlice(offset + Integer.BYTES, length);
+  }
+
+  /**
+   * Materializes a single row as a {@link Tweet}.
+   *
+   * @throws IOException if the row's text record is invalid
+   */
+  Tweet tweet(int row) throws IOException {
+    return new Tweet(id(row), text(row).toArray(ValueLayout.JAVA_BYTE));
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+
+  /**
+   * Reads the rows of the store in order, checksumming the file as it goes, and closes the store
+   * when closed.
+   */
+  private final class RowReader implements TweetReader {
+    private static final int CHECKSUM_BUFFER_BYTES = 64 * 1024;
+
+    private final CRC32 crc = new CRC32();
+    private final byte[] buffer = new byte[CHECKSUM_BUFFER_BYTES];
+    private long position = BinaryTweetFormat.HEADER_BYTES;
+    private int row;
+    private boolean verified;
+
+    RowReader() {
+      checksum(0, BinaryTweetFormat.HEADER_BYTES);
+    }
+
+    @Override
+    public Tweet next() throws IOException {
+      if (row == rowCount) {
+        verify();
+        return null;
+      }
+      if (segment.get(LONG, offsetsOffset + (long) row * Long.BYTES) != position) {
+        throw new IOException("Invalid binary tweets file: text column does not match footer");
+      }
+      Tweet tweet = tweet(row);
+      long recordEnd = position + Integer.BYTES + tweet.contentLength();
+      checksum(position, recordEnd);
+      position = recordEnd;
+      row++;
+      return tweet;
+    }
+
+    @Override
+    public void close() {
+      MappedTweetStore.this.close();
+    }
+
+    private void verify() throws IOException {
+      if (verified) {
+        return;
+      }
+      if (position != idsOffset) {
+        throw new IOException("Invalid binary tweets file: text column does not match footer");
+      }
+      checksum(idsOffset, offsetsOffset + (long) rowCount * Long.BYTES);
+      if ((int) crc.getValue() != checksum) {
+        throw new IOException("Invalid binary tweets file: checksum mismatch");
+      }
+      verified = true;
+    }
+
+    private void checksum(long start, long end) {
+      for (long from = start; from < end; from += buffer.length) {
+        int length = (int) Math.min(buffer.length, end - from);
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, from, buffer, 0, length);
+        crc.update(buffer, 0, length);
+      }
+    }
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new IndexOutOfBoundsException("Row " + row + " out of range for " + rowCount + " tweets");
+    }
+  }
+}
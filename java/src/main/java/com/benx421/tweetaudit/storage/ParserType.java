@@ -1,9 +1,45 @@
 package com.benx421.tweetaudit.storage;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 /**
  * Format of input file to be parsed.
  */
 public enum ParserType {
   JSON,
-  CSV
+  JS,
+  ZIP,
+  CSV,
+  BINARY;
+
+  /**
+   * Infers the parser type from a file path. Archive data files ({@code .js}) and archive data
+   * directories map to {@link #JS}, downloaded archives ({@code .zip}) to {@link #ZIP},
+   * {@code .csv} files to {@link #CSV}, binary tweet files ({@code .bin}) to {@link #BINARY}, and
+   * anything else to {@link #JSON}.
+   *
+   * @param path the path to inspect
+   * @return the parser type for the path
+   */
+  public static ParserType fromPath(String path) {
+    if (path == null || path.isBlank()) {
+      throw new IllegalArgumentException("Path cannot be null or blank");
+    }
+
+    String lowerPath = path.toLowerCase();
+    if (lowerPath.endsWith(".js") || Files.isDirectory(Paths.get(path))) {
+      return JS;
+    }
+    if (lowerPath.endsWith(".zip")) {
+      return ZIP;
+    }
+    if (lowerPath.endsWith(".csv")) {
+      return CSV;
+    }
+    if (lowerPath.endsWith(".bin")) {
+      return BINARY;
+    }
+    return JSON;
+  }
 }
@@ -0,0 +1,753 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Set of completed tweet rows, stored as a compressed bitmap so progress need not be contiguous.
+ * Rows are split into chunks of 65536 by their high 16 bits, in the style of Roaring bitmaps.
+ * A chunk with few rows holds them as a sorted array, a denser chunk as a plain bitmap, one made
+ * of long stretches as a list of runs, and a fully completed chunk takes no space at all. Chunks
+ * are converted to their smallest kind before saving, so an archive processed mostly in order
+ * costs a few bytes per 65536 tweets whatever its size.
+ *
+ * <pre>
+ * magic (int), version (int), chunk count (int),
+ * per chunk: key (short), kind (byte), then one of
+ *   full:   nothing
+ *   array:  count (short), rows (short each)
+ *   bitmap: 1024 longs
+ *   runs:   count (short), start and length - 1 (short each) per run
+ * CRC32 of everything before it (int)
+ * </pre>
+ */
+public final class ProgressBitmap {
+
+  private static final int MAGIC = 0x5450524F; // "TPRO"
+  private static final int VERSION = 1;
+  private static final int CHUNK_BITS = 16;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int LOW_MASK = CHUNK_SIZE - 1;
+  private static final int MAX_KEY = Integer.MAX_VALUE >>> CHUNK_BITS;
+  private static final int ARRAY_MAX = 4096;
+  private static final int RUN_MAX = 2048;
+  private static final int WORDS = CHUNK_SIZE / Long.SIZE;
+
+  private static final byte FULL = 0;
+  private static final byte ARRAY = 1;
+  private static final byte BITMAP = 2;
+  private static final byte RUNS = 3;
+
+  private final TreeMap<Integer, Chunk> chunks = new TreeMap<>();
+
+  /**
+   * Returns the path of the progress bitmap kept next to a checkpoint file.
+   */
+  public static Path pathFor(String checkpointPath) {
+    Path checkpoint = Path.of(checkpointPath).normalize();
+    return checkpoint.resolveSibling(checkpoint.getFileName() + ".progress");
+  }
+
+  /**
+   * Loads a saved bitmap, or returns an empty one if the file does not exist.
+   *
+   * @throws IOException if the file cannot be read or is corrupted
+   */
+  public static ProgressBitmap load(Path path) throws IOException {
+    ProgressBitmap bitmap = new ProgressBitmap();
+    if (!Files.exists(path)) {
+      return bitmap;
+    }
+
+    byte[] bytes = Files.readAllBytes(path);
+    if (bytes.length < Integer.BYTES) {
+      throw new IOException("Invalid progress file: file is truncated");
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length - Integer.BYTES);
+    if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Integer.BYTES, Integer.BYTES).getInt()) {
+      throw new IOException("Invalid progress file: checksum mismatch");
+    }
+
+    try (DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - Integer.BYTES))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Invalid progress file: unrecognized format");
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        int key = in.readUnsignedShort();
+        if (key > MAX_KEY) {
+          throw new IOException("Invalid progress file: chunk key out of range");
+        }
+        bitmap.chunks.put(key, readChunk(in));
+      }
+      if (in.read() != -1) {
+        throw new IOException("Invalid progress file: unexpected trailing data");
+      }
+    } catch (EOFException e) {
+      throw new IOException("Invalid progress file: file is truncated", e);
+    }
+    return bitmap;
+  }
+
+  private static Chunk readChunk(DataInputStream in) throws IOException {
+    byte kind = in.readByte();
+    switch (kind) {
+      case FULL -> {
+        return FullChunk.INSTANCE;
+      }
+      case ARRAY -> {
+        int size = in.readUnsignedShort();
+        if (size == 0 || size > ARRAY_MAX) {
+          throw new IOException("Invalid progress file: bad array chunk size " + size);
+        }
+        char[] values = new char[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = in.readChar();
+          if (i > 0 && values[i] <= values[i - 1]) {
+            throw new IOException("Invalid progress file: unsorted array chunk");
+          }
+        }
+        return new ArrayChunk(values, size);
+      }
+      case BITMAP -> {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+          words[i] = in.readLong();
+        }
+        return new BitmapChunk(words).normalize();
+      }
+      case RUNS -> {
+        int count = in.readUnsignedShort();
+        if (count == 0 || count > RUN_MAX) {
+          throw new IOException("Invalid progress file: bad run chunk size " + count);
+        }
+        char[] starts = new char[count];
+        char[] ends = new char[count];
+        for (int i = 0; i < count; i++) {
+          starts[i] = in.readChar();
+          int end = starts[i] + in.readChar();
+          if (end > LOW_MASK || (i > 0 && starts[i] <= ends[i - 1] + 1)) {
+            throw new IOException("Invalid progress file: overlapping or unsorted runs");
+          }
+          ends[i] = (char) end;
+        }
+        return new RunChunk(starts, ends, count);
+      }
+      default -> throw new IOException("Invalid progress file: unknown chunk kind " + kind);
+    }
+  }
+
+  /**
+   * Writes the bitmap to a temporary file, forces it to disk, renames it over {@code path} and
+   * forces the rename to disk.
+   */
+  public void save(Path path) throws IOException {
+    chunks.replaceAll((key, chunk) -> chunk.optimize());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(chunks.size());
+    for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+      out.writeShort(entry.getKey());
+      entry.getValue().write(out);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+    out.writeInt((int) crc.getValue());
+
+    Path dir = path.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempPath);
+      throw e;
+    }
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    Checkpoint.syncDirectory(dir);
+  }
+
+  /**
+   * Marks a row as completed.
+   */
+  public void add(int row) {
+    checkRow(row);
+    int key = row >>> CHUNK_BITS;
+    Chunk chunk = chunks.get(key);
+    chunks.put(key, chunk == null ? ArrayChunk.of((char) (row & LOW_MASK)) : chunk.add((char) (row & LOW_MASK)));
+  }
+
+  /**
+   * Marks the rows in {@code [from, to)} as completed.
+   */
+  public void addRange(int from, int to) {
+    checkRow(from);
+    if (to < from) {
+      throw new IllegalArgumentException("Range end " + to + " is before start " + from);
+    }
+    int row = from;
+    while (row < to) {
+      int key = row >>> CHUNK_BITS;
+      int low = row & LOW_MASK;
+      int high = (int) Math.min(CHUNK_SIZE, (long) to - ((long) key << CHUNK_BITS));
+      if (low == 0 && high == CHUNK_SIZE) {
+        chunks.put(key, FullChunk.INSTANCE);
+      } else {
+        Chunk chunk = chunks.get(key);
+        BitmapChunk bits = chunk == null ? new BitmapChunk(new long[WORDS]) : chunk.toBitmap();
+        bits.setRange(low, high);
+        chunks.put(key, bits.normalize());
+      }
+      row = (key << CHUNK_BITS) + high;
+    }
+  }
+
+  public boolean contains(int row) {
+    if (row < 0) {
+      return false;
+    }
+    Chunk chunk = chunks.get(row >>> CHUNK_BITS);
+    return chunk != null && chunk.contains((char) (row & LOW_MASK));
+  }
+
+  /**
+   * Returns the number of completed rows.
+   */
+  public long cardinality() {
+    long total = 0;
+    for (Chunk chunk : chunks.values()) {
+      total += chunk.cardinality();
+    }
+    return total;
+  }
+
+  public boolean isEmpty() {
+    return chunks.isEmpty();
+  }
+
+  /**
+   * Returns the first row at or after {@code from} that is not completed, or -1 if every row up
+   * to {@link Integer#MAX_VALUE} is.
+   */
+  public int nextClear(int from) {
+    checkRow(from);
+    int key = from >>> CHUNK_BITS;
+    int low = from & LOW_MASK;
+    while (key <= MAX_KEY) {
+      Chunk chunk = chunks.get(key);
+      int next = chunk == null ? low : chunk.nextClear(low);
+      if (next < CHUNK_SIZE) {
+        return (key << CHUNK_BITS) | next;
+      }
+      key++;
+      low = 0;
+    }
+    return -1;
+  }
+
+  /**
+   * Adds every row completed in {@code other} to this bitmap.
+   */
+  public void or(ProgressBitmap other) {
+    for (Map.Entry<Integer, Chunk> entry : other.chunks.entrySet()) {
+      Chunk mine = chunks.get(entry.getKey());
+      chunks.put(entry.getKey(), mine == null ? entry.getValue().copy() : mine.or(entry.getValue()));
+    }
+  }
+
+  /**
+   * Returns the number of bytes {@link #save} writes, to keep an eye on the file's growth.
+   */
+  public long serializedSize() {
+    chunks.replaceAll((key, chunk) -> chunk.optimize());
+    long size = 4L * Integer.BYTES;
+    for (Chunk chunk : chunks.values()) {
+      size += Short.BYTES + 1 + chunk.payloadBytes();
+    }
+    return size;
+  }
+
+  private static void checkRow(int row) {
+    if (row < 0) {
+      throw new IllegalArgumentException("Row cannot be negative: " + row);
+    }
+  }
+
+  private abstract static class Chunk {
+
+    abstract Chunk add(char low);
+
+    abstract boolean contains(char low);
+
+    abstract int cardinality();
+
+    /** Returns the first clear position at or after {@code low}, or {@code CHUNK_SIZE}. */
+    abstract int nextClear(int low);
+
+    abstract BitmapChunk toBitmap();
+
+    abstract Chunk copy();
+
+    abstract int payloadBytes();
+
+    abstract void write(DataOutputStream out) throws IOException;
+
+    /** Returns the smallest chunk kind that holds the same rows. */
+    Chunk optimize() {
+      return toBitmap().normalize();
+    }
+
+    Chunk or(Chunk other) {
+      if (this instanceof FullChunk || other instanceof FullChunk) {
+        return FullChunk.INSTANCE;
+      }
+      if (this instanceof ArrayChunk a && other instanceof ArrayChunk b && a.size + b.size <= ARRAY_MAX) {
+        return a.merge(b);
+      }
+      BitmapChunk bits = toBitmap();
+      long[] words = other.toBitmap().words;
+      for (int i = 0; i < WORDS; i++) {
+        bits.words[i] |= words[i];
+      }
+      bits.recount();
+      return bits.normalize();
+    }
+  }
+
+  private static final class FullChunk extends Chunk {
+
+    static final FullChunk INSTANCE = new FullChunk();
+
+    @Override
+    Chunk add(char low) {
+      return this;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return true;
+    }
+
+    @Override
+    int cardinality() {
+      return CHUNK_SIZE;
+    }
+
+    @Override
+    int nextClear(int low) {
+      return CHUNK_SIZE;
+    }
+
+    @Override
+    BitmapChunk toBitmap() {
+      long[] words = new long[WORDS];
+      Arrays.fill(words, -1L);
+      return new BitmapChunk(words);
+    }
+
+    @Override
+    Chunk copy() {
+      return this;
+    }
+
+    @Override
+    Chunk optimize() {
+      return this;
+    }
+
+    @Override
+    int payloadBytes() {
+      return 0;
+    }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+      out.writeByte(FULL);
+    }
+  }
+
+  private static final class ArrayChunk extends Chunk {
+
+    private char[] values;
+    private int size;
+
+    ArrayChunk(char[] values, int size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    static ArrayChunk of(char low) {
+      return new ArrayChunk(new char[] {low, 0, 0, 0}, 1);
+    }
+
+    @Override
+    Chunk add(char low) {
+      int index = Arrays.binarySearch(values, 0, size, low);
+      if (index >= 0) {
+        return this;
+      }
+      if (size == ARRAY_MAX) {
+        return toBitmap().add(low);
+      }
+      int insert = -index - 1;
+      if (size == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size * 2));
+      }
+      System.arraycopy(values, insert, values, insert + 1, size - insert);
+      values[insert] = low;
+      size++;
+      return this;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return Arrays.binarySearch(values, 0, size, low) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return size;
+    }
+
+    @Override
+    int nextClear(int low) {
+      int index = Arrays.binarySearch(values, 0, size, (char) low);
+      if (index < 0) {
+        return low;
+      }
+      int next = low + 1;
+      for (int i = index + 1; i < size && values[i] == next; i++) {
+        next++;
+      }
+      return next;
+    }
+
+    @Override
+    BitmapChunk toBitmap() {
+      long[] words = new long[WORDS];
+      for (int i = 0; i < size; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+      return new BitmapChunk(words);
+    }
+
+    @Override
+    Chunk copy() {
+      return new ArrayChunk(Arrays.copyOf(values, size), size);
+    }
+
+    ArrayChunk merge(ArrayChunk other) {
+      char[] merged = new char[size + other.size];
+      int i = 0;
+      int j = 0;
+      int n = 0;
+      while (i < size || j < other.size) {
+        char next;
+        if (j == other.size || (i < size && values[i] < other.values[j])) {
+          next = values[i++];
+        } else if (i == size || other.values[j] < values[i]) {
+          next = other.values[j++];
+        } else {
+          next = values[i++];
+          j++;
+        }
+        merged[n++] = next;
+      }
+      return new ArrayChunk(merged, n);
+    }
+
+    @Override
+    int payloadBytes() {
+      return Short.BYTES + size * Character.BYTES;
+    }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+      out.writeByte(ARRAY);
+      out.writeShort(size);
+      for (int i = 0; i < size; i++) {
+        out.writeChar(values[i]);
+      }
+    }
+  }
+
+  private static final class BitmapChunk extends Chunk {
+
+    private final long[] words;
+    private int cardinality;
+
+    BitmapChunk(long[] words) {
+      this.words = words;
+      recount();
+    }
+
+    void recount() {
+      int count = 0;
+      for (long word : words) {
+        count += Long.bitCount(word);
+      }
+      cardinality = count;
+    }
+
+    void setRange(int from, int to) {
+      for (int bit = from; bit < to; ) {
+        int word = bit >>> 6;
+        int end = Math.min(to, (word + 1) << 6);
+        long mask = (end - bit == Long.SIZE ? -1L : ((1L << (end - bit)) - 1)) << bit;
+        cardinality += Long.bitCount(mask & ~words[word]);
+        words[word] |= mask;
+        bit = end;
+      }
+    }
+
+    /** Converts to the smallest chunk kind that holds the same rows. */
+    Chunk normalize() {
+      if (cardinality == CHUNK_SIZE) {
+        return FullChunk.INSTANCE;
+      }
+      int runs = runCount();
+      int runBytes = runs <= RUN_MAX ? Short.BYTES + runs * 2 * Character.BYTES : Integer.MAX_VALUE;
+      int arrayBytes = cardinality <= ARRAY_MAX ? Short.BYTES + cardinality * Character.BYTES : Integer.MAX_VALUE;
+      if (runBytes < arrayBytes && runBytes < WORDS * Long.BYTES) {
+        return toRuns(runs);
+      }
+      if (cardinality > ARRAY_MAX) {
+        return this;
+      }
+      char[] values = new char[Math.max(cardinality, 1)];
+      int n = 0;
+      for (int i = 0; i < WORDS; i++) {
+        long word = words[i];
+        while (word != 0) {
+          values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayChunk(values, n);
+    }
+
+    private int runCount() {
+      int runs = 0;
+      long carry = 0;
+      for (long word : words) {
+        runs += Long.bitCount(word & ~((word << 1) | carry));
+        carry = word >>> 63;
+      }
+      return runs;
+    }
+
+    private RunChunk toRuns(int runs) {
+      char[] starts = new char[runs];
+      char[] ends = new char[runs];
+      int n = 0;
+      int bit = nextSet(0);
+      while (bit < CHUNK_SIZE) {
+        int end = nextClear(bit);
+        starts[n] = (char) bit;
+        ends[n++] = (char) (end - 1);
+        bit = end < CHUNK_SIZE ? nextSet(end) : CHUNK_SIZE;
+      }
+      return new RunChunk(starts, ends, n);
+    }
+
+    private int nextSet(int low) {
+      int index = low >>> 6;
+      long word = words[index] & (-1L << low);
+      while (word == 0) {
+        if (++index == WORDS) {
+          return CHUNK_SIZE;
+        }
+        word = words[index];
+      }
+      return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    Chunk add(char low) {
+      long mask = 1L << low;
+      if ((words[low >>> 6] & mask) == 0) {
+        words[low >>> 6] |= mask;
+        cardinality++;
+      }
+      return cardinality == CHUNK_SIZE ? FullChunk.INSTANCE : this;
+    }
+
+    @Override
+    boolean contains(char low) {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    int nextClear(int low) {
+      int index = low >>> 6;
+      long word = ~words[index] & (-1L << low);
+      while (word == 0) {
+        if (++index == WORDS) {
+          return CHUNK_SIZE;
+        }
+        word = ~words[index];
+      }
+      return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    BitmapChunk toBitmap() {
+      return new BitmapChunk(words.clone());
+    }
+
+    @Override
+    Chunk copy() {
+      return toBitmap();
+    }
+
+    @Override
+    int payloadBytes() {
+      return WORDS * Long.BYTES;
+    }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+      out.writeByte(BITMAP);
+      for (long word : words) {
+        out.writeLong(word);
+      }
+    }
+  }
+
+  private static final class RunChunk extends Chunk {
+
+    private char[] starts;
+    private char[] ends;
+    private int count;
+    private int cardinality;
+
+    RunChunk(char[] starts, char[] ends, int count) {
+      this.starts = starts;
+      this.ends = ends;
+      this.count = count;
+      for (int i = 0; i < count; i++) {
+        cardinality += ends[i] - starts[i] + 1;
+      }
+    }
+
+    /** Returns the index of the last run starting at or before {@code low}, or -1. */
+    private int runAtOrBefore(int low) {
+      int index = Arrays.binarySearch(starts, 0, count, (char) low);
+      return index >= 0 ? index : -index - 2;
+    }
+
+    @Override
+    Chunk add(char low) {
+      int index = runAtOrBefore(low);
+      if (index >= 0 && low <= ends[index]) {
+        return this;
+      }
+      cardinality++;
+      boolean extendsPrevious = index >= 0 && ends[index] + 1 == low;
+      boolean extendsNext = index + 1 < count && starts[index + 1] == low + 1;
+      if (extendsPrevious && extendsNext) {
+        ends[index] = ends[index + 1];
+        System.arraycopy(starts, index + 2, starts, index + 1, count - index - 2);
+        System.arraycopy(ends, index + 2, ends, index + 1, count - index - 2);
+        count--;
+      } else if (extendsPrevious) {
+        ends[index] = low;
+      } else if (extendsNext) {
+        starts[index + 1] = low;
+      } else {
+        if (count == RUN_MAX) {
+          cardinality--;
+          return toBitmap().add(low);
+        }
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, Math.min(RUN_MAX, count * 2));
+          ends = Arrays.copyOf(ends, starts.length);
+        }
+        int insert = index + 1;
+        System.arraycopy(starts, insert, starts, insert + 1, count - insert);
+        System.arraycopy(ends, insert, ends, insert + 1, count - insert);
+        starts[insert] = low;
+        ends[insert] = low;
+        count++;
+      }
+      return cardinality == CHUNK_SIZE ? FullChunk.INSTANCE : this;
+    }
+
+    @Override
+    boolean contains(char low) {
+      int index = runAtOrBefore(low);
+      return index >= 0 && low <= ends[index];
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    int nextClear(int low) {
+      int index = runAtOrBefore(low);
+      return index >= 0 && low <= ends[index] ? ends[index] + 1 : low;
+    }
+
+    @Override
+    BitmapChunk toBitmap() {
+      BitmapChunk bits = new BitmapChunk(new long[WORDS]);
+      for (int i = 0; i < count; i++) {
+        bits.setRange(starts[i], ends[i] + 1);
+      }
+      return bits;
+    }
+
+    @Override
+    Chunk copy() {
+      return new RunChunk(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), count);
+    }
+
+    @Override
+    int payloadBytes() {
+      return Short.BYTES + count * 2 * Character.BYTES;
+    }
+
+    @Override
+    void write(DataOutputStream out) throws IOException {
+      out.writeByte(RUNS);
+      out.writeShort(count);
+      for (int i = 0; i < count; i++) {
+        out.writeChar(starts[i]);
+        out.writeChar(ends[i] - starts[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Tweet store that re-reads its file for every request, stopping as soon as the requested rows
+ * have been read. Used when there is no index to seek with: reading a batch costs the rows up to
+ * the end of the batch, not the whole file, and nothing is held between batches.
+ */
+final class StreamingTweetStore implements TweetStore {
+
+  private final TweetParser parser;
+
+  StreamingTweetStore(TweetParser parser) {
+    this.parser = parser;
+  }
+
+  /**
+   * Counts the tweets by reading the whole file.
+   */
+  @Override
+  public int size() throws IOException {
+    try (Stream<Tweet> tweets = parser.stream()) {
+      return Math.toIntExact(tweets.count());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public int sizeIfKnown() {
+    return -1;
+  }
+
+  @Override
+  public List<Tweet> read(int start, int count) throws IOException {
+    if (start < 0 || count <= 0) {
+      return List.of();
+    }
+
+    try (Stream<Tweet> tweets = parser.stream()) {
+      return tweets.skip(start).limit(count).toList();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Reads the file once, rather than once per row.
+   */
+  @Override
+  public boolean forEachId(IdVisitor visitor) throws IOException {
+    try (TweetReader reader = parser.open()) {
+      int row = 0;
+      for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+        if (!visitor.visit(row++, tweet.id())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
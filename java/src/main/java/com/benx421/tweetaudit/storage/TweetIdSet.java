@@ -0,0 +1,175 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The set of tweet ids already written to the transformed tweets file, persisted next to it so a
+ * later incremental extract can skip tweets it has seen before.
+ * Ids are held in an open-addressing table of primitive longs, about 16 bytes per id.
+ *
+ * <pre>
+ * magic (int), version (int), transformed row count (long), id count (int), ids (long each)
+ * </pre>
+ */
+public final class TweetIdSet {
+
+  private static final int MAGIC = 0x54574944; // "TWID"
+  private static final int VERSION = 1;
+  private static final long EMPTY = 0L;
+
+  private long[] table;
+  private int size;
+  private boolean containsEmpty;
+  private long rowCount;
+
+  public TweetIdSet() {
+    this.table = new long[64];
+  }
+
+  /**
+   * Returns the path of the id set kept next to a transformed tweets file.
+   */
+  public static Path pathFor(Path transformedPath) {
+    return transformedPath.resolveSibling(transformedPath.getFileName() + ".ids");
+  }
+
+  /**
+   * Loads a persisted id set.
+   *
+   * @throws IOException if the file cannot be read or is not an id set
+   */
+  public static TweetIdSet load(Path path) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Invalid tweet id set: unrecognized format");
+      }
+      long rows = in.readLong();
+      int count = in.readInt();
+      if (rows < 0 || count < 0) {
+        throw new IOException("Invalid tweet id set: negative counts");
+      }
+
+      TweetIdSet ids = new TweetIdSet();
+      for (int i = 0; i < count; i++) {
+        ids.add(in.readLong());
+      }
+      if (in.read() != -1) {
+        throw new IOException("Invalid tweet id set: unexpected trailing data");
+      }
+      ids.rowCount = rows;
+      return ids;
+    } catch (EOFException e) {
+      throw new IOException("Invalid tweet id set: file is truncated", e);
+    }
+  }
+
+  /**
+   * Writes the id set, replacing any existing file.
+   */
+  public void save(Path path) throws IOException {
+    long[] ids = toArray();
+    Arrays.sort(ids);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(rowCount);
+      out.writeInt(ids.length);
+      for (long id : ids) {
+        out.writeLong(id);
+      }
+    }
+  }
+
+  /**
+   * Adds an id.
+   *
+   * @return true if the id was not already in the set
+   */
+  public boolean add(long id) {
+    if (id == EMPTY) {
+      if (containsEmpty) {
+        return false;
+      }
+      containsEmpty = true;
+      size++;
+      return true;
+    }
+
+    int slot = slot(table, id);
+    if (table[slot] == id) {
+      return false;
+    }
+    table[slot] = id;
+    size++;
+    if (size * 2 > table.length) {
+      resize();
+    }
+    return true;
+  }
+
+  public boolean contains(long id) {
+    return id == EMPTY ? containsEmpty : table[slot(table, id)] == id;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of transformed rows the set was built from. A set whose row count no
+   * longer matches the transformed file is out of date.
+   */
+  public long rowCount() {
+    return rowCount;
+  }
+
+  public void setRowCount(long rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  private long[] toArray() {
+    long[] ids = new long[size];
+    int n = 0;
+    if (containsEmpty) {
+      ids[n++] = EMPTY;
+    }
+    for (long id : table) {
+      if (id != EMPTY) {
+        ids[n++] = id;
+      }
+    }
+    return ids;
+  }
+
+  private void resize() {
+    long[] old = table;
+    table = new long[old.length * 2];
+    for (long id : old) {
+      if (id != EMPTY) {
+        table[slot(table, id)] = id;
+      }
+    }
+  }
+
+  /**
+   * Returns the slot holding {@code id}, or the empty slot where it would be inserted.
+   */
+  private static int slot(long[] table, long id) {
+    int mask = table.length - 1;
+    int slot = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    while (table[slot] != EMPTY && table[slot] != id) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+}
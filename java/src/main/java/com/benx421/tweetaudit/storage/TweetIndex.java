@@ -0,0 +1,218 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sidecar offset index for the transformed tweets file.
+ *
+ * <p>The index holds one fixed-size entry per row (byte offset and CRC32 of the row bytes)
+ * followed by a trailer with the row count and the length of the indexed data file. Entries are
+ * fixed-size, so the entry for any row is found with a single positional read.
+ */
+final class TweetIndex implements Closeable {
+
+  private static final int MAGIC = 0x54574958; // "TWIX"
+  private static final int VERSION = 1;
+  private static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+  private static final int TRAILER_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+  private final FileChannel channel;
+  private final int rowCount;
+  private final long dataLength;
+
+  private TweetIndex(FileChannel channel, int rowCount, long dataLength) {
+    this.channel = channel;
+    this.rowCount = rowCount;
+    this.dataLength = dataLength;
+  }
+
+  static Path pathFor(Path dataPath) {
+    return dataPath.resolveSibling(dataPath.getFileName() + ".idx");
+  }
+
+  /**
+   * Opens and validates an index file.
+   *
+   * @param indexPath the index file
+   * @return the opened index
+   * @throws IOException if the file cannot be read or is not a valid index
+   */
+  static TweetIndex open(Path indexPath) throws IOException {
+    FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < TRAILER_BYTES) {
+        throw new IOException("Invalid tweet index: file is truncated");
+      }
+
+      ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+      readFully(channel, trailer, size - TRAILER_BYTES);
+      trailer.flip();
+      long rows = trailer.getLong();
+      long dataLength = trailer.getLong();
+      int version = trailer.getInt();
+      int magic = trailer.getInt();
+
+      if (magic != MAGIC || version != VERSION) {
+        throw new IOException("Invalid tweet index: unrecognized format");
+      }
+      if (rows < 0 || rows > Integer.MAX_VALUE || rows * ENTRY_BYTES + TRAILER_BYTES != size) {
+        throw new IOException("Invalid tweet index: row count does not match file size");
+      }
+
+      return new TweetIndex(channel, (int) rows, dataLength);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  int rowCount() {
+    return rowCount;
+  }
+
+  long dataLength() {
+    return dataLength;
+  }
+
+  /**
+   * Reads the entries for {@code count} rows starting at {@code start}.
+   *
+   * @return the row offsets (with the end offset of the last row appended) and row checksums
+   */
+  Span span(int start, int count) throws IOException {
+    if (start < 0 || count < 0 || (long) start + count > rowCount) {
+      throw new IndexOutOfBoundsException(
+          "Rows " + start + " to " + ((long) start + count) + " out of range for " + rowCount + " rows");
+    }
+
+    ByteBuffer entries = ByteBuffer.allocate(count * ENTRY_BYTES);
+    readFully(channel, entries, (long) start * ENTRY_BYTES);
+    entries.flip();
+
+    long[] offsets = new long[count + 1];
+    int[] checksums = new int[count];
+    for (int i = 0; i < count; i++) {
+      offsets[i] = entries.getLong();
+      checksums[i] = entries.getInt();
+    }
+    offsets[count] = start + count < rowCount ? offsetOf(start + count) : dataLength;
+    return new Span(offsets, checksums);
+  }
+
+  /**
+   * Returns the byte offset at which row data starts, i.e. the end of the CSV header.
+   */
+  long dataStart() throws IOException {
+    return rowCount > 0 ? offsetOf(0) : dataLength;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private long offsetOf(int row) throws IOException {
+    ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+    readFully(channel, entry, (long) row * ENTRY_BYTES);
+    return entry.flip().getLong();
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of tweet index");
+      }
+      position += read;
+    }
+  }
+
+  /**
+   * Row offsets and checksums for a contiguous range of rows.
+   */
+  record Span(long[] offsets, int[] checksums) {
+  }
+
+  /**
+   * Streams index entries to disk as rows are written.
+   */
+  static final class Writer implements Closeable {
+    private final DataOutputStream out;
+    private long rows;
+    private boolean finished;
+
+    Writer(Path indexPath) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)));
+    }
+
+    private Writer(OutputStream out, long rows) {
+      this.out = new DataOutputStream(new BufferedOutputStream(out));
+      this.rows = rows;
+    }
+
+    /**
+     * Reopens an existing index to add rows after the ones it already covers. The trailer is
+     * removed now and rewritten by {@link #finish(long)}.
+     *
+     * @param dataLength the current length of the indexed data file
+     * @return a writer continuing the index, or null if the index is invalid or stale
+     */
+    static Writer appendTo(Path indexPath, long dataLength) throws IOException {
+      int rows;
+      try (TweetIndex index = open(indexPath)) {
+        if (index.dataLength() != dataLength) {
+          return null;
+        }
+        rows = index.rowCount();
+      } catch (IOException e) {
+        return null;
+      }
+
+      try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+        channel.truncate((long) rows * ENTRY_BYTES);
+      }
+      return new Writer(Files.newOutputStream(indexPath, StandardOpenOption.APPEND), rows);
+    }
+
+    void add(long offset, int checksum) throws IOException {
+      out.writeLong(offset);
+      out.writeInt(checksum);
+      rows++;
+    }
+
+    /**
+     * Writes the trailer and closes the index.
+     *
+     * @param dataLength the final length of the indexed data file
+     */
+    void finish(long dataLength) throws IOException {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      try (out) {
+        out.writeLong(rows);
+        out.writeLong(dataLength);
+        out.writeInt(VERSION);
+        out.writeInt(MAGIC);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+}
@@ -1,114 +1,463 @@
 package com.benx421.tweetaudit.storage;
 
-import java.io.FileReader;
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipFile;
 
 import com.benx421.tweetaudit.models.Tweet;
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.annotations.SerializedName;
-
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 
 /**
  * Parses Twitter archive files into Tweet objects.
  */
 public final class TweetParser {
 
+  private static final Pattern DATA_FILE_PART = Pattern.compile("tweets(?:-part(\\d+))?\\.js");
+
   private final Path path;
   private final ParserType parserType;
-  private final Gson gson;
+  private final int parallelism;
 
   public TweetParser(String path, ParserType parserType) {
+    this(path, parserType, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a parser that uses up to {@code parallelism} threads for multi-part archives.
+   *
+   * @param path the file to parse; for {@link ParserType#JS} also an archive data directory
+   * @param parserType the format of the file
+   * @param parallelism the maximum number of archive parts parsed concurrently
+   */
+  public TweetParser(String path, ParserType parserType, int parallelism) {
     if (path == null || path.isBlank()) {
       throw new IllegalArgumentException("Path cannot be null or blank");
     }
     if (parserType == null) {
       throw new IllegalArgumentException("ParserType cannot be null");
     }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1, got: " + parallelism);
+    }
     this.path = Paths.get(path).normalize();
     this.parserType = parserType;
-    this.gson = new Gson();
+    this.parallelism = parallelism;
   }
 
   public List<Tweet> parse() throws IOException {
     return switch (parserType) {
-      case JSON -> parseJson();
+      case JSON, JS, ZIP, BINARY -> parseStream();
       case CSV -> parseCsv();
     };
   }
 
-  private List<Tweet> parseJson() throws IOException {
-    try (Reader reader = new FileReader(path.toFile())) {
-      TweetWrapper[] wrappers = gson.fromJson(reader, TweetWrapper[].class);
+  /**
+   * Opens a reader that yields tweets one at a time.
+   * JSON archives are streamed at the token level, so memory use stays flat regardless of
+   * archive size. When parallelism allows, a single large JSON or {@code tweets.js} file on disk
+   * is instead split into chunks that are parsed on all threads and returned in file order, with
+   * only a few chunks per thread decoded ahead of the reader.
+   * Multi-part {@code tweets.js} archives, on disk or inside a downloaded archive ZIP, are read in
+   * part order whatever the parallelism; when parallelism allows, the next parts are parsed ahead
+   * on other threads, a few small blocks of tweets at a time.
+   * Binary files are memory-mapped and each row is copied to the heap only when it is read; the
+   * checksum is verified as the rows go by and a mismatch is reported after the last row.
+   *
+   * @return a reader over the tweets in this file
+   * @throws IOException if the file cannot be opened
+   */
+  public TweetReader open() throws IOException {
+    return switch (parserType) {
+      case JSON ->
+          splitsAcrossCores(path)
+              ? ChunkedJsonParser.open(path, false, parallelism)
+              : new JsonTweetReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+      case JS -> openDataFiles();
+      case ZIP -> openZipArchive();
+      case CSV -> CsvTweetReader.open(path);
+      case BINARY -> MappedTweetStore.openReader(path);
+    };
+  }
 
-      if (wrappers == null) {
-        throw new IOException("Failed to parse JSON: empty or invalid content");
-      }
+  /**
+   * Returns a lazy stream over the tweets in this file. Tweets are parsed only as the stream is
+   * consumed, so short-circuiting operations such as {@code skip(n).limit(k)} stop reading once
+   * they have what they need. The stream must be closed to release the underlying reader; read
+   * failures surface as {@link UncheckedIOException}.
+   *
+   * @return a stream over the tweets in this file
+   * @throws IOException if the file cannot be opened
+   */
+  public Stream<Tweet> stream() throws IOException {
+    TweetReader reader = open();
+    Spliterator<Tweet> tweets =
+        new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+          @Override
+          public boolean tryAdvance(Consumer<? super Tweet> action) {
+            Tweet tweet;
+            try {
+              tweet = reader.next();
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            if (tweet == null) {
+              return false;
+            }
+            action.accept(tweet);
+            return true;
+          }
+        };
+    return StreamSupport.stream(tweets, false)
+        .onClose(
+            () -> {
+              try {
+                reader.close();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
 
-      List<Tweet> tweets = new ArrayList<>(wrappers.length);
-      for (TweetWrapper wrapper : wrappers) {
-        if (wrapper == null || wrapper.tweet == null) {
-          throw new IOException("Invalid tweet wrapper: missing tweet data");
-        }
-        if (wrapper.tweet.id == null || wrapper.tweet.fullText == null) {
-          throw new IOException("Invalid tweet data: missing id or full_text");
-        }
-        tweets.add(new Tweet(wrapper.tweet.id, wrapper.tweet.fullText));
+  private List<Tweet> parseStream() throws IOException {
+    try (TweetReader reader = open()) {
+      return readAll(reader);
+    }
+  }
+
+  private TweetReader openDataFiles() throws IOException {
+    return openParts(dataFileParts(), null);
+  }
+
+  /**
+   * Opens the {@code data/tweets.js} and {@code data/tweets-partN.js} entries of a downloaded
+   * archive ZIP. Only those entries are inflated; media and every other entry are never read.
+   */
+  private TweetReader openZipArchive() throws IOException {
+    ZipFile zip = new ZipFile(path.toFile(), StandardCharsets.UTF_8);
+    try {
+      List<DataFilePart> parts =
+          zip.stream()
+              .filter(entry -> !entry.isDirectory() && isZipDataFile(entry.getName()))
+              .map(entry -> new DataFilePart(entry.getName(), () -> zip.getInputStream(entry)))
+              .sorted(Comparator.comparingLong(DataFilePart::partNumber))
+              .toList();
+
+      if (parts.isEmpty()) {
+        throw new NoSuchFileException(path + "!/data/tweets.js");
       }
+      return openParts(parts, zip);
+    } catch (IOException | RuntimeException e) {
+      zip.close();
+      throw e;
+    }
+  }
+
+  private static boolean isZipDataFile(String entryName) {
+    int slash = entryName.lastIndexOf('/');
+    String dir = slash < 0 ? "" : entryName.substring(0, slash);
+    return (dir.equals("data") || dir.endsWith("/data"))
+        && DATA_FILE_PART.matcher(entryName.substring(slash + 1)).matches();
+  }
+
+  /**
+   * Opens a reader over the given parts. {@code resource}, if present, backs the parts and is
+   * closed once the parts are no longer needed.
+   */
+  private TweetReader openParts(List<DataFilePart> parts, Closeable resource) throws IOException {
+    if (parts.size() == 1 && parts.get(0).file() != null && splitsAcrossCores(parts.get(0).file())) {
+      return ChunkedJsonParser.open(parts.get(0).file(), true, parallelism);
+    }
+    if (parts.size() > 1 && parallelism > 1) {
+      return new ConcurrentPartsTweetReader(parts, resource, Math.min(parallelism, parts.size()));
+    }
+    return new PartsTweetReader(parts, resource);
+  }
 
-      return tweets;
+  /**
+   * Whether a single file is large enough to be worth parsing in chunks on several threads.
+   */
+  private boolean splitsAcrossCores(Path file) throws IOException {
+    return parallelism > 1 && Files.size(file) >= ChunkedJsonParser.MIN_PARALLEL_BYTES;
+  }
 
-    } catch (JsonSyntaxException e) {
-      throw new IOException("Invalid JSON format: " + e.getMessage(), e);
+  /**
+   * Resolves the data files making up the archive. A directory or a {@code tweets.js} file
+   * expands to {@code tweets.js} plus any sibling {@code tweets-partN.js} files, in part order.
+   */
+  private List<DataFilePart> dataFileParts() throws IOException {
+    Path dir;
+    if (Files.isDirectory(path)) {
+      dir = path;
+    } else if (!Files.exists(path)) {
+      throw new NoSuchFileException(path.toString());
+    } else if (path.getFileName().toString().equals("tweets.js")) {
+      dir = path.toAbsolutePath().getParent();
+    } else {
+      return List.of(DataFilePart.of(path));
     }
+
+    List<DataFilePart> parts;
+    try (Stream<Path> files = Files.list(dir)) {
+      parts =
+          files
+              .filter(file -> DATA_FILE_PART.matcher(file.getFileName().toString()).matches())
+              .map(DataFilePart::of)
+              .sorted(Comparator.comparingLong(DataFilePart::partNumber))
+              .toList();
+    }
+
+    if (parts.isEmpty()) {
+      throw new NoSuchFileException(dir.resolve("tweets.js").toString());
+    }
+    return parts;
+  }
+
+  private static List<Tweet> readAll(TweetReader reader) throws IOException {
+    List<Tweet> tweets = new ArrayList<>(1024);
+    for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+      tweets.add(tweet);
+    }
+    return tweets;
   }
 
   private List<Tweet> parseCsv() throws IOException {
-    try (Reader reader = new FileReader(path.toFile());
-        CSVParser parser = new CSVParser(reader, CSVFormat.RFC4180.withFirstRecordAsHeader())) {
+    try (TweetReader reader = CsvTweetReader.open(path)) {
+      return readAll(reader);
+    }
+  }
+
+  /**
+   * A single archive data file, either on disk or inside an archive ZIP.
+   */
+  private record DataFilePart(String name, Path file, PartOpener opener) {
 
-      // Validate headers
-      if (parser.getHeaderNames().isEmpty()) {
-        throw new IOException("CSV file is empty");
+    DataFilePart(String name, PartOpener opener) {
+      this(name, null, opener);
+    }
+
+    static DataFilePart of(Path file) {
+      return new DataFilePart(file.getFileName().toString(), file, () -> Files.newInputStream(file));
+    }
+
+    long partNumber() {
+      Matcher matcher = DATA_FILE_PART.matcher(name.substring(name.lastIndexOf('/') + 1));
+      if (!matcher.matches() || matcher.group(1) == null) {
+        return 0;
       }
-      if (!parser.getHeaderNames().equals(List.of("id", "text"))) {
-        throw new IOException("Invalid CSV format: expected 'id,text' headers");
+      return Long.parseLong(matcher.group(1)) + 1;
+    }
+
+    TweetReader openReader() throws IOException {
+      BufferedReader reader =
+          new BufferedReader(new InputStreamReader(opener.open(), StandardCharsets.UTF_8));
+      try {
+        return JsonTweetReader.forDataFile(reader);
+      } catch (IOException e) {
+        reader.close();
+        throw e;
       }
+    }
+  }
+
+  @FunctionalInterface
+  private interface PartOpener {
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * Streams the parts of a multi-part archive one after another, holding one part open at a time.
+   */
+  private static final class PartsTweetReader implements TweetReader {
+    private final Iterator<DataFilePart> parts;
+    private final Closeable resource;
+    private TweetReader current;
 
-      List<Tweet> tweets = new ArrayList<>(1024);
-      for (CSVRecord record : parser) {
-        if (record.size() != 2) {
-          throw new IOException(
-              "Invalid CSV record at line "
-                  + record.getRecordNumber()
-                  + ": expected 2 fields, got "
-                  + record.size());
+    PartsTweetReader(List<DataFilePart> parts, Closeable resource) {
+      this.parts = parts.iterator();
+      this.resource = resource;
+    }
+
+    @Override
+    public Tweet next() throws IOException {
+      while (true) {
+        if (current == null) {
+          if (!parts.hasNext()) {
+            return null;
+          }
+          current = parts.next().openReader();
         }
 
-        tweets.add(new Tweet(record.get("id"), record.get("text")));
+        Tweet tweet = current.next();
+        if (tweet != null) {
+          return tweet;
+        }
+        current.close();
+        current = null;
       }
+    }
 
-      return tweets;
+    @Override
+    public void close() throws IOException {
+      try {
+        if (current != null) {
+          current.close();
+          current = null;
+        }
+      } finally {
+        if (resource != null) {
+          resource.close();
+        }
+      }
     }
   }
 
-  private static final class TweetWrapper {
-    private TweetData tweet;
+  /**
+   * Streams the parts of a multi-part archive in part order while the following parts are parsed
+   * ahead on other threads. Each part hands its tweets over in small blocks through a bounded
+   * queue, so only a few blocks per part are held in memory however large the archive.
+   */
+  private static final class ConcurrentPartsTweetReader implements TweetReader {
+    private static final int BLOCK_SIZE = 512;
+    private static final int BLOCKS_AHEAD = 4;
+    private static final Block END = new Block(List.of(), null);
+
+    private final List<DataFilePart> parts;
+    private final Closeable resource;
+    private final int threads;
+    private final ExecutorService executor;
+    private final ArrayDeque<BlockingQueue<Block>> feeds = new ArrayDeque<>();
+    private Iterator<Tweet> current = Collections.emptyIterator();
+    private int started;
+    private IOException failure;
+    private boolean closed;
+
+    ConcurrentPartsTweetReader(List<DataFilePart> parts, Closeable resource, int threads) {
+      this.parts = parts;
+      this.resource = resource;
+      this.threads = threads;
+      this.executor = Executors.newFixedThreadPool(threads);
+    }
 
-    private static final class TweetData {
-      @SerializedName("id_str")
-      private String id;
+    @Override
+    public Tweet next() throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+      while (!current.hasNext()) {
+        startParts();
+        BlockingQueue<Block> feed = feeds.peek();
+        if (feed == null) {
+          return null;
+        }
+        Block block;
+        try {
+          block = feed.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while parsing archive parts");
+        }
+        if (block.failure() != null) {
+          failure = block.failure();
+          throw failure;
+        }
+        if (block == END) {
+          feeds.poll();
+        }
+        current = block.tweets().iterator();
+      }
+      return current.next();
+    }
+
+    private void startParts() {
+      while (feeds.size() < threads && started < parts.size()) {
+        DataFilePart part = parts.get(started++);
+        BlockingQueue<Block> feed = new ArrayBlockingQueue<>(BLOCKS_AHEAD);
+        feeds.add(feed);
+        executor.submit(() -> parse(part, feed));
+      }
+    }
+
+    private static Void parse(DataFilePart part, BlockingQueue<Block> feed) throws InterruptedException {
+      try (TweetReader reader = part.openReader()) {
+        List<Tweet> block = new ArrayList<>(BLOCK_SIZE);
+        for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+          block.add(tweet);
+          if (block.size() == BLOCK_SIZE) {
+            feed.put(new Block(block, null));
+            block = new ArrayList<>(BLOCK_SIZE);
+          }
+        }
+        if (!block.isEmpty()) {
+          feed.put(new Block(block, null));
+        }
+        feed.put(END);
+      } catch (IOException | RuntimeException e) {
+        feed.put(new Block(List.of(), new IOException(part.name() + ": " + e.getMessage(), e)));
+      }
+      return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        // Parts may read from the resource, so no task may outlive it.
+        executor.shutdownNow();
+        awaitTermination(executor);
+      } finally {
+        if (resource != null) {
+          resource.close();
+        }
+      }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+      boolean interrupted = false;
+      boolean terminated = false;
+      while (!terminated) {
+        try {
+          terminated = executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
 
-      @SerializedName("full_text")
-      private String fullText;
+    /** Tweets handed over from a part; {@link #END} ends the part and a failure ends the read. */
+    private record Block(List<Tweet> tweets, IOException failure) {
     }
   }
 }
@@ -0,0 +1,23 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Reads tweets one at a time from an underlying source.
+ * Must be used with try-with-resources to ensure proper resource cleanup.
+ */
+public interface TweetReader extends AutoCloseable {
+
+  /**
+   * Reads the next tweet from the source.
+   *
+   * @return the next tweet, or null once the source is exhausted
+   * @throws IOException if the source cannot be read or contains invalid data
+   */
+  Tweet next() throws IOException;
+
+  @Override
+  void close() throws IOException;
+}
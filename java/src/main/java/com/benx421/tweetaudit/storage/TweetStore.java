@@ -0,0 +1,128 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Random access to the rows of the transformed tweets file.
+ * Must be used with try-with-resources to ensure proper resource cleanup.
+ */
+public interface TweetStore extends AutoCloseable {
+
+  /**
+   * Returns the number of tweets in the store.
+   *
+   * @throws IOException if counting requires reading the file and the read fails
+   */
+  int size() throws IOException;
+
+  /**
+   * Returns the number of tweets if it is known without reading the whole file, otherwise -1.
+   */
+  default int sizeIfKnown() {
+    try {
+      return size();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Reads up to {@code count} tweets starting at row {@code start}.
+   *
+   * @param start the first row to read
+   * @param count the maximum number of rows to read
+   * @return the tweets in row order; fewer than {@code count} if the store ends first
+   * @throws IOException if the rows cannot be read or fail validation
+   */
+  List<Tweet> read(int start, int count) throws IOException;
+
+  /**
+   * Returns the tweet id of a row. Binary stores read it from the id column without decoding the
+   * row's text.
+   *
+   * @throws IOException if the row cannot be read
+   * @throws IndexOutOfBoundsException if the store has no such row
+   */
+  default long id(int row) throws IOException {
+    List<Tweet> tweets = read(row, 1);
+    if (tweets.isEmpty()) {
+      throw new IndexOutOfBoundsException("Row " + row + " out of range");
+    }
+    return tweets.get(0).id();
+  }
+
+  /**
+   * Passes the tweet id of each row to the visitor in row order, until the visitor returns false.
+   *
+   * @return whether every row was visited
+   * @throws IOException if the rows cannot be read
+   */
+  default boolean forEachId(IdVisitor visitor) throws IOException {
+    int size = size();
+    for (int row = 0; row < size; row++) {
+      if (!visitor.visit(row, id(row))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Receives the tweet ids of a store's rows.
+   */
+  @FunctionalInterface
+  interface IdVisitor {
+
+    /**
+     * Visits one row, returning whether to carry on to the next.
+     */
+    boolean visit(int row, long id) throws IOException;
+  }
+
+  @Override
+  void close() throws IOException;
+
+  /**
+   * Opens the transformed tweets file. Binary files are memory-mapped and rows are decoded only
+   * when read. For CSV files with a current sidecar index written by
+   * {@link CSVWriter#createIndexed(String)}, rows are read by seeking straight to them; otherwise
+   * each read streams the file from the start and stops at the end of the requested rows.
+   *
+   * @param path the transformed tweets file
+   * @return a store over the file
+   * @throws IOException if the file cannot be read
+   */
+  static TweetStore open(String path) throws IOException {
+    return open(path, ParserType.fromPath(path) == ParserType.BINARY ? ParserType.BINARY : ParserType.CSV);
+  }
+
+  /**
+   * Opens a transformed tweets file whose name does not give its format, such as a temporary
+   * file.
+   *
+   * @param format {@link ParserType#BINARY} or {@link ParserType#CSV}
+   */
+  static TweetStore open(String path, ParserType format) throws IOException {
+    if (format == ParserType.BINARY) {
+      return MappedTweetStore.open(Paths.get(path).normalize());
+    }
+
+    Path csvPath = Paths.get(path).normalize();
+    Path indexPath = TweetIndex.pathFor(csvPath);
+
+    if (Files.exists(indexPath)) {
+      TweetStore store = IndexedCsvTweetStore.openIfCurrent(csvPath, indexPath);
+      if (store != null) {
+        return store;
+      }
+    }
+
+    return new StreamingTweetStore(new TweetParser(path, ParserType.CSV));
+  }
+}
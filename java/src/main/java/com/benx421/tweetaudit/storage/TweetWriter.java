@@ -0,0 +1,53 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+/**
+ * Writes tweets to the transformed tweets file.
+ * Must be used with try-with-resources to ensure proper resource cleanup.
+ */
+public interface TweetWriter extends AutoCloseable {
+
+  void writeTweet(Tweet tweet) throws IOException;
+
+  @Override
+  void close() throws IOException;
+
+  /**
+   * Creates a writer for the transformed tweets file in the given format. CSV output is written
+   * with a sidecar offset index; see {@link CSVWriter#createIndexed(String)}.
+   *
+   * @param path the file to write
+   * @param format {@link ParserType#BINARY} or {@link ParserType#CSV}
+   * @return a new writer that truncates any existing file
+   * @throws IOException if the file cannot be created
+   */
+  static TweetWriter create(String path, ParserType format) throws IOException {
+    return switch (format) {
+      case BINARY -> BinaryTweetWriter.create(path);
+      case CSV -> CSVWriter.createIndexed(path);
+      default -> throw new IllegalArgumentException("Unsupported transformed tweets format: " + format);
+    };
+  }
+
+  /**
+   * Opens the transformed tweets file for adding rows after the existing ones, creating it if it
+   * does not exist. Existing rows keep their positions.
+   *
+   * @param path the file to extend
+   * @param format {@link ParserType#BINARY} or {@link ParserType#CSV}
+   * @return a writer positioned after the existing rows
+   * @throws IOException if the file cannot be opened
+   * @see CSVWriter#appendIndexed(String)
+   * @see BinaryTweetWriter#append(String)
+   */
+  static TweetWriter append(String path, ParserType format) throws IOException {
+    return switch (format) {
+      case BINARY -> BinaryTweetWriter.append(path);
+      case CSV -> CSVWriter.appendIndexed(path);
+      default -> throw new IllegalArgumentException("Unsupported transformed tweets format: " + format);
+    };
+  }
+}
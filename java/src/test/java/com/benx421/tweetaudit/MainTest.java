@@ -39,6 +39,8 @@ class MainTest {
         output.contains("Extract tweets from Twitter archive"),
         "Should describe extract-tweets");
     assertTrue(output.contains("Analyze tweets using Gemini AI"), "Should describe analyze-tweets");
+    assertTrue(output.contains("--all"), "Should describe the --all option");
+    assertTrue(output.contains("--max-batches"), "Should describe the --max-batches option");
   }
 
   @Test
@@ -0,0 +1,166 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveGeminiClientTest {
+
+  private static class SlowClient implements GeminiClient {
+    private volatile long delayMillis = 5;
+    private volatile GeminiException failure;
+    private volatile CountDownLatch gate;
+
+    @Override
+    public String generateContent(String prompt) throws Exception {
+      CountDownLatch waitFor = gate;
+      if (waitFor != null) {
+        waitFor.countDown();
+        waitFor.await();
+      }
+      Thread.sleep(delayMillis);
+      if (failure != null) {
+        throw failure;
+      }
+      return "{}";
+    }
+  }
+
+  @Test
+  void testRaisesLimitWhileRequestsSucceed() throws Exception {
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(new SlowClient(), 4);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals("{}", client.generateContent("prompt"));
+    }
+
+    assertEquals(4, client.limit());
+  }
+
+  @Test
+  void testReportsLimitInFlightAndLatestLatency() throws Exception {
+    SlowClient delegate = new SlowClient();
+    delegate.delayMillis = 30;
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(delegate, 4);
+
+    client.generateContent("prompt");
+
+    String report = client.report();
+    assertTrue(report.startsWith("adaptive limit 2/4, 0 in flight, latest latency "), report);
+    assertTrue(Integer.parseInt(report.replaceAll(".*latest latency (\\d+) ms.*", "$1")) >= 30, report);
+  }
+
+  @Test
+  void testHalvesLimitOnRateLimitError() throws Exception {
+    SlowClient delegate = new SlowClient();
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(delegate, 4);
+    for (int i = 0; i < 10; i++) {
+      client.generateContent("prompt");
+    }
+
+    delegate.failure = new GeminiException(GeminiException.Category.RATE_LIMITED, "429 Too Many Requests");
+    assertThrows(Exception.class, () -> client.generateContent("prompt"));
+
+    assertEquals(2, client.limit());
+    assertTrue(client.report().contains("1 cuts"), client.report());
+  }
+
+  @Test
+  void testCutsOnceForRequestsStartedTogether() throws Exception {
+    SlowClient delegate = new SlowClient();
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(delegate, 4);
+    for (int i = 0; i < 10; i++) {
+      client.generateContent("prompt");
+    }
+
+    delegate.failure = new GeminiException(GeminiException.Category.UNAVAILABLE, "503 model overloaded");
+    delegate.gate = new CountDownLatch(2);
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<?> first = callers.submit(() -> assertThrows(Exception.class, () -> client.generateContent("a")));
+      Future<?> second = callers.submit(() -> assertThrows(Exception.class, () -> client.generateContent("b")));
+      first.get();
+      second.get();
+    }
+
+    assertEquals(2, client.limit());
+  }
+
+  @Test
+  void testHalvesLimitWhenLatencyRises() throws Exception {
+    SlowClient delegate = new SlowClient();
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(delegate, 4);
+    for (int i = 0; i < 10; i++) {
+      client.generateContent("prompt");
+    }
+
+    delegate.delayMillis = 100;
+    client.generateContent("prompt");
+
+    assertEquals(2, client.limit());
+  }
+
+  @Test
+  void testOtherErrorsLeaveLimitAlone() throws Exception {
+    SlowClient delegate = new SlowClient();
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(delegate, 4);
+    for (int i = 0; i < 10; i++) {
+      client.generateContent("prompt");
+    }
+
+    delegate.failure = new GeminiException(GeminiException.Category.INVALID_REQUEST, "400 Invalid argument");
+    assertThrows(Exception.class, () -> client.generateContent("prompt"));
+
+    assertEquals(4, client.limit());
+  }
+
+  @Test
+  void testAsyncRequestsQueueForSlotAndFreeItOnCancel() {
+    List<CompletableFuture<String>> calls = new CopyOnWriteArrayList<>();
+    GeminiClient delegate =
+        new GeminiClient() {
+          @Override
+          public String generateContent(String prompt) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public CompletableFuture<String> generateContentAsync(String prompt) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+          }
+        };
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(delegate, 4);
+
+    CompletableFuture<String> first = client.generateContentAsync("first");
+    CompletableFuture<String> cancelled = client.generateContentAsync("second");
+    CompletableFuture<String> queued = client.generateContentAsync("third");
+    assertEquals(1, calls.size());
+
+    cancelled.cancel(true);
+    calls.get(0).complete("{}");
+    assertEquals("{}", first.join());
+    // The limit rose to 2 and the cancelled request gave up its place
+    assertEquals(2, calls.size());
+
+    queued.cancel(true);
+    assertTrue(calls.get(1).isCancelled());
+    assertTrue(client.report().startsWith("adaptive limit 2/4, 0 in flight"), client.report());
+  }
+
+  @Test
+  void testRejectsInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveGeminiClient(null, 4));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveGeminiClient(new SlowClient(), 0));
+  }
+}
@@ -0,0 +1,223 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.benx421.tweetaudit.models.AnalysisResult;
+import com.benx421.tweetaudit.models.Decision;
+import com.benx421.tweetaudit.models.Tweet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CoalescingAnalyzerTest {
+
+  private static class RecordingAnalyzer implements TweetAnalyzer {
+    private final List<Integer> requestSizes = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public AnalysisResult analyze(Tweet tweet) {
+      requestSizes.add(1);
+      return decide(tweet);
+    }
+
+    @Override
+    public List<AnalysisResult> analyzeAll(List<Tweet> tweets) {
+      requestSizes.add(tweets.size());
+      return tweets.stream().map(CoalescingAnalyzerTest::decide).toList();
+    }
+  }
+
+  @Test
+  void testCoalescesConcurrentCallsIntoFullRequests() throws Exception {
+    RecordingAnalyzer delegate = new RecordingAnalyzer();
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(delegate, 3, Duration.ofSeconds(30));
+
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<AnalysisResult>> results = new ArrayList<>();
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (long id = 1; id <= 6; id++) {
+        Tweet tweet = new Tweet(id, "Tweet " + id);
+        results.add(
+            callers.submit(
+                () -> {
+                  start.await();
+                  return analyzer.analyze(tweet);
+                }));
+      }
+      start.countDown();
+
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(decide(new Tweet(i + 1, "")), results.get(i).get());
+      }
+    }
+
+    assertEquals(List.of(3, 3), delegate.requestSizes);
+  }
+
+  @Test
+  void testSendsPartGroupOnceWindowPasses() throws AnalyzerException {
+    RecordingAnalyzer delegate = new RecordingAnalyzer();
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(delegate, 10, Duration.ofMillis(20));
+
+    long start = System.nanoTime();
+    AnalysisResult result = analyzer.analyze(new Tweet(2L, "Alone"));
+
+    assertEquals(AnalysisResult.forDeletion(2L), result);
+    assertEquals(List.of(1), delegate.requestSizes);
+    assertTrue(System.nanoTime() - start >= Duration.ofMillis(20).toNanos());
+  }
+
+  @Test
+  void testClosesGroupAtRequestTokenBudget() throws Exception {
+    int budget = 2 * TokenEstimator.estimate(new Tweet(1L, "Tweet 1")) + 1;
+    RecordingAnalyzer delegate =
+        new RecordingAnalyzer() {
+          @Override
+          public int requestTokenBudget() {
+            return budget;
+          }
+        };
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(delegate, 10, Duration.ofMillis(500));
+
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<AnalysisResult>> results = new ArrayList<>();
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (long id = 1; id <= 4; id++) {
+        Tweet tweet = new Tweet(id, "Tweet " + id);
+        results.add(
+            callers.submit(
+                () -> {
+                  start.await();
+                  return analyzer.analyze(tweet);
+                }));
+      }
+      start.countDown();
+      for (Future<AnalysisResult> result : results) {
+        result.get();
+      }
+    }
+
+    assertEquals(List.of(2, 2), delegate.requestSizes);
+  }
+
+  @Test
+  void testFailedRequestFailsEveryCaller() throws Exception {
+    TweetAnalyzer failing =
+        new TweetAnalyzer() {
+          @Override
+          public AnalysisResult analyze(Tweet tweet) throws AnalyzerException {
+            throw new AnalyzerException("unavailable");
+          }
+
+          @Override
+          public List<AnalysisResult> analyzeAll(List<Tweet> tweets) throws AnalyzerException {
+            throw new AnalyzerException("unavailable");
+          }
+        };
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(failing, 2, Duration.ofSeconds(30));
+
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<?> first =
+          callers.submit(() -> assertThrows(AnalyzerException.class, () -> analyzer.analyze(new Tweet(1L, "One"))));
+      Future<?> second =
+          callers.submit(() -> assertThrows(AnalyzerException.class, () -> analyzer.analyze(new Tweet(2L, "Two"))));
+      first.get();
+      second.get();
+    }
+  }
+
+  @Test
+  void testCoalescesAsyncCallsWithoutWaitingThreads() throws Exception {
+    RecordingAnalyzer delegate = new RecordingAnalyzer();
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(delegate, 3, Duration.ofSeconds(30));
+
+    List<CompletableFuture<AnalysisResult>> results = new ArrayList<>();
+    for (long id = 1; id <= 3; id++) {
+      results.add(analyzer.analyzeAsync(new Tweet(id, "Tweet " + id)));
+    }
+
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(decide(new Tweet(i + 1, "")), results.get(i).get(1, TimeUnit.SECONDS));
+    }
+    assertEquals(List.of(3), delegate.requestSizes);
+  }
+
+  @Test
+  void testSendsAsyncPartGroupOnceWindowPasses() throws Exception {
+    RecordingAnalyzer delegate = new RecordingAnalyzer();
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(delegate, 10, Duration.ofMillis(20));
+
+    CompletableFuture<AnalysisResult> result = analyzer.analyzeAsync(new Tweet(2L, "Alone"));
+
+    assertEquals(AnalysisResult.forDeletion(2L), result.get(1, TimeUnit.SECONDS));
+    assertEquals(List.of(1), delegate.requestSizes);
+  }
+
+  @Test
+  void testLeavesCancelledCallerOutOfGroup() throws Exception {
+    RecordingAnalyzer delegate = new RecordingAnalyzer();
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(delegate, 10, Duration.ofMillis(20));
+
+    CompletableFuture<AnalysisResult> cancelled = analyzer.analyzeAsync(new Tweet(1L, "One"));
+    CompletableFuture<AnalysisResult> kept = analyzer.analyzeAsync(new Tweet(2L, "Two"));
+    cancelled.cancel(true);
+
+    assertEquals(AnalysisResult.forDeletion(2L), kept.get(1, TimeUnit.SECONDS));
+    assertEquals(List.of(1), delegate.requestSizes);
+  }
+
+  @Test
+  void testCancelsRequestOnceEveryCallerHasCancelled() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    TweetAnalyzer stalling =
+        new RecordingAnalyzer() {
+          @Override
+          public List<AnalysisResult> analyzeAll(List<Tweet> tweets) {
+            started.countDown();
+            try {
+              Thread.sleep(Duration.ofSeconds(5).toMillis());
+            } catch (InterruptedException e) {
+              interrupted.countDown();
+            }
+            return List.of();
+          }
+        };
+    CoalescingAnalyzer analyzer = new CoalescingAnalyzer(stalling, 2, Duration.ofSeconds(30));
+
+    CompletableFuture<AnalysisResult> first = analyzer.analyzeAsync(new Tweet(1L, "One"));
+    CompletableFuture<AnalysisResult> second = analyzer.analyzeAsync(new Tweet(2L, "Two"));
+    assertTrue(started.await(1, TimeUnit.SECONDS));
+
+    first.cancel(true);
+    assertEquals(1, interrupted.getCount());
+    second.cancel(true);
+
+    assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testRejectsInvalidArguments() {
+    TweetAnalyzer delegate = new RecordingAnalyzer();
+
+    assertThrows(IllegalArgumentException.class, () -> new CoalescingAnalyzer(null, 2, Duration.ZERO));
+    assertThrows(IllegalArgumentException.class, () -> new CoalescingAnalyzer(delegate, 0, Duration.ZERO));
+    assertThrows(IllegalArgumentException.class, () -> new CoalescingAnalyzer(delegate, 2, Duration.ofMillis(-1)));
+  }
+
+  private static AnalysisResult decide(Tweet tweet) {
+    return new AnalysisResult(tweet.id(), tweet.id() % 2 == 0 ? Decision.DELETE : Decision.KEEP);
+  }
+}
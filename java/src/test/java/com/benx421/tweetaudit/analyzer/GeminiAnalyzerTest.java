@@ -1,8 +1,17 @@
 package com.benx421.tweetaudit.analyzer;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.benx421.tweetaudit.config.Criteria;
+import com.benx421.tweetaudit.config.Settings;
 import com.benx421.tweetaudit.models.AnalysisResult;
 import com.benx421.tweetaudit.models.Decision;
 import com.benx421.tweetaudit.models.Tweet;
@@ -10,6 +19,7 @@ import com.benx421.tweetaudit.models.Tweet;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,6 +39,22 @@ class GeminiAnalyzerTest {
     }
   }
 
+  private static class ScriptedGeminiClient implements GeminiClient {
+    private final Deque<String> responses = new ArrayDeque<>();
+    private final List<String> prompts = new ArrayList<>();
+
+    ScriptedGeminiClient then(String response) {
+      responses.add(response);
+      return this;
+    }
+
+    @Override
+    public String generateContent(String prompt) {
+      prompts.add(prompt);
+      return responses.remove();
+    }
+  }
+
   @Test
   void testAnalyzeWithDeleteDecision() throws AnalyzerException {
     MockGeminiClient client =
@@ -36,15 +62,13 @@ class GeminiAnalyzerTest {
             .withResponse("{\"decision\": \"DELETE\", \"reason\": \"Contains profanity\"}");
 
     GeminiAnalyzer analyzer =
-        new GeminiAnalyzer(
-            client, Criteria.defaults(), "testuser", "https://x.com", Duration.ofMillis(1));
+        new GeminiAnalyzer(client, Criteria.defaults(), Duration.ofMillis(1));
 
     Tweet tweet = new Tweet("123456", "Test tweet");
     AnalysisResult result = analyzer.analyze(tweet);
 
     assertEquals(Decision.DELETE, result.decision());
-    assertTrue(result.tweetUrl().contains("123456"));
-    assertTrue(result.tweetUrl().contains("testuser"));
+    assertEquals(123456L, result.tweetId());
   }
 
   @Test
@@ -53,7 +77,7 @@ class GeminiAnalyzerTest {
         new MockGeminiClient()
             .withResponse("{\"decision\": \"KEEP\", \"reason\": \"Professional content\"}");
 
-    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults(), "testuser");
+    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults());
 
     Tweet tweet = new Tweet("789", "Professional tweet");
     AnalysisResult result = analyzer.analyze(tweet);
@@ -66,7 +90,7 @@ class GeminiAnalyzerTest {
     MockGeminiClient client =
         new MockGeminiClient().withResponse("{\"decision\": \"delete\", \"reason\": \"test\"}");
 
-    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults(), "testuser");
+    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults());
 
     Tweet tweet = new Tweet("111", "Test");
     AnalysisResult result = analyzer.analyze(tweet);
@@ -78,7 +102,7 @@ class GeminiAnalyzerTest {
   void testAnalyzeWithEmptyResponse() {
     MockGeminiClient client = new MockGeminiClient().withResponse("");
 
-    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults(), "testuser");
+    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults());
 
     Tweet tweet = new Tweet("222", "Test");
     assertThrows(AnalyzerException.class, () -> analyzer.analyze(tweet));
@@ -88,7 +112,7 @@ class GeminiAnalyzerTest {
   void testAnalyzeWithInvalidJson() {
     MockGeminiClient client = new MockGeminiClient().withResponse("not valid json");
 
-    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults(), "testuser");
+    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults());
 
     Tweet tweet = new Tweet("333", "Test");
     assertThrows(AnalyzerException.class, () -> analyzer.analyze(tweet));
@@ -98,7 +122,7 @@ class GeminiAnalyzerTest {
   void testAnalyzeWithMissingDecisionField() {
     MockGeminiClient client = new MockGeminiClient().withResponse("{\"reason\": \"test\"}");
 
-    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults(), "testuser");
+    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults());
 
     Tweet tweet = new Tweet("444", "Test");
     assertThrows(AnalyzerException.class, () -> analyzer.analyze(tweet));
@@ -109,10 +133,196 @@ class GeminiAnalyzerTest {
     MockGeminiClient client =
         new MockGeminiClient().withResponse("{\"decision\": \"INVALID\", \"reason\": \"test\"}");
 
-    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults(), "testuser");
+    GeminiAnalyzer analyzer = GeminiAnalyzer.create(client, Criteria.defaults());
 
     Tweet tweet = new Tweet("555", "Test");
     assertThrows(AnalyzerException.class, () -> analyzer.analyze(tweet));
   }
 
+  @Test
+  void testAnalyzeAllPacksTweetsIntoOnePrompt() throws AnalyzerException {
+    ScriptedGeminiClient client =
+        new ScriptedGeminiClient()
+            .then("[{\"id\": \"2\", \"decision\": \"KEEP\"}, {\"id\": 1, \"decision\": \"delete\"}]");
+    GeminiAnalyzer analyzer = new GeminiAnalyzer(client, Criteria.defaults(), Duration.ofMillis(1));
+
+    List<AnalysisResult> results =
+        analyzer.analyzeAll(List.of(new Tweet("1", "First \"quoted\" tweet's"), new Tweet("2", "Second tweet")));
+
+    assertEquals(List.of(AnalysisResult.forDeletion(1L), AnalysisResult.forKeeping(2L)), results);
+    assertEquals(1, client.prompts.size());
+    String prompt = client.prompts.get(0);
+    assertTrue(prompt.contains("{\"id\":\"1\",\"text\":\"First \\\"quoted\\\" tweet's\"}"), prompt);
+    assertTrue(prompt.contains("{\"id\":\"2\",\"text\":\"Second tweet\"}"), prompt);
+    assertEquals(prompt.indexOf("criteria"), prompt.lastIndexOf("criteria"));
+  }
+
+  @Test
+  void testAnalyzeAllAsksAgainOnlyForUndecidedTweets() throws AnalyzerException {
+    ScriptedGeminiClient client =
+        new ScriptedGeminiClient()
+            .then(
+                "[{\"id\": \"1\", \"decision\": \"KEEP\"}, {\"id\": \"2\", \"decision\": \"MAYBE\"},"
+                    + " {\"decision\": \"DELETE\"}, \"junk\", {\"id\": \"9\", \"decision\": \"DELETE\"}]")
+            .then("[{\"id\": \"2\", \"decision\": \"DELETE\"}, {\"id\": \"3\", \"decision\": \"KEEP\"}]");
+    GeminiAnalyzer analyzer = new GeminiAnalyzer(client, Criteria.defaults(), Duration.ofMillis(1));
+
+    List<AnalysisResult> results =
+        analyzer.analyzeAll(List.of(new Tweet("1", "One"), new Tweet("2", "Two"), new Tweet("3", "Three")));
+
+    assertEquals(
+        List.of(AnalysisResult.forKeeping(1L), AnalysisResult.forDeletion(2L), AnalysisResult.forKeeping(3L)),
+        results);
+    assertEquals(2, client.prompts.size());
+    assertFalse(client.prompts.get(1).contains("\"One\""));
+    assertTrue(client.prompts.get(1).contains("\"Two\""));
+  }
+
+  @Test
+  void testAnalyzeAllFallsBackToSingleTweetPrompts() throws AnalyzerException {
+    ScriptedGeminiClient client =
+        new ScriptedGeminiClient()
+            .then("not a json array")
+            .then("[]")
+            .then("{\"decision\": \"DELETE\"}")
+            .then("{\"decision\": \"KEEP\"}")
+            .then("{\"decision\": \"KEEP\"}");
+    GeminiAnalyzer analyzer = new GeminiAnalyzer(client, Criteria.defaults(), Duration.ofMillis(1));
+
+    List<AnalysisResult> results =
+        analyzer.analyzeAll(List.of(new Tweet("1", "One"), new Tweet("2", "Two"), new Tweet("3", "Three")));
+
+    assertEquals(
+        List.of(AnalysisResult.forDeletion(1L), AnalysisResult.forKeeping(2L), AnalysisResult.forKeeping(3L)),
+        results);
+    assertEquals(5, client.prompts.size());
+    assertTrue(client.prompts.get(4).contains("Tweet ID: 3"));
+  }
+
+  @Test
+  void testAnalyzeAllSplitsTweetsByRequestTokenLimit() throws AnalyzerException {
+    List<Tweet> tweets = List.of(new Tweet("1", "One"), new Tweet("2", "Two"), new Tweet("3", "Three"));
+    GeminiAnalyzer unlimited =
+        new GeminiAnalyzer(new MockGeminiClient(), Criteria.defaults(), new RateLimiter(Duration.ZERO), 100_000);
+    int header = 100_000 - unlimited.requestTokenBudget();
+    int limit = header + TokenEstimator.estimate(tweets.get(0)) + TokenEstimator.estimate(tweets.get(1));
+    ScriptedGeminiClient client =
+        new ScriptedGeminiClient()
+            .then("[{\"id\": \"1\", \"decision\": \"KEEP\"}, {\"id\": \"2\", \"decision\": \"DELETE\"}]")
+            .then("{\"decision\": \"KEEP\"}");
+    GeminiAnalyzer analyzer =
+        new GeminiAnalyzer(client, Criteria.defaults(), new RateLimiter(Duration.ofMillis(1)), limit);
+
+    List<AnalysisResult> results = analyzer.analyzeAll(tweets);
+
+    assertEquals(
+        List.of(AnalysisResult.forKeeping(1L), AnalysisResult.forDeletion(2L), AnalysisResult.forKeeping(3L)),
+        results);
+    assertEquals(2, client.prompts.size());
+    assertFalse(client.prompts.get(0).contains("\"Three\""));
+    assertTrue(client.prompts.get(1).contains("Tweet ID: 3"));
+  }
+
+  @Test
+  void testAnalyzeAllHalvesRequestsGeminiRejectsAsTooLarge() throws AnalyzerException {
+    List<String> prompts = new ArrayList<>();
+    GeminiClient client =
+        prompt -> {
+          prompts.add(prompt);
+          if (prompt.contains("\"One\"") && prompt.contains("\"Four\"")) {
+            throw new GeminiException(
+                GeminiException.Category.TOKEN_LIMIT, "The input token count exceeds the maximum number of tokens");
+          }
+          return "[{\"id\": \"1\", \"decision\": \"KEEP\"}, {\"id\": \"2\", \"decision\": \"KEEP\"},"
+              + " {\"id\": \"3\", \"decision\": \"DELETE\"}, {\"id\": \"4\", \"decision\": \"DELETE\"}]";
+        };
+    GeminiAnalyzer analyzer =
+        new GeminiAnalyzer(client, Criteria.defaults(), new RateLimiter(Duration.ofMillis(1)), 100_000);
+    int budget = analyzer.requestTokenBudget();
+
+    List<AnalysisResult> results =
+        analyzer.analyzeAll(
+            List.of(new Tweet("1", "One"), new Tweet("2", "Two"), new Tweet("3", "Three"), new Tweet("4", "Four")));
+
+    assertEquals(
+        List.of(
+            AnalysisResult.forKeeping(1L),
+            AnalysisResult.forKeeping(2L),
+            AnalysisResult.forDeletion(3L),
+            AnalysisResult.forDeletion(4L)),
+        results);
+    assertEquals(3, prompts.size());
+    assertTrue(analyzer.requestTokenBudget() < budget);
+  }
+
+  @Test
+  void testTokenEstimateGrowsWithText() {
+    assertEquals(1, TokenEstimator.estimate("abc"));
+    assertEquals(2, TokenEstimator.estimate("abcd"));
+    assertEquals(TokenEstimator.TWEET_OVERHEAD_TOKENS + 1, TokenEstimator.estimate(new Tweet("1", "abc")));
+  }
+
+  @Test
+  void testAnalyzeAsyncUsesAsyncClient() throws Exception {
+    GeminiClient client =
+        new GeminiClient() {
+          @Override
+          public String generateContent(String prompt) {
+            throw new AssertionError("blocking call used");
+          }
+
+          @Override
+          public CompletableFuture<String> generateContentAsync(String prompt) {
+            return CompletableFuture.completedFuture("{\"decision\": \"DELETE\"}");
+          }
+        };
+    GeminiAnalyzer analyzer = new GeminiAnalyzer(client, Criteria.defaults(), Duration.ofMillis(1));
+
+    assertEquals(AnalysisResult.forDeletion(7L), analyzer.analyzeAsync(new Tweet("7", "Tweet")).get());
+  }
+
+  @Test
+  void testAnalyzeAsyncTimeoutCancelsRequest() throws Exception {
+    CompletableFuture<String> request = new CompletableFuture<>();
+    GeminiClient client =
+        new GeminiClient() {
+          @Override
+          public String generateContent(String prompt) {
+            throw new AssertionError("blocking call used");
+          }
+
+          @Override
+          public CompletableFuture<String> generateContentAsync(String prompt) {
+            return request;
+          }
+        };
+    GeminiAnalyzer analyzer = new GeminiAnalyzer(client, Criteria.defaults(), Duration.ofMillis(1));
+
+    CompletableFuture<AnalysisResult> result =
+        analyzer.analyzeAsync(new Tweet("7", "Tweet")).orTimeout(50, TimeUnit.MILLISECONDS);
+
+    ExecutionException e = assertThrows(ExecutionException.class, result::get);
+    assertTrue(e.getCause() instanceof TimeoutException, e.getCause().toString());
+    assertTrue(request.isCancelled());
+  }
+
+  @Test
+  void testAnalyzeAsyncReportsFailureAsAnalyzerException() {
+    MockGeminiClient client = new MockGeminiClient().withResponse("{\"decision\": \"MAYBE\"}");
+    GeminiAnalyzer analyzer = new GeminiAnalyzer(client, Criteria.defaults(), Duration.ofMillis(1));
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> analyzer.analyzeAsync(new Tweet("7", "Tweet")).get());
+    assertTrue(e.getCause() instanceof AnalyzerException, e.getCause().toString());
+  }
+
+  @Test
+  void testFromSettingsExposesAdaptiveClientOnlyWhenEnabled() {
+    Settings.Builder settings = Settings.builder().geminiApiKey("fake-api-key").maxInFlight(4);
+
+    assertTrue(GeminiAnalyzer.fromSettings(settings.build()).adaptiveClient().isEmpty());
+    AdaptiveGeminiClient adaptive =
+        GeminiAnalyzer.fromSettings(settings.adaptiveConcurrency(true).build()).adaptiveClient().orElseThrow();
+    assertTrue(adaptive.report().startsWith("adaptive limit 1/4, 0 in flight"), adaptive.report());
+  }
 }
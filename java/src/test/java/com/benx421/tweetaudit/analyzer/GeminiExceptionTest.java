@@ -0,0 +1,108 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiExceptionTest {
+
+  @Test
+  void testClassifiesApiErrorsByCode() {
+    assertEquals(GeminiException.Category.RATE_LIMITED, category(429, "RESOURCE_EXHAUSTED", "Quota exceeded"));
+    assertEquals(GeminiException.Category.UNAVAILABLE, category(503, "UNAVAILABLE", "The model is overloaded"));
+    assertEquals(GeminiException.Category.TIMEOUT, category(504, "DEADLINE_EXCEEDED", "Deadline exceeded"));
+    assertEquals(GeminiException.Category.AUTHENTICATION, category(403, "PERMISSION_DENIED", "API key invalid"));
+    assertEquals(
+        GeminiException.Category.TOKEN_LIMIT,
+        category(400, "INVALID_ARGUMENT", "The input token count (2000000) exceeds the maximum number of tokens"));
+    assertEquals(GeminiException.Category.INVALID_REQUEST, category(400, "INVALID_ARGUMENT", "connection field"));
+  }
+
+  @Test
+  void testClassifiesApiErrorsByStatusBeforeCode() {
+    assertEquals(GeminiException.Category.RATE_LIMITED, category(0, "RESOURCE_EXHAUSTED", ""));
+    assertEquals(GeminiException.Category.AUTHENTICATION, category(0, "UNAUTHENTICATED", ""));
+    assertEquals(GeminiException.Category.UNAVAILABLE, category(500, "INTERNAL", ""));
+    assertEquals(GeminiException.Category.INVALID_REQUEST, category(404, "NOT_FOUND", "Model not found"));
+    assertEquals(GeminiException.Category.TOKEN_LIMIT, category(413, null, "Request payload size exceeds the limit"));
+    assertEquals(GeminiException.Category.TOKEN_LIMIT, category(413, "INVALID_ARGUMENT", "Payload too large"));
+  }
+
+  @Test
+  void testReadsTokenCountMessageOnlyForInvalidArgument() {
+    String message = "The input token count (2000000) exceeds the maximum number of tokens";
+
+    assertEquals(GeminiException.Category.TOKEN_LIMIT, category(400, null, message));
+    assertEquals(GeminiException.Category.RATE_LIMITED, category(429, "RESOURCE_EXHAUSTED", message));
+    assertEquals(GeminiException.Category.AUTHENTICATION, category(403, "PERMISSION_DENIED", message));
+    assertEquals(GeminiException.Category.INVALID_REQUEST, category(404, "NOT_FOUND", message));
+  }
+
+  @Test
+  void testReadsRetryDelayFromRateLimitError() {
+    GeminiException error =
+        GeminiException.fromApiError(
+            429,
+            "RESOURCE_EXHAUSTED",
+            "Quota exceeded. Please retry in 37.5s. {\"@type\": \"RetryInfo\", \"retryDelay\": \"37s\"}",
+            null);
+
+    assertEquals(Optional.of(Duration.ofMillis(37_500)), error.retryAfter());
+    assertEquals(Optional.empty(), GeminiException.fromApiError(503, null, "Overloaded", null).retryAfter());
+  }
+
+  @Test
+  void testClassifiesTransportFailures() {
+    RuntimeException timeout = new RuntimeException("request failed", new SocketTimeoutException("read timed out"));
+    RuntimeException network = new RuntimeException("request failed", new IOException("connection reset"));
+
+    assertEquals(GeminiException.Category.TIMEOUT, GeminiException.fromFailure(timeout).category());
+    assertEquals(GeminiException.Category.UNAVAILABLE, GeminiException.fromFailure(network).category());
+    assertEquals(
+        GeminiException.Category.UNKNOWN,
+        GeminiException.fromFailure(new IllegalStateException("connection")).category());
+  }
+
+  @Test
+  void testClassifiesCancellationBeforeTimeout() {
+    assertEquals(
+        GeminiException.Category.CANCELLED,
+        GeminiException.fromFailure(new CancellationException()).category());
+    assertEquals(
+        GeminiException.Category.CANCELLED,
+        GeminiException.fromFailure(new RuntimeException(new InterruptedException())).category());
+    assertEquals(
+        GeminiException.Category.CANCELLED,
+        GeminiException.fromFailure(new InterruptedIOException("interrupted")).category());
+    assertEquals(
+        GeminiException.Category.TIMEOUT,
+        GeminiException.fromFailure(new HttpTimeoutException("request timed out")).category());
+    assertEquals(
+        GeminiException.Category.TIMEOUT,
+        GeminiException.fromFailure(new TimeoutException()).category());
+    assertFalse(GeminiException.Category.CANCELLED.retryable());
+  }
+
+  @Test
+  void testFindsExceptionInCauseChain() {
+    GeminiException cause = new GeminiException(GeminiException.Category.TIMEOUT, "timed out");
+
+    assertTrue(GeminiException.find(new AnalyzerException("Failed", cause)).isPresent());
+    assertTrue(GeminiException.find(new AnalyzerException("Failed")).isEmpty());
+  }
+
+  private static GeminiException.Category category(int code, String status, String message) {
+    return GeminiException.fromApiError(code, status, message, null).category();
+  }
+}
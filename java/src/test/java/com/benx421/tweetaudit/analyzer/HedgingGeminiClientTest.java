@@ -0,0 +1,263 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingGeminiClientTest {
+
+  private static final int WARM_UP = 20;
+
+  /** Answers quickly, except that the call after the warm-up hangs until it is interrupted. */
+  private static class StallingClient implements GeminiClient {
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+
+    @Override
+    public String generateContent(String prompt) throws Exception {
+      int call = calls.incrementAndGet();
+      if (call == WARM_UP + 1) {
+        try {
+          Thread.sleep(Duration.ofSeconds(2).toMillis());
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+          throw e;
+        }
+        return "slow";
+      }
+      Thread.sleep(2);
+      return call > WARM_UP ? "hedge" : "fast";
+    }
+  }
+
+  /** Answers quickly when called blocking; async calls wait until the test completes them. */
+  private static class PendingClient implements GeminiClient {
+    private final List<CompletableFuture<String>> calls = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String generateContent(String prompt) throws Exception {
+      Thread.sleep(2);
+      return "fast";
+    }
+
+    @Override
+    public CompletableFuture<String> generateContentAsync(String prompt) {
+      CompletableFuture<String> call = new CompletableFuture<>();
+      calls.add(call);
+      return call;
+    }
+
+    void awaitCalls(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+      while (calls.size() < count && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      assertEquals(count, calls.size());
+    }
+  }
+
+  /** Waits for the report, since an async win is counted just after the response completes. */
+  private static void awaitReport(HedgingGeminiClient client, String prefix) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+    while (!client.report().startsWith(prefix) && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(client.report().startsWith(prefix), client.report());
+  }
+
+  private static void warmUp(GeminiClient client) throws Exception {
+    for (int i = 0; i < WARM_UP; i++) {
+      client.generateContent("prompt");
+    }
+  }
+
+  @Test
+  void testHedgesSlowRequestAndCancelsIt() throws Exception {
+    StallingClient delegate = new StallingClient();
+    HedgingGeminiClient client = new HedgingGeminiClient(delegate, new RateLimiter(Duration.ZERO), 50, 100);
+    warmUp(client);
+
+    long start = System.nanoTime();
+    String response = client.generateContent("prompt");
+
+    assertEquals("hedge", response);
+    assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    assertTrue(delegate.interrupted.await(1, TimeUnit.SECONDS));
+    assertTrue(client.report().startsWith("hedged 1 of 21 requests (1 answered first)"), client.report());
+  }
+
+  @Test
+  void testDoesNotHedgeBeyondBudget() throws Exception {
+    StallingClient delegate = new StallingClient();
+    HedgingGeminiClient client = new HedgingGeminiClient(delegate, new RateLimiter(Duration.ZERO), 50, 0);
+    warmUp(client);
+
+    assertEquals("slow", client.generateContent("prompt"));
+    assertEquals(WARM_UP + 1, delegate.calls.get());
+  }
+
+  @Test
+  void testDoesNotHedgeWithoutRateLimiterSlot() throws Exception {
+    StallingClient delegate = new StallingClient();
+    RateLimiter limiter = new RateLimiter(Duration.ofHours(1));
+    limiter.reserve(0);
+    HedgingGeminiClient client = new HedgingGeminiClient(delegate, limiter, 50, 100);
+    warmUp(client);
+
+    assertEquals("slow", client.generateContent("prompt"));
+    assertEquals(WARM_UP + 1, delegate.calls.get());
+  }
+
+  @Test
+  void testDoesNotHedgeBeforeEnoughLatencies() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    HedgingGeminiClient client =
+        new HedgingGeminiClient(
+            prompt -> {
+              calls.incrementAndGet();
+              Thread.sleep(20);
+              return "ok";
+            },
+            new RateLimiter(Duration.ZERO),
+            1,
+            100);
+
+    for (int i = 0; i < 5; i++) {
+      client.generateContent("prompt");
+    }
+
+    assertEquals(5, calls.get());
+  }
+
+  @Test
+  void testRecordsLatencyOfFailedAttempt() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    HedgingGeminiClient client =
+        new HedgingGeminiClient(
+            prompt -> {
+              if (calls.incrementAndGet() > WARM_UP) {
+                Thread.sleep(60);
+                throw new GeminiException(GeminiException.Category.UNAVAILABLE, "503 Service Unavailable");
+              }
+              Thread.sleep(2);
+              return "ok";
+            },
+            new RateLimiter(Duration.ZERO),
+            99,
+            0);
+    warmUp(client);
+
+    assertThrows(GeminiException.class, () -> client.generateContent("prompt"));
+
+    int hedgeDelayMillis = Integer.parseInt(client.report().replaceAll(".*p99 latency (\\d+) ms", "$1"));
+    assertTrue(hedgeDelayMillis >= 60, client.report());
+  }
+
+  @Test
+  void testDoesNotHedgeRequestQueuedBehindAdaptiveLimit() throws Exception {
+    CountDownLatch holding = new CountDownLatch(1);
+    AtomicInteger fastCalls = new AtomicInteger();
+    GeminiClient delegate =
+        prompt -> {
+          switch (prompt) {
+            case "hold" -> {
+              holding.countDown();
+              Thread.sleep(300);
+            }
+            case "fast" -> {
+              fastCalls.incrementAndGet();
+              Thread.sleep(2);
+            }
+            default -> Thread.sleep(20);
+          }
+          return prompt;
+        };
+    HedgingGeminiClient hedging = new HedgingGeminiClient(delegate, new RateLimiter(Duration.ZERO), 50, 100);
+    AdaptiveGeminiClient client = new AdaptiveGeminiClient(hedging, 1);
+    for (int i = 0; i < WARM_UP; i++) {
+      client.generateContent("warm-up");
+    }
+
+    Thread holder = Thread.ofVirtual().start(() -> {
+      try {
+        client.generateContent("hold");
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertTrue(holding.await(1, TimeUnit.SECONDS));
+    assertEquals("fast", client.generateContent("fast"));
+    holder.join();
+
+    assertEquals(1, fastCalls.get());
+    // Only the request holding the slot was hedged
+    assertTrue(hedging.report().startsWith("hedged 1 of 22 requests"), hedging.report());
+  }
+
+  @Test
+  void testHedgesSlowAsyncRequestOnTimer() throws Exception {
+    PendingClient delegate = new PendingClient();
+    HedgingGeminiClient client = new HedgingGeminiClient(delegate, new RateLimiter(Duration.ZERO), 50, 100);
+    warmUp(client);
+
+    CompletableFuture<String> response = client.generateContentAsync("prompt");
+    delegate.awaitCalls(2);
+    delegate.calls.get(1).complete("hedge");
+
+    assertEquals("hedge", response.get(1, TimeUnit.SECONDS));
+    assertTrue(delegate.calls.get(0).isCancelled());
+    awaitReport(client, "hedged 1 of 21 requests (1 answered first)");
+  }
+
+  @Test
+  void testAsyncRequestWithRefusedHedgeFailsWithItsAttempt() throws Exception {
+    PendingClient delegate = new PendingClient();
+    HedgingGeminiClient client = new HedgingGeminiClient(delegate, new RateLimiter(Duration.ZERO), 50, 0);
+    warmUp(client);
+
+    CompletableFuture<String> response = client.generateContentAsync("prompt");
+    delegate.awaitCalls(1);
+    Thread.sleep(50);
+    delegate.calls.get(0).completeExceptionally(new IllegalStateException("attempt failed"));
+
+    ExecutionException exception = assertThrows(ExecutionException.class, () -> response.get(1, TimeUnit.SECONDS));
+    assertEquals("attempt failed", exception.getCause().getMessage());
+    assertEquals(1, delegate.calls.size());
+    assertTrue(client.report().startsWith("hedged 0 of 21 requests"), client.report());
+  }
+
+  @Test
+  void testCancellingAsyncRequestCancelsBothAttempts() throws Exception {
+    PendingClient delegate = new PendingClient();
+    HedgingGeminiClient client = new HedgingGeminiClient(delegate, new RateLimiter(Duration.ZERO), 50, 100);
+    warmUp(client);
+
+    CompletableFuture<String> response = client.generateContentAsync("prompt");
+    delegate.awaitCalls(2);
+    response.cancel(true);
+
+    assertTrue(delegate.calls.get(0).isCancelled());
+    assertTrue(delegate.calls.get(1).isCancelled());
+  }
+
+  @Test
+  void testRejectsInvalidArguments() {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO);
+    GeminiClient delegate = prompt -> "ok";
+
+    assertThrows(IllegalArgumentException.class, () -> new HedgingGeminiClient(null, limiter, 95, 5));
+    assertThrows(IllegalArgumentException.class, () -> new HedgingGeminiClient(delegate, limiter, 100, 5));
+    assertThrows(IllegalArgumentException.class, () -> new HedgingGeminiClient(delegate, limiter, 95, -1));
+  }
+}
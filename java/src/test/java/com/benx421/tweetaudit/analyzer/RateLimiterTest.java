@@ -0,0 +1,134 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+  @Test
+  void testWaitsForMinimumInterval() throws InterruptedException {
+    RateLimiter limiter = new RateLimiter(Duration.ofMillis(30));
+
+    long start = System.nanoTime();
+    limiter.waitIfNeeded();
+    limiter.waitIfNeeded();
+
+    assertTrue(System.nanoTime() - start >= Duration.ofMillis(30).toNanos());
+  }
+
+  @Test
+  void testPacesRequestsPerMinute() {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO, 600, 0, 0);
+
+    long first = limiter.reserve(0);
+    long second = limiter.reserve(0);
+    long third = limiter.reserve(0);
+
+    assertTrue(second - first >= Duration.ofMillis(100).toNanos());
+    assertTrue(third - second >= Duration.ofMillis(100).toNanos());
+  }
+
+  @Test
+  void testPacesTokensPerMinuteByRequestSize() {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO, 0, 60_000, 0);
+
+    long large = limiter.reserve(500);
+    long next = limiter.reserve(1);
+
+    assertTrue(next - large >= Duration.ofMillis(500).toNanos());
+  }
+
+  @Test
+  void testAllowsDailyQuotaAtOnceThenHoldsBack() {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO, 0, 0, 3);
+    long now = System.nanoTime();
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(limiter.reserve(0) - now < Duration.ofSeconds(1).toNanos());
+    }
+    assertTrue(limiter.reserve(0) - now >= Duration.ofHours(7).toNanos());
+  }
+
+  @Test
+  void testChargesEveryQuotaWhenTheSlowestAllows() {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO, 600, 60_000, 0);
+
+    long large = limiter.reserve(500);
+    long held = limiter.reserve(1);
+    long next = limiter.reserve(0);
+
+    assertTrue(held - large >= Duration.ofMillis(500).toNanos());
+    assertTrue(next - held >= Duration.ofMillis(100).toNanos());
+  }
+
+  @Test
+  void testRefusedTryReserveGivesBackOtherQuotas() {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO, 0, 60_000, 10);
+    long now = System.nanoTime();
+    limiter.reserve(60_000);
+
+    for (int i = 0; i < 20; i++) {
+      assertFalse(limiter.tryReserve(1));
+    }
+
+    assertTrue(limiter.reserve(0) - now < Duration.ofMinutes(2).toNanos());
+  }
+
+  @Test
+  void testTryReserveTakesOnlyFreeSlots() throws Exception {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO, 0, 0, 5);
+    AtomicInteger reserved = new AtomicInteger();
+
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 50; i++) {
+        callers.submit(
+            () -> {
+              if (limiter.tryReserve(0)) {
+                reserved.incrementAndGet();
+              }
+            });
+      }
+    }
+
+    assertEquals(5, reserved.get());
+  }
+
+  @Test
+  void testConcurrentCallersGetSeparateSlots() throws Exception {
+    RateLimiter limiter = new RateLimiter(Duration.ZERO, 6000, 0, 0);
+    List<Long> slots = Collections.synchronizedList(new ArrayList<>());
+
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < 50; i++) {
+        callers.submit(() -> slots.add(limiter.reserve(0)));
+      }
+    }
+
+    List<Long> sorted = new ArrayList<>(slots);
+    Collections.sort(sorted);
+    assertEquals(50, sorted.size());
+    for (int i = 1; i < sorted.size(); i++) {
+      assertTrue(sorted.get(i) - sorted.get(i - 1) >= Duration.ofMillis(10).toNanos());
+    }
+  }
+
+  @Test
+  void testRejectsInvalidQuotas() {
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Duration.ofMillis(-1)));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Duration.ZERO, -1, 0, 0));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Duration.ZERO, 0, -1, 0));
+    assertThrows(IllegalArgumentException.class, () -> new RateLimiter(Duration.ZERO, 0, 0, -1));
+  }
+}
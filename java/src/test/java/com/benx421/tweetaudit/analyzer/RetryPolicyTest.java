@@ -0,0 +1,218 @@
+package com.benx421.tweetaudit.analyzer;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+  private static GeminiException failure(GeminiException.Category category) {
+    return new GeminiException(category, category.name());
+  }
+
+  @Test
+  void testRetriesRetryableCategoryUntilSuccess() throws Exception {
+    RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1));
+    AtomicInteger calls = new AtomicInteger();
+
+    String result =
+        policy.execute(
+            () -> {
+              if (calls.incrementAndGet() < 3) {
+                throw failure(GeminiException.Category.UNAVAILABLE);
+              }
+              return "ok";
+            });
+
+    assertEquals("ok", result);
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  void testDoesNotRetryByMessage() {
+    RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1));
+    AtomicInteger calls = new AtomicInteger();
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            policy.execute(
+                () -> {
+                  calls.incrementAndGet();
+                  throw new IllegalStateException("connection pool misconfigured, 503 slots");
+                }));
+    assertThrows(
+        GeminiException.class,
+        () ->
+            policy.execute(
+                () -> {
+                  calls.incrementAndGet();
+                  throw failure(GeminiException.Category.INVALID_REQUEST);
+                }));
+
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void testWaitsAsLongAsGeminiAsks() throws Exception {
+    RetryPolicy policy = new RetryPolicy(2, Duration.ofMillis(1));
+    AtomicInteger calls = new AtomicInteger();
+
+    long start = System.nanoTime();
+    policy.execute(
+        () -> {
+          if (calls.incrementAndGet() == 1) {
+            throw new GeminiException(
+                GeminiException.Category.RATE_LIMITED, "429", Duration.ofMillis(50), null);
+          }
+          return "ok";
+        });
+
+    assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+  }
+
+  @Test
+  void testRetryBudgetLimitsRetriesAcrossCalls() {
+    RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1), 1_000, Duration.ofSeconds(30));
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 20; i++) {
+      assertThrows(
+          GeminiException.class,
+          () ->
+              policy.execute(
+                  () -> {
+                    calls.incrementAndGet();
+                    throw failure(GeminiException.Category.TIMEOUT);
+                  }));
+    }
+
+    assertTrue(calls.get() <= 20 + 10 + 2, "calls: " + calls.get());
+  }
+
+  @Test
+  void testOpenCircuitFailsFast() {
+    RetryPolicy policy = new RetryPolicy(1, Duration.ofMillis(1), 2, Duration.ofHours(1));
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      assertThrows(
+          GeminiException.class,
+          () ->
+              policy.execute(
+                  () -> {
+                    calls.incrementAndGet();
+                    throw failure(GeminiException.Category.UNAVAILABLE);
+                  }));
+    }
+
+    assertEquals(2, calls.get());
+    assertTrue(policy.isOpen());
+  }
+
+  @Test
+  void testTrialCallClosesCircuit() throws Exception {
+    RetryPolicy policy = new RetryPolicy(1, Duration.ofMillis(1), 1, Duration.ofMillis(20));
+    assertThrows(
+        GeminiException.class,
+        () -> policy.execute(() -> {
+          throw failure(GeminiException.Category.TIMEOUT);
+        }));
+    assertTrue(policy.isOpen());
+
+    Thread.sleep(30);
+
+    assertEquals("ok", policy.execute(() -> "ok"));
+    assertFalse(policy.isOpen());
+  }
+
+  @Test
+  void testTrialThatCannotStartReleasesCircuit() throws Exception {
+    RetryPolicy policy = new RetryPolicy(1, Duration.ofMillis(1), 1, Duration.ofMillis(20));
+    assertThrows(
+        GeminiException.class,
+        () -> policy.execute(() -> {
+          throw failure(GeminiException.Category.TIMEOUT);
+        }));
+    Thread.sleep(30);
+
+    CompletableFuture<String> failed =
+        policy.executeAsync(
+            () -> {
+              throw new IllegalStateException("client closed");
+            },
+            Duration.ZERO);
+    assertTrue(failed.isCompletedExceptionally());
+
+    assertEquals("ok", policy.executeAsync(() -> CompletableFuture.completedFuture("ok"), Duration.ZERO).join());
+    assertFalse(policy.isOpen());
+  }
+
+  @Test
+  void testCancelledCallIsNotRetriedOrCounted() {
+    RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1), 1, Duration.ofHours(1));
+    AtomicInteger calls = new AtomicInteger();
+
+    CompletableFuture<String> result =
+        policy.executeAsync(
+            () -> {
+              calls.incrementAndGet();
+              return CompletableFuture.failedFuture(GeminiException.fromFailure(new CancellationException()));
+            },
+            Duration.ZERO);
+
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(1, calls.get());
+    assertFalse(policy.isOpen());
+  }
+
+  @Test
+  void testRateLimitsDoNotOpenCircuit() {
+    RetryPolicy policy = new RetryPolicy(1, Duration.ofMillis(1), 1, Duration.ofHours(1));
+
+    assertThrows(
+        GeminiException.class,
+        () -> policy.execute(() -> {
+          throw failure(GeminiException.Category.RATE_LIMITED);
+        }));
+
+    assertFalse(policy.isOpen());
+  }
+
+  @Test
+  void testExecuteAsyncRetriesWithoutBlocking() throws Exception {
+    RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1));
+    AtomicInteger calls = new AtomicInteger();
+
+    CompletableFuture<String> result =
+        policy.executeAsync(
+            () ->
+                calls.incrementAndGet() < 3
+                    ? CompletableFuture.failedFuture(failure(GeminiException.Category.TIMEOUT))
+                    : CompletableFuture.completedFuture("ok"),
+            Duration.ZERO);
+
+    assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  void testCancellingExecuteAsyncCancelsAttempt() {
+    RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1));
+    CompletableFuture<String> attempt = new CompletableFuture<>();
+
+    CompletableFuture<String> result = policy.executeAsync(() -> attempt, Duration.ZERO);
+    result.cancel(true);
+
+    assertTrue(attempt.isCancelled());
+  }
+}
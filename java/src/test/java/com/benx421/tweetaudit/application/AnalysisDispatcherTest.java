@@ -0,0 +1,109 @@
+package com.benx421.tweetaudit.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.benx421.tweetaudit.analyzer.AnalyzerException;
+import com.benx421.tweetaudit.analyzer.TweetAnalyzer;
+import com.benx421.tweetaudit.models.AnalysisResult;
+import com.benx421.tweetaudit.models.Decision;
+import com.benx421.tweetaudit.models.Tweet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisDispatcherTest {
+
+  @Test
+  void testBoundsCallsInFlight() throws Exception {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    TweetAnalyzer analyzer =
+        tweet -> {
+          peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            inFlight.decrementAndGet();
+          }
+          return decide(tweet);
+        };
+
+    List<Future<AnalysisResult>> results = new ArrayList<>();
+    try (AnalysisDispatcher dispatcher = new AnalysisDispatcher(analyzer, 2)) {
+      for (long id = 1; id <= 8; id++) {
+        results.add(dispatcher.submit(new Tweet(id, "Tweet " + id)));
+        assertTrue(dispatcher.inFlight() <= 2);
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(decide(new Tweet(i + 1, "")), results.get(i).get());
+      }
+      assertFalse(dispatcher.hasFailed());
+    }
+
+    assertTrue(peak.get() <= 2);
+  }
+
+  @Test
+  void testFailedCallIsReported() throws InterruptedException {
+    TweetAnalyzer analyzer =
+        tweet -> {
+          throw new AnalyzerException("unavailable");
+        };
+
+    try (AnalysisDispatcher dispatcher = new AnalysisDispatcher(analyzer, 1)) {
+      Future<AnalysisResult> result = dispatcher.submit(new Tweet(1L, "One"));
+
+      ExecutionException e = assertThrows(ExecutionException.class, result::get);
+      assertEquals("unavailable", e.getCause().getMessage());
+      assertTrue(dispatcher.hasFailed());
+    }
+  }
+
+  @Test
+  void testCloseCancelsCallsInFlight() throws Exception {
+    CompletableFuture<AnalysisResult> pending = new CompletableFuture<>();
+    TweetAnalyzer analyzer =
+        new TweetAnalyzer() {
+          @Override
+          public AnalysisResult analyze(Tweet tweet) {
+            throw new AssertionError("blocking call used");
+          }
+
+          @Override
+          public CompletableFuture<AnalysisResult> analyzeAsync(Tweet tweet) {
+            return pending;
+          }
+        };
+
+    AnalysisDispatcher dispatcher = new AnalysisDispatcher(analyzer, 4);
+    Future<AnalysisResult> result = dispatcher.submit(new Tweet(1L, "One"));
+    dispatcher.close();
+
+    assertTrue(result.isCancelled());
+    assertTrue(pending.isCancelled());
+    assertEquals(0, dispatcher.inFlight());
+  }
+
+  @Test
+  void testRejectsInvalidLimits() {
+    TweetAnalyzer analyzer = AnalysisDispatcherTest::decide;
+
+    assertThrows(IllegalArgumentException.class, () -> new AnalysisDispatcher(analyzer, 0));
+    assertThrows(IllegalArgumentException.class, () -> new AnalysisDispatcher(null, 1));
+  }
+
+  private static AnalysisResult decide(Tweet tweet) {
+    return new AnalysisResult(tweet.id(), tweet.id() % 2 == 0 ? Decision.DELETE : Decision.KEEP);
+  }
+}
@@ -3,21 +3,37 @@ package com.benx421.tweetaudit.application;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.benx421.tweetaudit.analyzer.AnalyzerException;
+import com.benx421.tweetaudit.analyzer.TokenEstimator;
 import com.benx421.tweetaudit.analyzer.TweetAnalyzer;
 import com.benx421.tweetaudit.config.Criteria;
 import com.benx421.tweetaudit.config.Settings;
 import com.benx421.tweetaudit.models.AnalysisResult;
 import com.benx421.tweetaudit.models.Decision;
 import com.benx421.tweetaudit.models.Tweet;
+import com.benx421.tweetaudit.storage.ParserType;
+import com.benx421.tweetaudit.storage.ProgressBitmap;
+import com.benx421.tweetaudit.storage.TweetParser;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -47,6 +63,117 @@ class ApplicationTest {
     assertEquals("123,First tweet", lines.get(1));
   }
 
+  @Test
+  void testAnalyzeTweetsReadsExtractedTweetsThroughIndex(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet, with comma"}},
+          {"tweet": {"id_str": "3", "full_text": "Tweet 3"}}
+        ]
+        """);
+    Files.writeString(checkpointPath, "1");
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(archivePath.toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(1)
+            .build();
+
+    List<AnalysisResult> mockResults = new ArrayList<>();
+    mockResults.add(new AnalysisResult(2L, Decision.KEEP));
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
+
+    Application app = new Application(settings, mockAnalyzer);
+    app.extractTweets();
+    assertTrue(Files.exists(tempDir.resolve("tweets.csv.idx")));
+
+    app.analyzeTweets();
+
+    assertEquals(List.of("Tweet, with comma"), mockAnalyzer.getAnalyzedContents());
+    assertEquals("2", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testExtractTweetsToBinaryFormat(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.bin");
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet, with comma"}}
+        ]
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(archivePath.toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(tempDir.resolve("checkpoint.txt").toString())
+            .batchSize(10)
+            .build();
+
+    List<AnalysisResult> mockResults = new ArrayList<>();
+    mockResults.add(new AnalysisResult(1L, Decision.KEEP));
+    mockResults.add(new AnalysisResult(2L, Decision.KEEP));
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
+    Application app = new Application(settings, mockAnalyzer);
+    app.extractTweets();
+
+    assertTrue(Files.exists(tweetsPath));
+    assertFalse(Files.exists(tempDir.resolve("tweets.bin.idx")));
+
+    app.analyzeTweets();
+    assertEquals(List.of("Tweet 1", "Tweet, with comma"), mockAnalyzer.getAnalyzedContents());
+  }
+
+  @Test
+  void testExtractTweetsFromArchiveDataDirectory(@TempDir Path tempDir) throws IOException {
+    Path dataDir = Files.createDirectory(tempDir.resolve("data"));
+    Path outputPath = tempDir.resolve("tweets.csv");
+
+    Files.writeString(
+        dataDir.resolve("tweets.js"),
+        """
+        window.YTD.tweets.part0 = [
+          {"tweet": {"id_str": "456", "full_text": "Second tweet"}}
+        ]""");
+    Files.writeString(
+        dataDir.resolve("tweets-part1.js"),
+        """
+        window.YTD.tweets.part1 = [
+          {"tweet": {"id_str": "123", "full_text": "First tweet"}}
+        ]""");
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(dataDir.toString())
+            .transformedTweetsPath(outputPath.toString())
+            .parseThreads(2)
+            .build();
+    Application app = new Application(settings);
+    app.extractTweets();
+
+    List<String> lines = Files.readAllLines(outputPath);
+    assertEquals(List.of("id,text", "456,Second tweet", "123,First tweet"), lines);
+  }
+
   @Test
   void testExtractTweetsWithInvalidJson(@TempDir Path tempDir) throws IOException {
     Path archivePath = tempDir.resolve("invalid.json");
@@ -60,6 +187,154 @@ class ApplicationTest {
     assertTrue(thrown.getMessage().contains("may not be valid JSON"));
   }
 
+  @Test
+  void testExtractTweetsWithInvalidJsonKeepsExistingOutput(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path outputPath = tempDir.resolve("tweets.csv");
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "123", "full_text": "First tweet"}},
+          {"tweet": {"id_str": "456"
+        """);
+    Files.writeString(outputPath, "id,text\n1,Previous extract\n");
+
+    Settings settings = buildSettings(tempDir, archivePath.toString(), outputPath.toString());
+    Application app = new Application(settings);
+
+    assertThrows(IOException.class, app::extractTweets);
+    assertEquals("id,text\n1,Previous extract\n", Files.readString(outputPath));
+    assertFalse(Files.exists(tempDir.resolve("tweets.csv.tmp")));
+  }
+
+  @Test
+  void testIncrementalExtractAppendsOnlyNewTweets(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet 2"}}
+        ]
+        """);
+    Settings settings = buildSettings(tempDir, archivePath.toString(), tweetsPath.toString());
+    new Application(settings).extractTweets();
+    assertTrue(Files.exists(tempDir.resolve("tweets.csv.ids")));
+    Files.writeString(checkpointPath, "2");
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "3", "full_text": "Tweet 3"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet 2"}},
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1"}}
+        ]
+        """);
+    List<AnalysisResult> mockResults = new ArrayList<>();
+    mockResults.add(new AnalysisResult(3L, Decision.KEEP));
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
+    Application app = new Application(settings, mockAnalyzer);
+    app.extractTweets(true);
+
+    assertEquals(
+        List.of("id,text", "1,Tweet 1", "2,Tweet 2", "3,Tweet 3"), Files.readAllLines(tweetsPath));
+
+    app.analyzeTweets();
+    assertEquals(List.of("Tweet 3"), mockAnalyzer.getAnalyzedContents());
+    assertEquals("3", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testIncrementalExtractToBinaryFormatRebuildsMissingIds(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.bin");
+
+    Files.writeString(archivePath, "[{\"tweet\": {\"id_str\": \"1\", \"full_text\": \"Tweet 1\"}}]");
+    Settings settings = buildSettings(tempDir, archivePath.toString(), tweetsPath.toString());
+    Application app = new Application(settings);
+    app.extractTweets();
+    Files.delete(tempDir.resolve("tweets.bin.ids"));
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet 2"}}
+        ]
+        """);
+    app.extractTweets(true);
+    app.extractTweets(true);
+
+    List<String> ids = new TweetParser(tweetsPath.toString(), ParserType.BINARY).parse().stream()
+        .map(Tweet::idString)
+        .toList();
+    assertEquals(List.of("1", "2"), ids);
+    assertTrue(Files.exists(tempDir.resolve("tweets.bin.ids")));
+    assertFalse(Files.exists(tempDir.resolve("tweets.bin.tmp")));
+  }
+
+  @Test
+  void testIncrementalExtractWithInvalidArchiveKeepsExistingOutput(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.bin");
+
+    Files.writeString(archivePath, "[{\"tweet\": {\"id_str\": \"1\", \"full_text\": \"Tweet 1\"}}]");
+    Application app = new Application(buildSettings(tempDir, archivePath.toString(), tweetsPath.toString()));
+    app.extractTweets();
+    byte[] extracted = Files.readAllBytes(tweetsPath);
+
+    Files.writeString(
+        archivePath,
+        "[{\"tweet\": {\"id_str\": \"2\", \"full_text\": \"Tweet 2\"}}, {\"tweet\": {\"id_str\": ");
+    assertThrows(IOException.class, () -> app.extractTweets(true));
+
+    assertTrue(Arrays.equals(extracted, Files.readAllBytes(tweetsPath)));
+    assertFalse(Files.exists(tempDir.resolve("tweets.bin.new.tmp")));
+  }
+
+  @Test
+  void testReextractToBinaryKeepsCheckpointWhenRowsStay(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.bin");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(archivePath, "[{\"tweet\": {\"id_str\": \"1\", \"full_text\": \"Tweet 1\"}}]");
+    Application app = new Application(buildSettings(tempDir, archivePath.toString(), tweetsPath.toString()));
+    app.extractTweets();
+    Files.writeString(checkpointPath, "1");
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet 2"}}
+        ]
+        """);
+    app.extractTweets();
+
+    assertEquals("1", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testIncrementalExtractWithoutExistingOutput(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+
+    Files.writeString(archivePath, "[{\"tweet\": {\"id_str\": \"1\", \"full_text\": \"Tweet 1\"}}]");
+    new Application(buildSettings(tempDir, archivePath.toString(), tweetsPath.toString())).extractTweets(true);
+
+    assertEquals(List.of("id,text", "1,Tweet 1"), Files.readAllLines(tweetsPath));
+  }
+
   @Test
   void testAnalyzeTweetsWritesOnlyDeleteDecisions(@TempDir Path tempDir) throws IOException {
     Path tweetsPath = tempDir.resolve("tweets.csv");
@@ -86,8 +361,8 @@ class ApplicationTest {
             .build();
 
     List<AnalysisResult> mockResults = new ArrayList<>();
-    mockResults.add(new AnalysisResult("https://x.com/user/status/123", Decision.DELETE));
-    mockResults.add(new AnalysisResult("https://x.com/user/status/456", Decision.KEEP));
+    mockResults.add(new AnalysisResult(123L, Decision.DELETE));
+    mockResults.add(new AnalysisResult(456L, Decision.KEEP));
 
     MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
     Application app = new Application(settings, mockAnalyzer);
@@ -104,6 +379,80 @@ class ApplicationTest {
     assertEquals("2", checkpoint);
   }
 
+  @Test
+  void testAnalyzeTweetsSizesBatchByTokensPerMinute(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path resultsPath = tempDir.resolve("results.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(resultsPath.toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(10)
+            .tokensPerMinute(2 * TokenEstimator.estimate(new Tweet(1L, "Tweet 1")))
+            .criteria(Criteria.defaults())
+            .build();
+
+    MockAnalyzer mockAnalyzer =
+        new MockAnalyzer(
+            List.of(
+                new AnalysisResult(1L, Decision.KEEP),
+                new AnalysisResult(2L, Decision.KEEP),
+                new AnalysisResult(3L, Decision.KEEP)));
+    Application app = new Application(settings, mockAnalyzer);
+    app.analyzeTweets();
+
+    assertEquals(2, mockAnalyzer.getAnalyzeCount());
+    assertEquals("2", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testAnalyzeTweetsCapsTokenSizedBatch(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    int maxRows = AnalysisPipeline.MAX_TOKEN_BATCH_ROWS;
+    StringBuilder csv = new StringBuilder("id,text\n");
+    List<AnalysisResult> results = new ArrayList<>();
+    for (int i = 1; i <= maxRows + 10; i++) {
+      csv.append(i).append(",Tweet ").append(i).append('\n');
+      results.add(new AnalysisResult(i, Decision.KEEP));
+    }
+    Files.writeString(tweetsPath, csv);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(7)
+            .tokensPerMinute(Integer.MAX_VALUE)
+            .criteria(Criteria.defaults())
+            .build();
+
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(results);
+    Application app = new Application(settings, mockAnalyzer);
+    app.analyzeTweets();
+
+    assertEquals(maxRows, mockAnalyzer.getAnalyzeCount());
+    assertEquals(String.valueOf(maxRows), Files.readString(checkpointPath).trim());
+  }
+
   @Test
   void testAnalyzeTweetsResumesFromCheckpoint(@TempDir Path tempDir) throws IOException {
     Path tweetsPath = tempDir.resolve("tweets.csv");
@@ -132,8 +481,8 @@ class ApplicationTest {
             .build();
 
     List<AnalysisResult> mockResults = new ArrayList<>();
-    mockResults.add(new AnalysisResult("https://x.com/user/status/2", Decision.DELETE));
-    mockResults.add(new AnalysisResult("https://x.com/user/status/3", Decision.DELETE));
+    mockResults.add(new AnalysisResult(2L, Decision.DELETE));
+    mockResults.add(new AnalysisResult(3L, Decision.DELETE));
 
     MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
     Application app = new Application(settings, mockAnalyzer);
@@ -148,6 +497,396 @@ class ApplicationTest {
     assertEquals("3", checkpoint);
   }
 
+  @Test
+  void testAnalyzeTweetsReusesJournaledDecisionsAfterFailure(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path resultsPath = tempDir.resolve("results.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(resultsPath.toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(3)
+            .build();
+
+    List<AnalysisResult> firstResults = new ArrayList<>();
+    firstResults.add(new AnalysisResult(1L, Decision.DELETE));
+    firstResults.add(new AnalysisResult(2L, Decision.KEEP));
+    Application failing = new Application(settings, new MockAnalyzer(firstResults));
+    assertThrows(IOException.class, failing::analyzeTweets);
+    assertEquals("2", Files.readString(checkpointPath).trim());
+
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(List.of(new AnalysisResult(3L, Decision.DELETE)));
+    new Application(settings, mockAnalyzer).analyzeTweets();
+
+    assertEquals(List.of("Tweet 3"), mockAnalyzer.getAnalyzedContents());
+    assertEquals("3", Files.readString(checkpointPath).trim());
+    assertEquals(3, Files.readAllLines(resultsPath).size());
+    assertEquals(0, Files.size(tempDir.resolve("checkpoint.txt.journal")));
+  }
+
+  @Test
+  void testAnalyzeTweetsStopsWhenAnalyzerThrowsFromAnalyzeAsync(@TempDir Path tempDir) throws Exception {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(3)
+            .build();
+    MockAnalyzer mockAnalyzer =
+        new MockAnalyzer(List.of(new AnalysisResult(1L, Decision.KEEP))) {
+          @Override
+          public CompletableFuture<AnalysisResult> analyzeAsync(Tweet tweet) {
+            if (tweet.id() == 2L) {
+              throw new RejectedExecutionException("Analyzer is shut down");
+            }
+            return super.analyzeAsync(tweet);
+          }
+        };
+    Application app = new Application(settings, mockAnalyzer);
+
+    try (ExecutorService runner = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<IOException> thrown = runner.submit(() -> assertThrows(IOException.class, app::analyzeTweets));
+      assertTrue(thrown.get(10, TimeUnit.SECONDS).getMessage().contains("Analyzer is shut down"));
+    }
+    assertEquals("1", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testAnalyzeTweetsSkipsRowsMarkedInProgressBitmap(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        4,Tweet 4
+        """);
+    ProgressBitmap done = new ProgressBitmap();
+    done.add(0);
+    done.add(2);
+    done.save(ProgressBitmap.pathFor(checkpointPath.toString()));
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(2)
+            .build();
+
+    List<AnalysisResult> mockResults = new ArrayList<>();
+    mockResults.add(new AnalysisResult(2L, Decision.KEEP));
+    mockResults.add(new AnalysisResult(4L, Decision.KEEP));
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
+    Application app = new Application(settings, mockAnalyzer);
+
+    app.analyzeTweets();
+    assertEquals(List.of("Tweet 2"), mockAnalyzer.getAnalyzedContents());
+    assertEquals("3", Files.readString(checkpointPath).trim());
+
+    app.analyzeTweets();
+    assertEquals(List.of("Tweet 2", "Tweet 4"), mockAnalyzer.getAnalyzedContents());
+    assertEquals("4", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testReextractReusesDecisionsByTweetId(@TempDir Path tempDir) throws IOException {
+    Path archivePath = tempDir.resolve("archive.json");
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet 2"}}
+        ]
+        """);
+    Settings settings = buildSettings(tempDir, archivePath.toString(), tweetsPath.toString());
+    List<AnalysisResult> firstResults = new ArrayList<>();
+    firstResults.add(new AnalysisResult(1L, Decision.KEEP));
+    firstResults.add(new AnalysisResult(2L, Decision.KEEP));
+    Application first = new Application(settings, new MockAnalyzer(firstResults));
+    first.extractTweets();
+    first.analyzeTweets();
+    assertEquals("2", Files.readString(checkpointPath).trim());
+
+    Files.writeString(
+        archivePath,
+        """
+        [
+          {"tweet": {"id_str": "3", "full_text": "Tweet 3"}},
+          {"tweet": {"id_str": "2", "full_text": "Tweet 2"}},
+          {"tweet": {"id_str": "1", "full_text": "Tweet 1, edited"}}
+        ]
+        """);
+    List<AnalysisResult> secondResults = new ArrayList<>();
+    secondResults.add(new AnalysisResult(3L, Decision.KEEP));
+    secondResults.add(new AnalysisResult(1L, Decision.KEEP));
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(secondResults);
+    Application second = new Application(settings, mockAnalyzer);
+    second.extractTweets();
+    assertFalse(Files.exists(checkpointPath));
+
+    second.analyzeTweets();
+    assertEquals(List.of("Tweet 3", "Tweet 1, edited"), mockAnalyzer.getAnalyzedContents());
+    assertEquals("3", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testAnalyzeTweetsRunsMultipleBatches(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        4,Tweet 4
+        5,Tweet 5
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(2)
+            .build();
+
+    List<AnalysisResult> mockResults = new ArrayList<>();
+    for (long id = 1; id <= 5; id++) {
+      mockResults.add(new AnalysisResult(id, id == 4 ? Decision.DELETE : Decision.KEEP));
+    }
+    MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
+    Application app = new Application(settings, mockAnalyzer);
+
+    app.analyzeTweets(2);
+    assertEquals(4, mockAnalyzer.getAnalyzeCount());
+    assertEquals("4", Files.readString(checkpointPath).trim());
+
+    app.analyzeTweets(Application.ALL_BATCHES);
+    assertEquals(5, mockAnalyzer.getAnalyzeCount());
+    assertEquals("5", Files.readString(checkpointPath).trim());
+    assertEquals(2, Files.readAllLines(tempDir.resolve("results.csv")).size());
+
+    assertThrows(IllegalArgumentException.class, () -> app.analyzeTweets(0));
+  }
+
+  @Test
+  void testAnalyzeTweetsConcurrentlyCommitsInRowOrder(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path resultsPath = tempDir.resolve("results.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        4,Tweet 4
+        5,Tweet 5
+        6,Tweet 6
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(resultsPath.toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(6)
+            .maxInFlight(3)
+            .build();
+
+    // The first three calls wait for each other, then later tweets finish before earlier ones
+    CountDownLatch firstWave = new CountDownLatch(3);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    TweetAnalyzer analyzer =
+        tweet -> {
+          peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          try {
+            firstWave.countDown();
+            firstWave.await(5, TimeUnit.SECONDS);
+            Thread.sleep((7 - tweet.id()) * 5);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalyzerException("Interrupted", e);
+          } finally {
+            inFlight.decrementAndGet();
+          }
+          return new AnalysisResult(tweet.id(), Decision.DELETE);
+        };
+
+    new Application(settings, analyzer).analyzeTweets();
+
+    assertEquals(3, peak.get());
+    List<String> lines = Files.readAllLines(resultsPath);
+    assertEquals(7, lines.size());
+    for (int id = 1; id <= 6; id++) {
+      assertEquals("https://x.com/user/status/" + id + ",false", lines.get(id));
+    }
+    assertEquals("6", Files.readString(checkpointPath).trim());
+  }
+
+  @Test
+  void testAnalyzeTweetsKeepsRequestsInFlightAcrossBatches(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+    Path checkpointPath = tempDir.resolve("checkpoint.txt");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        4,Tweet 4
+        5,Tweet 5
+        6,Tweet 6
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(checkpointPath.toString())
+            .batchSize(2)
+            .maxInFlight(4)
+            .build();
+
+    // Four calls can only meet if the reader runs ahead of the batch being committed
+    CountDownLatch firstWave = new CountDownLatch(4);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    TweetAnalyzer analyzer =
+        tweet -> {
+          peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          try {
+            firstWave.countDown();
+            firstWave.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalyzerException("Interrupted", e);
+          } finally {
+            inFlight.decrementAndGet();
+          }
+          return new AnalysisResult(tweet.id(), tweet.id() % 2 == 0 ? Decision.DELETE : Decision.KEEP);
+        };
+
+    new Application(settings, analyzer).analyzeTweets(Application.ALL_BATCHES);
+
+    assertEquals(4, peak.get());
+    assertEquals("6", Files.readString(checkpointPath).trim());
+    assertEquals(
+        List.of(
+            "tweet_url,deleted",
+            "https://x.com/user/status/2,false",
+            "https://x.com/user/status/4,false",
+            "https://x.com/user/status/6,false"),
+        Files.readAllLines(tempDir.resolve("results.csv")));
+  }
+
+  @Test
+  void testAnalyzeTweetsPacksTweetsIntoRequests(@TempDir Path tempDir) throws IOException {
+    Path tweetsPath = tempDir.resolve("tweets.csv");
+
+    Files.writeString(
+        tweetsPath,
+        """
+        id,text
+        1,Tweet 1
+        2,Tweet 2
+        3,Tweet 3
+        4,Tweet 4
+        5,Tweet 5
+        6,Tweet 6
+        """);
+
+    Settings settings =
+        Settings.builder()
+            .geminiApiKey("fake-api-key")
+            .tweetsArchivePath(tempDir.resolve("archive.json").toString())
+            .transformedTweetsPath(tweetsPath.toString())
+            .processedResultsPath(tempDir.resolve("results.csv").toString())
+            .checkpointPath(tempDir.resolve("checkpoint.txt").toString())
+            .batchSize(6)
+            .tweetsPerRequest(3)
+            .requestWindow(Duration.ofSeconds(30))
+            .build();
+
+    List<Integer> requestSizes = Collections.synchronizedList(new ArrayList<>());
+    TweetAnalyzer analyzer =
+        new TweetAnalyzer() {
+          @Override
+          public AnalysisResult analyze(Tweet tweet) {
+            throw new IllegalStateException("Expected multi-tweet requests");
+          }
+
+          @Override
+          public List<AnalysisResult> analyzeAll(List<Tweet> tweets) {
+            requestSizes.add(tweets.size());
+            return tweets.stream()
+                .map(tweet -> new AnalysisResult(tweet.id(), tweet.id() > 4 ? Decision.DELETE : Decision.KEEP))
+                .toList();
+          }
+        };
+
+    new Application(settings, analyzer).analyzeTweets();
+
+    assertEquals(List.of(3, 3), requestSizes);
+    assertEquals(
+        List.of("tweet_url,deleted", "https://x.com/user/status/5,false", "https://x.com/user/status/6,false"),
+        Files.readAllLines(tempDir.resolve("results.csv")));
+  }
+
   @Test
   void testAnalyzeTweetsAllAlreadyProcessed(@TempDir Path tempDir) throws IOException {
     Path tweetsPath = tempDir.resolve("tweets.csv");
@@ -198,7 +937,7 @@ class ApplicationTest {
             .build();
 
     List<AnalysisResult> mockResults = new ArrayList<>();
-    mockResults.add(new AnalysisResult("https://x.com/user/status/456", Decision.DELETE));
+    mockResults.add(new AnalysisResult(456L, Decision.DELETE));
 
     MockAnalyzer mockAnalyzer = new MockAnalyzer(mockResults);
     Application app = new Application(settings, mockAnalyzer);
@@ -239,6 +978,7 @@ class ApplicationTest {
 
   private static class MockAnalyzer implements TweetAnalyzer {
     private final List<AnalysisResult> results;
+    private final List<String> analyzedContents = new ArrayList<>();
     private int analyzeCount = 0;
 
     MockAnalyzer(List<AnalysisResult> results) {
@@ -250,11 +990,16 @@ class ApplicationTest {
       if (analyzeCount >= results.size()) {
         throw new IllegalStateException("No more mock results available");
       }
+      analyzedContents.add(tweet.content());
       return results.get(analyzeCount++);
     }
 
     int getAnalyzeCount() {
       return analyzeCount;
     }
+
+    List<String> getAnalyzedContents() {
+      return analyzedContents;
+    }
   }
 }
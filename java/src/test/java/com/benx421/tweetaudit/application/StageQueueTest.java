@@ -0,0 +1,62 @@
+package com.benx421.tweetaudit.application;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StageQueueTest {
+
+  @Test
+  void testPutBlocksWhileFull() throws InterruptedException {
+    StageQueue<String> queue = new StageQueue<>("test", 2);
+    queue.put("a");
+    queue.put("b");
+
+    CountDownLatch added = new CountDownLatch(1);
+    Thread producer =
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  try {
+                    queue.put("c");
+                    added.countDown();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                });
+
+    assertFalse(added.await(50, TimeUnit.MILLISECONDS));
+    assertEquals("a", queue.take());
+    assertTrue(added.await(5, TimeUnit.SECONDS));
+    producer.join();
+
+    assertEquals("b", queue.take());
+    assertEquals("c", queue.take());
+    assertNull(queue.poll());
+  }
+
+  @Test
+  void testReportSummarizesDepthAndResets() throws InterruptedException {
+    StageQueue<Integer> queue = new StageQueue<>("commit", 4);
+    queue.put(1);
+    queue.put(2);
+    queue.put(3);
+    queue.take();
+
+    String report = queue.report();
+    assertTrue(report.startsWith("commit queue 2/4 (avg 2.0, peak 3,"), report);
+    assertTrue(queue.report().startsWith("commit queue 2/4 (avg 0.0, peak 0,"));
+  }
+
+  @Test
+  void testRejectsNonPositiveCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new StageQueue<Integer>("test", 0));
+  }
+}
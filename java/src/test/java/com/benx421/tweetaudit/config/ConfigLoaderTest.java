@@ -3,7 +3,9 @@ package com.benx421.tweetaudit.config;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -11,6 +13,7 @@ import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConfigLoaderTest {
@@ -130,4 +133,50 @@ class ConfigLoaderTest {
     assertEquals(List.of("CustomTone"), settings.criteria().toneRequirements());
     assertEquals("Custom", settings.criteria().additionalInstructions());
   }
+
+  @Test
+  void testLoadConcurrencySettingsFromEnvironment() {
+    Map<String, String> env =
+        Map.of(
+            "PARSE_THREADS", "3",
+            "MAX_IN_FLIGHT", "8",
+            "TWEETS_PER_REQUEST", " 20 ",
+            "REQUEST_WINDOW_MS", "0",
+            "HEDGE_BUDGET_PERCENT", "0");
+
+    Settings settings = new ConfigLoader(env::get).load("nonexistent.json");
+
+    assertEquals(3, settings.parseThreads());
+    assertEquals(8, settings.maxInFlight());
+    assertEquals(20, settings.tweetsPerRequest());
+    assertEquals(Duration.ZERO, settings.requestWindow());
+    assertEquals(0, settings.hedgeBudgetPercent());
+  }
+
+  @Test
+  void testLoadRejectsOutOfRangeValuesWithVariableName() {
+    Map<String, String> invalid =
+        Map.of(
+            "PARSE_THREADS", "0",
+            "MAX_IN_FLIGHT", "-1",
+            "TWEETS_PER_REQUEST", "0",
+            "REQUEST_WINDOW_MS", "-5",
+            "HEDGE_BUDGET_PERCENT", "101",
+            "HEDGE_PERCENTILE", "100");
+
+    for (Map.Entry<String, String> entry : invalid.entrySet()) {
+      ConfigLoader loader = new ConfigLoader(Map.of(entry.getKey(), entry.getValue())::get);
+      ConfigException e = assertThrows(ConfigException.class, () -> loader.load("nonexistent.json"));
+      assertTrue(e.getMessage().startsWith(entry.getKey() + " must be"), e.getMessage());
+    }
+  }
+
+  @Test
+  void testLoadRejectsMalformedNumberWithVariableName() {
+    ConfigLoader loader = new ConfigLoader(Map.of("MAX_IN_FLIGHT", "lots")::get);
+
+    ConfigException e = assertThrows(ConfigException.class, () -> loader.load("nonexistent.json"));
+
+    assertEquals("MAX_IN_FLIGHT must be a whole number, got: lots", e.getMessage());
+  }
 }
@@ -6,6 +6,8 @@ import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SettingsTest {
 
@@ -23,6 +25,16 @@ class SettingsTest {
     assertEquals("gemini-2.5-flash", settings.geminiModel());
     assertEquals(10, settings.batchSize());
     assertEquals(Duration.ofSeconds(1), settings.rateLimitDelay());
+    assertEquals(1, settings.maxInFlight());
+    assertEquals(1, settings.tweetsPerRequest());
+    assertEquals(Duration.ofMillis(100), settings.requestWindow());
+    assertEquals(0, settings.maxRequestTokens());
+    assertEquals(0, settings.tokensPerMinute());
+    assertEquals(0, settings.requestsPerMinute());
+    assertEquals(0, settings.requestsPerDay());
+    assertFalse(settings.adaptiveConcurrency());
+    assertEquals(0, settings.hedgePercentile());
+    assertEquals(5, settings.hedgeBudgetPercent());
     assertEquals(Criteria.defaults(), settings.criteria());
   }
 
@@ -38,6 +50,16 @@ class SettingsTest {
             .geminiModel("test-model")
             .batchSize(20)
             .rateLimitDelay(Duration.ofMillis(500))
+            .maxInFlight(8)
+            .tweetsPerRequest(25)
+            .requestWindow(Duration.ofMillis(20))
+            .maxRequestTokens(8000)
+            .tokensPerMinute(250000)
+            .requestsPerMinute(1000)
+            .requestsPerDay(10000)
+            .adaptiveConcurrency(true)
+            .hedgePercentile(95)
+            .hedgeBudgetPercent(10)
             .criteria(customCriteria)
             .build();
 
@@ -46,6 +68,16 @@ class SettingsTest {
     assertEquals("test-model", settings.geminiModel());
     assertEquals(20, settings.batchSize());
     assertEquals(Duration.ofMillis(500), settings.rateLimitDelay());
+    assertEquals(8, settings.maxInFlight());
+    assertEquals(25, settings.tweetsPerRequest());
+    assertEquals(Duration.ofMillis(20), settings.requestWindow());
+    assertEquals(8000, settings.maxRequestTokens());
+    assertEquals(250000, settings.tokensPerMinute());
+    assertEquals(1000, settings.requestsPerMinute());
+    assertEquals(10000, settings.requestsPerDay());
+    assertTrue(settings.adaptiveConcurrency());
+    assertEquals(95, settings.hedgePercentile());
+    assertEquals(10, settings.hedgeBudgetPercent());
     assertEquals(customCriteria, settings.criteria());
   }
 
@@ -56,6 +88,7 @@ class SettingsTest {
     String url = settings.tweetUrl("123456789");
 
     assertEquals("https://x.com/testuser/status/123456789", url);
+    assertEquals("https://x.com/testuser/status/", settings.tweetUrlPrefix());
   }
 
   @Test
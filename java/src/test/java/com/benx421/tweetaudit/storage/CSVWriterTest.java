@@ -18,6 +18,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CSVWriterTest {
 
+  private static final String URL_PREFIX = "https://x.com/user/status/";
+
   @Test
   void testWriteTweetsCreatesFile(@TempDir Path tempDir) throws IOException {
     Path csvFile = tempDir.resolve("tweets.csv");
@@ -76,9 +78,9 @@ class CSVWriterTest {
   @Test
   void testWriteResultCreatesFile(@TempDir Path tempDir) throws IOException {
     Path csvFile = tempDir.resolve("results.csv");
-    AnalysisResult result = new AnalysisResult("https://x.com/user/status/123", Decision.DELETE);
+    AnalysisResult result = new AnalysisResult(123L, Decision.DELETE);
 
-    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false)) {
+    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false, URL_PREFIX)) {
       writer.writeResult(result);
     }
 
@@ -93,9 +95,9 @@ class CSVWriterTest {
   void testWriteMultipleResults(@TempDir Path tempDir) throws IOException {
     Path csvFile = tempDir.resolve("results.csv");
 
-    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false)) {
-      writer.writeResult(new AnalysisResult("https://x.com/user/status/123", Decision.DELETE));
-      writer.writeResult(new AnalysisResult("https://x.com/user/status/456", Decision.DELETE));
+    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false, URL_PREFIX)) {
+      writer.writeResult(new AnalysisResult(123L, Decision.DELETE));
+      writer.writeResult(new AnalysisResult(456L, Decision.DELETE));
     }
 
     List<String> lines = Files.readAllLines(csvFile);
@@ -109,12 +111,12 @@ class CSVWriterTest {
   void testWriteResultAppendMode(@TempDir Path tempDir) throws IOException {
     Path csvFile = tempDir.resolve("results.csv");
 
-    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false)) {
-      writer.writeResult(new AnalysisResult("https://x.com/user/status/123", Decision.DELETE));
+    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false, URL_PREFIX)) {
+      writer.writeResult(new AnalysisResult(123L, Decision.DELETE));
     }
 
-    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), true)) {
-      writer.writeResult(new AnalysisResult("https://x.com/user/status/456", Decision.DELETE));
+    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), true, URL_PREFIX)) {
+      writer.writeResult(new AnalysisResult(456L, Decision.DELETE));
     }
 
     List<String> lines = Files.readAllLines(csvFile);
@@ -124,6 +126,31 @@ class CSVWriterTest {
     assertEquals("https://x.com/user/status/456,false", lines.get(2));
   }
 
+  @Test
+  void testWriteResultRequiresUrlPrefix(@TempDir Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("results.csv");
+
+    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false)) {
+      assertThrows(IllegalStateException.class, () -> writer.writeResult(new AnalysisResult(1L)));
+    }
+  }
+
+  @Test
+  void testWriteTweetWithLargeIdAndMultibyteText(@TempDir Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("tweets.csv");
+
+    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false)) {
+      writer.writeTweets(
+          List.of(
+              new Tweet("18446744073709551615", "Caf\u00e9 \ud83c\udf89, \"quoted\""),
+              new Tweet("0", "")));
+    }
+
+    List<String> lines = Files.readAllLines(csvFile);
+    assertEquals("18446744073709551615,\"Caf\u00e9 \ud83c\udf89, \"\"quoted\"\"\"", lines.get(1));
+    assertEquals("0,", lines.get(2));
+  }
+
   @Test
   void testWriterCreatesDirectories(@TempDir Path tempDir) throws IOException {
     Path csvFile = tempDir.resolve("subdir/nested/tweets.csv");
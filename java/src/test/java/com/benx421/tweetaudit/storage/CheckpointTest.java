@@ -3,11 +3,13 @@ package com.benx421.tweetaudit.storage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -119,6 +121,55 @@ class CheckpointTest {
     assertThrows(IllegalArgumentException.class, () -> checkpoint.save(-1));
   }
 
+  @Test
+  void testSaveReplacesFileAtomically(@TempDir Path tempDir) throws IOException {
+    Path checkpointFile = tempDir.resolve("checkpoint.txt");
+    Files.writeString(tempDir.resolve("checkpoint.txt.tmp"), "stale");
+    Checkpoint checkpoint = new Checkpoint(checkpointFile.toString());
+
+    checkpoint.save(5);
+
+    assertEquals("5", Files.readString(checkpointFile));
+    assertFalse(Files.exists(tempDir.resolve("checkpoint.txt.tmp")));
+  }
+
+  @Test
+  void testUpdateCoalescesWithinCommitInterval(@TempDir Path tempDir) throws IOException {
+    Path checkpointFile = tempDir.resolve("checkpoint.txt");
+    Checkpoint checkpoint = new Checkpoint(checkpointFile.toString(), Duration.ofHours(1));
+
+    assertTrue(checkpoint.update(1));
+    assertFalse(checkpoint.update(2));
+    assertFalse(checkpoint.update(3));
+    assertEquals(1, checkpoint.load());
+
+    checkpoint.flush();
+    assertEquals(3, checkpoint.load());
+  }
+
+  @Test
+  void testUpdateWithZeroIntervalCommitsEveryTime(@TempDir Path tempDir) throws IOException {
+    Path checkpointFile = tempDir.resolve("checkpoint.txt");
+    Checkpoint checkpoint = new Checkpoint(checkpointFile.toString(), Duration.ZERO);
+
+    assertTrue(checkpoint.update(1));
+    assertTrue(checkpoint.update(2));
+    assertEquals(2, checkpoint.load());
+  }
+
+  @Test
+  void testSaveDiscardsPendingUpdate(@TempDir Path tempDir) throws IOException {
+    Path checkpointFile = tempDir.resolve("checkpoint.txt");
+    Checkpoint checkpoint = new Checkpoint(checkpointFile.toString(), Duration.ofHours(1));
+
+    checkpoint.update(1);
+    checkpoint.update(2);
+    checkpoint.save(10);
+    checkpoint.flush();
+
+    assertEquals(10, checkpoint.load());
+  }
+
   @Test
   void testConstructorWithNullPath() {
     assertThrows(IllegalArgumentException.class, () -> new Checkpoint(null));
@@ -128,4 +179,9 @@ class CheckpointTest {
   void testConstructorWithBlankPath() {
     assertThrows(IllegalArgumentException.class, () -> new Checkpoint("  "));
   }
+
+  @Test
+  void testConstructorWithNegativeInterval() {
+    assertThrows(IllegalArgumentException.class, () -> new Checkpoint("checkpoint.txt", Duration.ofSeconds(-1)));
+  }
 }
@@ -0,0 +1,73 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.benx421.tweetaudit.models.Decision;
+import com.benx421.tweetaudit.models.Tweet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DecisionIndexTest {
+
+  @Test
+  void testPutAndGet(@TempDir Path tempDir) throws IOException {
+    try (DecisionIndex index = DecisionIndex.open(tempDir.resolve("checkpoint.txt.decisions"))) {
+      index.put(0L, 7L, Decision.DELETE);
+      index.put(-1L, 8L, Decision.KEEP);
+      index.put(42L, 9L, Decision.KEEP);
+      index.put(42L, 10L, Decision.DELETE);
+
+      assertEquals(3, index.size());
+      assertEquals(Decision.DELETE, index.get(0L, 7L));
+      assertEquals(Decision.KEEP, index.get(-1L, 8L));
+      assertEquals(Decision.DELETE, index.get(42L, 10L));
+      assertNull(index.get(42L, 9L));
+      assertNull(index.get(43L, 9L));
+    }
+  }
+
+  @Test
+  void testGrowsAndPersists(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve("checkpoint.txt.decisions");
+    try (DecisionIndex index = DecisionIndex.open(file)) {
+      for (long id = 1; id <= 5_000; id++) {
+        index.put(id * 1_000_003L, id, id % 3 == 0 ? Decision.DELETE : Decision.KEEP);
+      }
+    }
+
+    try (DecisionIndex index = DecisionIndex.open(file)) {
+      assertEquals(5_000, index.size());
+      for (long id = 1; id <= 5_000; id++) {
+        assertEquals(id % 3 == 0 ? Decision.DELETE : Decision.KEEP, index.get(id * 1_000_003L, id));
+      }
+      assertNull(index.get(7L, 7L));
+    }
+    assertEquals(
+        DecisionIndex.HEADER_BYTES + 8192L * DecisionIndex.SLOT_BYTES, Files.size(file));
+  }
+
+  @Test
+  void testFingerprintDependsOnTextAndSettings() {
+    Tweet tweet = new Tweet(1L, "Hello");
+
+    assertEquals(DecisionIndex.fingerprint(5L, tweet), DecisionIndex.fingerprint(5L, new Tweet(2L, "Hello")));
+    assertNotEquals(DecisionIndex.fingerprint(5L, tweet), DecisionIndex.fingerprint(6L, tweet));
+    assertNotEquals(DecisionIndex.fingerprint(5L, tweet), DecisionIndex.fingerprint(5L, new Tweet(1L, "Hello!")));
+  }
+
+  @Test
+  void testRejectsInvalidFile(@TempDir Path tempDir) throws IOException {
+    Path file = tempDir.resolve("checkpoint.txt.decisions");
+    Files.writeString(file, "not an index, just some text that is long enough");
+
+    assertThrows(IOException.class, () -> DecisionIndex.open(file));
+  }
+}
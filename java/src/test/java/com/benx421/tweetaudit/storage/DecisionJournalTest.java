@@ -0,0 +1,91 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.benx421.tweetaudit.models.Decision;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DecisionJournalTest {
+
+  @Test
+  void testReplaysOutOfOrderRecords(@TempDir Path tempDir) throws IOException {
+    Path journalFile = tempDir.resolve("checkpoint.txt.journal");
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      journal.record(7, 70L, Decision.KEEP);
+      journal.record(5, 50L, Decision.DELETE);
+      journal.record(6, 60L, Decision.KEEP);
+    }
+
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 6)) {
+      assertEquals(2, journal.size());
+      assertNull(journal.decision(5, 50L));
+      assertEquals(Decision.KEEP, journal.decision(6, 60L));
+      assertEquals(Decision.KEEP, journal.decision(7, 70L));
+      assertNull(journal.decision(7, 71L));
+    }
+  }
+
+  @Test
+  void testDropsTornRecordAtEnd(@TempDir Path tempDir) throws IOException {
+    Path journalFile = tempDir.resolve("checkpoint.txt.journal");
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      journal.record(0, 10L, Decision.DELETE);
+      journal.record(1, 11L, Decision.KEEP);
+    }
+    Files.write(journalFile, new byte[] {0, 0, 0, 2, 0}, StandardOpenOption.APPEND);
+
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      assertEquals(2, journal.size());
+      assertEquals(2L * DecisionJournal.RECORD_BYTES, Files.size(journalFile));
+      journal.record(2, 12L, Decision.KEEP);
+    }
+
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      assertEquals(Decision.DELETE, journal.decision(0, 10L));
+      assertEquals(Decision.KEEP, journal.decision(2, 12L));
+    }
+  }
+
+  @Test
+  void testDropsRecordsAfterCorruption(@TempDir Path tempDir) throws IOException {
+    Path journalFile = tempDir.resolve("checkpoint.txt.journal");
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      journal.record(0, 10L, Decision.KEEP);
+      journal.record(1, 11L, Decision.KEEP);
+    }
+    byte[] bytes = Files.readAllBytes(journalFile);
+    bytes[DecisionJournal.RECORD_BYTES + 5] ^= 1;
+    Files.write(journalFile, bytes);
+
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      assertEquals(1, journal.size());
+      assertNull(journal.decision(1, 11L));
+    }
+  }
+
+  @Test
+  void testCompactKeepsRowsPastCheckpoint(@TempDir Path tempDir) throws IOException {
+    Path journalFile = tempDir.resolve("checkpoint.txt.journal");
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      journal.record(0, 10L, Decision.KEEP);
+      journal.record(3, 13L, Decision.DELETE);
+      journal.compact(2);
+      journal.record(4, 14L, Decision.KEEP);
+    }
+
+    assertEquals(2L * DecisionJournal.RECORD_BYTES, Files.size(journalFile));
+    try (DecisionJournal journal = DecisionJournal.open(journalFile, 0)) {
+      assertNull(journal.decision(0, 10L));
+      assertEquals(Decision.DELETE, journal.decision(3, 13L));
+      assertEquals(Decision.KEEP, journal.decision(4, 14L));
+    }
+  }
+}
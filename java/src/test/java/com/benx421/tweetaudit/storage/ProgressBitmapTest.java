@@ -0,0 +1,138 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProgressBitmapTest {
+
+  @Test
+  void testNextClearSkipsCompletedRows() {
+    ProgressBitmap progress = new ProgressBitmap();
+    progress.addRange(0, 5);
+    progress.add(6);
+    progress.add(65535);
+    progress.add(65536);
+
+    assertEquals(5, progress.nextClear(0));
+    assertEquals(7, progress.nextClear(6));
+    assertEquals(65537, progress.nextClear(65535));
+    assertTrue(progress.contains(6));
+    assertFalse(progress.contains(5));
+    assertEquals(8, progress.cardinality());
+  }
+
+  @Test
+  void testContiguousProgressStaysSmall(@TempDir Path tempDir) throws IOException {
+    ProgressBitmap progress = new ProgressBitmap();
+    progress.addRange(0, 10_000_000);
+    progress.add(10_000_001);
+
+    assertEquals(10_000_001, progress.cardinality());
+    assertEquals(10_000_000, progress.nextClear(0));
+    assertEquals(10_000_002, progress.nextClear(10_000_001));
+
+    Path file = tempDir.resolve("checkpoint.txt.progress");
+    progress.save(file);
+    assertTrue(Files.size(file) < 2_048);
+    assertEquals(progress.serializedSize(), Files.size(file));
+  }
+
+  @Test
+  void testSparseAndDenseChunksRoundTrip(@TempDir Path tempDir) throws IOException {
+    ProgressBitmap progress = new ProgressBitmap();
+    for (int row = 0; row < 60_000; row += 3) {
+      progress.add(row);
+    }
+    progress.add(200_000);
+    progress.add(70_000);
+
+    Path file = tempDir.resolve("checkpoint.txt.progress");
+    progress.save(file);
+    ProgressBitmap loaded = ProgressBitmap.load(file);
+
+    assertEquals(20_002, loaded.cardinality());
+    assertTrue(loaded.contains(59_997));
+    assertFalse(loaded.contains(59_998));
+    assertTrue(loaded.contains(70_000));
+    assertTrue(loaded.contains(200_000));
+    assertEquals(1, loaded.nextClear(0));
+    assertEquals(200_001, loaded.nextClear(200_000));
+  }
+
+  @Test
+  void testRunChunksRoundTrip(@TempDir Path tempDir) throws IOException {
+    ProgressBitmap progress = new ProgressBitmap();
+    for (int start = 0; start < 60_000; start += 1_000) {
+      progress.addRange(start, start + 600);
+    }
+    progress.add(600);
+    progress.add(998);
+
+    Path file = tempDir.resolve("checkpoint.txt.progress");
+    progress.save(file);
+    assertTrue(Files.size(file) < 512);
+    ProgressBitmap loaded = ProgressBitmap.load(file);
+
+    assertEquals(60 * 600 + 2, loaded.cardinality());
+    assertEquals(601, loaded.nextClear(0));
+    assertEquals(999, loaded.nextClear(998));
+    loaded.add(999);
+    assertEquals(1_600, loaded.nextClear(998));
+    assertFalse(loaded.contains(59_600));
+  }
+
+  @Test
+  void testOrMergesProgress() {
+    ProgressBitmap first = new ProgressBitmap();
+    first.addRange(0, 10);
+    first.add(100_000);
+    ProgressBitmap second = new ProgressBitmap();
+    second.addRange(10, 20);
+    second.addRange(65_536, 131_072);
+
+    first.or(second);
+
+    assertEquals(20, first.nextClear(0));
+    assertEquals(131_072, first.nextClear(65_536));
+    assertEquals(20 + 65_536, first.cardinality());
+    assertFalse(second.contains(0));
+  }
+
+  @Test
+  void testMissingFileLoadsEmpty(@TempDir Path tempDir) throws IOException {
+    ProgressBitmap progress = ProgressBitmap.load(tempDir.resolve("missing.progress"));
+
+    assertTrue(progress.isEmpty());
+    assertEquals(0, progress.nextClear(0));
+  }
+
+  @Test
+  void testCorruptFileFailsLoad(@TempDir Path tempDir) throws IOException {
+    ProgressBitmap progress = new ProgressBitmap();
+    progress.add(42);
+    Path file = tempDir.resolve("checkpoint.txt.progress");
+    progress.save(file);
+
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length - 6] ^= 1;
+    Files.write(file, bytes);
+
+    assertThrows(IOException.class, () -> ProgressBitmap.load(file));
+  }
+
+  @Test
+  void testNegativeRowThrowsException() {
+    ProgressBitmap progress = new ProgressBitmap();
+
+    assertThrows(IllegalArgumentException.class, () -> progress.add(-1));
+  }
+}
@@ -1,9 +1,16 @@
 package com.benx421.tweetaudit.storage;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import com.benx421.tweetaudit.models.Tweet;
 
@@ -11,6 +18,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -24,10 +33,10 @@ class TweetParserTest {
     List<Tweet> tweets = parser.parse();
 
     assertEquals(4, tweets.size());
-    assertEquals("1234567890123456789", tweets.get(0).id());
+    assertEquals("1234567890123456789", tweets.get(0).idString());
     assertEquals("#golang error handling is growing on me. Explicit is better than implicit after all.",
         tweets.get(0).content());
-    assertEquals("9876543210987654321", tweets.get(1).id());
+    assertEquals("9876543210987654321", tweets.get(1).idString());
     assertEquals("@randomuser Great article on distributed systems! https://t.co/abcdef12345",
         tweets.get(1).content());
   }
@@ -57,6 +66,303 @@ class TweetParserTest {
     assertThrows(IOException.class, parser::parse);
   }
 
+  @Test
+  void testOpenStreamsTweetsFromArchive() throws IOException {
+    String path = getClass().getResource("/storage/tweets.json").getPath();
+    TweetParser parser = new TweetParser(path, ParserType.JSON);
+
+    try (TweetReader reader = parser.open()) {
+      assertEquals("1234567890123456789", reader.next().idString());
+      assertEquals("9876543210987654321", reader.next().idString());
+      assertNotNull(reader.next());
+      assertNotNull(reader.next());
+      assertNull(reader.next());
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  void testOpenSkipsUnknownFields(@TempDir Path tempDir) throws IOException {
+    Path jsonFile = tempDir.resolve("tweets.json");
+    Files.writeString(jsonFile, """
+        [
+          {"meta": {"nested": [1, {"id_str": "999"}]},
+           "tweet": {"entities": {"urls": []}, "id_str": "1", "full_text": "Hello"}}
+        ]
+        """);
+
+    TweetParser parser = new TweetParser(jsonFile.toString(), ParserType.JSON);
+
+    try (TweetReader reader = parser.open()) {
+      Tweet tweet = reader.next();
+      assertEquals("1", tweet.idString());
+      assertEquals("Hello", tweet.content());
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  void testParseJsonWithMissingFullText(@TempDir Path tempDir) throws IOException {
+    Path jsonFile = tempDir.resolve("tweets.json");
+    Files.writeString(jsonFile, "[{\"tweet\": {\"id_str\": \"1\"}}]");
+
+    TweetParser parser = new TweetParser(jsonFile.toString(), ParserType.JSON);
+
+    IOException exception = assertThrows(IOException.class, parser::parse);
+    assertTrue(exception.getMessage().contains("missing id or full_text"));
+  }
+
+  @Test
+  void testParseJsonWithTrailingContent(@TempDir Path tempDir) throws IOException {
+    Path jsonFile = tempDir.resolve("tweets.json");
+    Files.writeString(jsonFile, "[] []");
+
+    TweetParser parser = new TweetParser(jsonFile.toString(), ParserType.JSON);
+
+    assertThrows(IOException.class, parser::parse);
+  }
+
+  @Test
+  void testParseArchiveDataFile(@TempDir Path tempDir) throws IOException {
+    Path dataFile = tempDir.resolve("tweets.js");
+    Files.writeString(dataFile, """
+        window.YTD.tweets.part0 = [
+          {"tweet": {"id_str": "1", "full_text": "First"}},
+          {"tweet": {"id_str": "2", "full_text": "Second"}}
+        ]""");
+
+    TweetParser parser = new TweetParser(dataFile.toString(), ParserType.JS);
+    List<Tweet> tweets = parser.parse();
+
+    assertEquals(2, tweets.size());
+    assertEquals("1", tweets.get(0).idString());
+    assertEquals("Second", tweets.get(1).content());
+  }
+
+  @Test
+  void testParseArchiveDataFileWithoutPrefix(@TempDir Path tempDir) throws IOException {
+    Path dataFile = tempDir.resolve("tweets.js");
+    Files.writeString(dataFile, "[{\"tweet\": {\"id_str\": \"1\", \"full_text\": \"First\"}}]");
+
+    TweetParser parser = new TweetParser(dataFile.toString(), ParserType.JS);
+
+    assertEquals(1, parser.parse().size());
+  }
+
+  @Test
+  void testParseArchiveDataFileWithInvalidPrefix(@TempDir Path tempDir) throws IOException {
+    Path dataFile = tempDir.resolve("tweets.js");
+    Files.writeString(dataFile, "var tweets = []");
+
+    TweetParser parser = new TweetParser(dataFile.toString(), ParserType.JS);
+
+    IOException exception = assertThrows(IOException.class, parser::parse);
+    assertTrue(exception.getMessage().contains("window.YTD."));
+  }
+
+  @Test
+  void testParseMultiPartArchiveInPartOrderForEveryThreadCount(@TempDir Path tempDir) throws IOException {
+    writeMultiPartArchive(tempDir);
+
+    for (int threads = 1; threads <= 4; threads++) {
+      List<Tweet> tweets = new TweetParser(tempDir.toString(), ParserType.JS, threads).parse();
+      assertEquals(
+          List.of("100", "20", "300", "10", "5"), tweets.stream().map(Tweet::idString).toList(), "threads: " + threads);
+    }
+  }
+
+  @Test
+  void testOpenLargeMultiPartArchiveMatchesAcrossThreadCounts(@TempDir Path tempDir) throws IOException {
+    for (int part = 0; part < 3; part++) {
+      StringBuilder json = new StringBuilder("window.YTD.tweets.part" + part + " = [");
+      for (int i = 0; i < 1500; i++) {
+        json.append(i > 0 ? ",\n" : "")
+            .append("{\"tweet\": {\"id_str\": \"")
+            .append((i * 7919L + part * 104729L) % 100_003 + 1)
+            .append("\", \"full_text\": \"part ")
+            .append(part)
+            .append("\"}}");
+      }
+      Files.writeString(tempDir.resolve(part == 0 ? "tweets.js" : "tweets-part" + part + ".js"), json.append("]"));
+    }
+
+    List<Tweet> sequential = readAll(new TweetParser(tempDir.toString(), ParserType.JS, 1));
+    List<Tweet> concurrent = readAll(new TweetParser(tempDir.toString(), ParserType.JS, 3));
+
+    assertEquals(4500, sequential.size());
+    assertEquals(sequential, concurrent);
+  }
+
+  @Test
+  void testOpenMultiPartArchiveSequentiallyInPartOrder(@TempDir Path tempDir) throws IOException {
+    writeMultiPartArchive(tempDir);
+
+    TweetParser parser = new TweetParser(tempDir.resolve("tweets.js").toString(), ParserType.JS, 1);
+    List<String> ids = new ArrayList<>();
+    try (TweetReader reader = parser.open()) {
+      for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+        ids.add(tweet.idString());
+      }
+    }
+
+    assertEquals(List.of("100", "20", "300", "10", "5"), ids);
+  }
+
+  @Test
+  void testParseArchiveZipReadsOnlyTweetDataFiles(@TempDir Path tempDir) throws IOException {
+    Path zipFile = tempDir.resolve("twitter-2024-01-15-abc.zip");
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+      addZipEntry(zip, "data/tweets_media/1-photo.jpg", "not json at all");
+      addZipEntry(zip, "data/like.js", "window.YTD.like.part0 = []");
+      addZipEntry(zip, "data/tweets-part1.js",
+          "window.YTD.tweets.part1 = [{\"tweet\": {\"id_str\": \"3\", \"full_text\": \"c\"}}]");
+      addZipEntry(zip, "data/tweets.js",
+          "window.YTD.tweets.part0 = [{\"tweet\": {\"id_str\": \"7\", \"full_text\": \"a\"}}]");
+    }
+
+    TweetParser parser = new TweetParser(zipFile.toString(), ParserType.ZIP, 1);
+    List<Tweet> tweets = parser.parse();
+
+    assertEquals(List.of("7", "3"), tweets.stream().map(Tweet::idString).toList());
+  }
+
+  @Test
+  void testParseArchiveZipWithoutTweets(@TempDir Path tempDir) throws IOException {
+    Path zipFile = tempDir.resolve("archive.zip");
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+      addZipEntry(zip, "data/like.js", "window.YTD.like.part0 = []");
+    }
+
+    TweetParser parser = new TweetParser(zipFile.toString(), ParserType.ZIP);
+
+    assertThrows(IOException.class, parser::parse);
+  }
+
+  @Test
+  void testChunkedParseMatchesStreamingParse(@TempDir Path tempDir) throws IOException {
+    StringBuilder json = new StringBuilder("\uFEFF[\n");
+    for (int i = 1; i <= 200; i++) {
+      json.append(i > 1 ? ",\n" : "")
+          .append("  {\"tweet\": {\"entities\": {\"urls\": [{\"a\": [1, 2]}]}, \"id_str\": \"")
+          .append(i)
+          .append("\", \"full_text\": \"Tweet ")
+          .append(i)
+          .append(" with }], \\\"quoted\\\" {[ and \\\\ \u00e9\"}}");
+    }
+    json.append("\n]\n");
+    Path jsonFile = tempDir.resolve("tweets.json");
+    Files.writeString(jsonFile, json.toString());
+
+    List<Tweet> expected = new TweetParser(jsonFile.toString(), ParserType.JSON, 1).parse();
+    List<Tweet> chunked = ChunkedJsonParser.parse(jsonFile, false, 4, 64);
+
+    assertEquals(200, expected.size());
+    assertEquals("Tweet 7 with }], \"quoted\" {[ and \\ \u00e9", expected.get(6).content());
+    assertEquals(expected, chunked);
+  }
+
+  @Test
+  void testOpenLargeFileDoesNotMaterializeAllRows(@TempDir Path tempDir) throws IOException {
+    Path jsonFile = tempDir.resolve("tweets.json");
+    String text = "x".repeat(200);
+    int count = 40_000;
+    try (BufferedWriter writer = Files.newBufferedWriter(jsonFile)) {
+      writer.write("[");
+      for (int i = 1; i <= count; i++) {
+        writer.write(i > 1 ? ",\n" : "");
+        writer.write("{\"tweet\": {\"id_str\": \"" + i + "\", \"full_text\": \"" + text + "\"}}");
+      }
+      writer.write("]");
+    }
+
+    TweetParser parser = new TweetParser(jsonFile.toString(), ParserType.JSON, 2);
+    try (TweetReader reader = parser.open()) {
+      assertEquals("1", reader.next().idString());
+
+      ChunkedJsonParser.ChunkReader chunks = (ChunkedJsonParser.ChunkReader) reader;
+      assertTrue(chunks.chunkCount() > 5, "chunks: " + chunks.chunkCount());
+      assertTrue(chunks.chunksStarted() < chunks.chunkCount(), "started: " + chunks.chunksStarted());
+
+      int read = 1;
+      for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+        assertEquals(String.valueOf(++read), tweet.idString());
+      }
+      assertEquals(count, read);
+    }
+  }
+
+  @Test
+  void testChunkedParseOfArchiveDataFile(@TempDir Path tempDir) throws IOException {
+    Path dataFile = tempDir.resolve("tweets.js");
+    Files.writeString(
+        dataFile,
+        """
+        window.YTD.tweets.part0 = [
+          {"tweet": {"id_str": "1", "full_text": "First, tweet"}},
+          {"tweet": {"id_str": "2", "full_text": "Second"}},
+          {"tweet": {"id_str": "3", "full_text": "Third"}}
+        ]""");
+
+    List<Tweet> tweets = ChunkedJsonParser.parse(dataFile, true, 2, 1);
+
+    assertEquals(List.of("1", "2", "3"), tweets.stream().map(Tweet::idString).toList());
+    assertEquals(List.of(), ChunkedJsonParser.parse(writeJson(tempDir, " [ ] "), false, 2, 1));
+  }
+
+  @Test
+  void testChunkedParseRejectsMalformedArrays(@TempDir Path tempDir) throws IOException {
+    String tweet = "{\"tweet\": {\"id_str\": \"1\", \"full_text\": \"a\"}}";
+
+    for (String json :
+        List.of("[" + tweet + ", " + tweet, "[" + tweet + "] extra", "[" + tweet + ",, " + tweet + "]", "{}")) {
+      Path file = writeJson(tempDir, json);
+      assertThrows(IOException.class, () -> ChunkedJsonParser.parse(file, false, 2, 1), json);
+    }
+  }
+
+  @Test
+  void testParserTypeFromPath(@TempDir Path tempDir) {
+    assertEquals(ParserType.JS, ParserType.fromPath("data/tweets.js"));
+    assertEquals(ParserType.JS, ParserType.fromPath(tempDir.toString()));
+    assertEquals(ParserType.ZIP, ParserType.fromPath("twitter-2024-01-15.zip"));
+    assertEquals(ParserType.CSV, ParserType.fromPath("transformed/tweets.csv"));
+    assertEquals(ParserType.JSON, ParserType.fromPath("tweets.json"));
+  }
+
+  @Test
+  void testStreamStopsReadingAfterLimit(@TempDir Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("tweets.csv");
+    Files.writeString(csvFile, "id,text\n1,First\n2,Second\n3,Third\n4,broken,record\n");
+
+    TweetParser parser = new TweetParser(csvFile.toString(), ParserType.CSV);
+    try (Stream<Tweet> tweets = parser.stream()) {
+      assertEquals(
+          List.of(new Tweet("2", "Second"), new Tweet("3", "Third")), tweets.skip(1).limit(2).toList());
+    }
+
+    try (Stream<Tweet> tweets = parser.stream()) {
+      UncheckedIOException exception = assertThrows(UncheckedIOException.class, tweets::count);
+      assertTrue(exception.getCause().getMessage().contains("expected 2 fields"));
+    }
+  }
+
+  @Test
+  void testStreamJsonArchiveLazily(@TempDir Path tempDir) throws IOException {
+    Path jsonFile = tempDir.resolve("tweets.json");
+    Files.writeString(
+        jsonFile,
+        """
+        [
+          {"tweet": {"id_str": "1", "full_text": "First"}},
+          {"tweet": {"id_str": "2", "full_text": "Second"}},
+          {"tweet": {"id_str": "3"
+        """);
+
+    try (Stream<Tweet> tweets = new TweetParser(jsonFile.toString(), ParserType.JSON).stream()) {
+      assertEquals(List.of(new Tweet("1", "First")), tweets.limit(1).toList());
+    }
+  }
+
   @Test
   void testParseCsvFile(@TempDir Path tempDir) throws IOException {
     Path csvFile = tempDir.resolve("tweets.csv");
@@ -71,11 +377,11 @@ class TweetParserTest {
     List<Tweet> tweets = parser.parse();
 
     assertEquals(3, tweets.size());
-    assertEquals("123", tweets.get(0).id());
+    assertEquals("123", tweets.get(0).idString());
     assertEquals("Simple tweet", tweets.get(0).content());
-    assertEquals("456", tweets.get(1).id());
+    assertEquals("456", tweets.get(1).idString());
     assertEquals("Tweet with comma, in text", tweets.get(1).content());
-    assertEquals("789", tweets.get(2).id());
+    assertEquals("789", tweets.get(2).idString());
     assertEquals("Tweet with \"quotes\" in text", tweets.get(2).content());
   }
 
@@ -112,6 +418,11 @@ class TweetParserTest {
     assertTrue(exception.getMessage().contains("empty"));
   }
 
+  @Test
+  void testConstructorWithInvalidParallelism() {
+    assertThrows(IllegalArgumentException.class, () -> new TweetParser("tweets.js", ParserType.JS, 0));
+  }
+
   @Test
   void testConstructorWithNullPath() {
     assertThrows(IllegalArgumentException.class, () -> new TweetParser(null, ParserType.JSON));
@@ -126,4 +437,45 @@ class TweetParserTest {
   void testConstructorWithNullParserType() {
     assertThrows(IllegalArgumentException.class, () -> new TweetParser("test.json", null));
   }
+
+  private static void addZipEntry(ZipOutputStream zip, String name, String content)
+      throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    zip.write(content.getBytes(StandardCharsets.UTF_8));
+    zip.closeEntry();
+  }
+
+  private static void writeMultiPartArchive(Path dir) throws IOException {
+    Files.writeString(dir.resolve("tweets.js"), """
+        window.YTD.tweets.part0 = [
+          {"tweet": {"id_str": "100", "full_text": "a"}},
+          {"tweet": {"id_str": "20", "full_text": "b"}}
+        ]""");
+    Files.writeString(dir.resolve("tweets-part1.js"), """
+        window.YTD.tweets.part1 = [
+          {"tweet": {"id_str": "300", "full_text": "c"}}
+        ]""");
+    Files.writeString(dir.resolve("tweets-part2.js"), """
+        window.YTD.tweets.part2 = [
+          {"tweet": {"id_str": "10", "full_text": "d"}},
+          {"tweet": {"id_str": "5", "full_text": "e"}}
+        ]""");
+    Files.writeString(dir.resolve("like.js"), "window.YTD.like.part0 = []");
+  }
+
+  private static List<Tweet> readAll(TweetParser parser) throws IOException {
+    List<Tweet> tweets = new ArrayList<>();
+    try (TweetReader reader = parser.open()) {
+      for (Tweet tweet = reader.next(); tweet != null; tweet = reader.next()) {
+        tweets.add(tweet);
+      }
+    }
+    return tweets;
+  }
+
+  private static Path writeJson(Path dir, String json) throws IOException {
+    Path file = Files.createTempFile(dir, "tweets", ".json");
+    Files.writeString(file, json);
+    return file;
+  }
 }
@@ -0,0 +1,285 @@
+package com.benx421.tweetaudit.storage;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import com.benx421.tweetaudit.models.Tweet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TweetStoreTest {
+
+  private static final List<Tweet> TWEETS =
+      List.of(
+          new Tweet("1", "Simple tweet"),
+          new Tweet("2", "Tweet with comma, and \"quotes\""),
+          new Tweet("3", "Multi-line\ntweet"),
+          new Tweet("4", "Emoji 🎉 tweet"),
+          new Tweet("5", "Last tweet"));
+
+  @Test
+  void testIndexedReadSeeksToRows(@TempDir Path tempDir) throws IOException {
+    Path csvFile = writeIndexed(tempDir);
+
+    try (TweetStore store = TweetStore.open(csvFile.toString())) {
+      assertTrue(store instanceof IndexedCsvTweetStore);
+      assertEquals(5, store.size());
+      assertEquals(TWEETS.subList(1, 4), store.read(1, 3));
+      assertEquals(TWEETS.subList(3, 5), store.read(3, 10));
+      assertEquals(List.of(), store.read(5, 10));
+    }
+  }
+
+  @Test
+  void testFallsBackToParsingWithoutIndex(@TempDir Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("tweets.csv");
+    try (CSVWriter writer = CSVWriter.create(csvFile.toString(), false)) {
+      writer.writeTweets(TWEETS);
+    }
+
+    try (TweetStore store = TweetStore.open(csvFile.toString())) {
+      assertTrue(store instanceof StreamingTweetStore);
+      assertEquals(-1, store.sizeIfKnown());
+      assertEquals(TWEETS.subList(2, 4), store.read(2, 2));
+      assertEquals(TWEETS.subList(4, 5), store.read(4, 10));
+      assertEquals(List.of(), store.read(5, 10));
+    }
+  }
+
+  @Test
+  void testFallsBackToParsingWhenIndexIsStale(@TempDir Path tempDir) throws IOException {
+    Path csvFile = writeIndexed(tempDir);
+    Files.writeString(csvFile, "6,Appended tweet\n", StandardOpenOption.APPEND);
+
+    try (TweetStore store = TweetStore.open(csvFile.toString())) {
+      assertTrue(store instanceof StreamingTweetStore);
+      assertEquals(6, store.size());
+    }
+  }
+
+  @Test
+  void testChecksumMismatchFailsRead(@TempDir Path tempDir) throws IOException {
+    Path csvFile = writeIndexed(tempDir);
+    String content = Files.readString(csvFile);
+    Files.writeString(csvFile, content.replace("Last tweet", "Lost tweet"));
+
+    try (TweetStore store = TweetStore.open(csvFile.toString())) {
+      assertEquals(TWEETS.subList(0, 2), store.read(0, 2));
+      IOException exception = assertThrows(IOException.class, () -> store.read(4, 1));
+      assertTrue(exception.getMessage().contains("checksum mismatch"));
+    }
+  }
+
+  @Test
+  void testIndexedEmptyFile(@TempDir Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("tweets.csv");
+    try (CSVWriter writer = CSVWriter.createIndexed(csvFile.toString())) {
+      writer.writeTweets(List.of());
+    }
+
+    try (TweetStore store = TweetStore.open(csvFile.toString())) {
+      assertTrue(store instanceof IndexedCsvTweetStore);
+      assertEquals(0, store.size());
+    }
+  }
+
+  @Test
+  void testBinaryRoundTrip(@TempDir Path tempDir) throws IOException {
+    Path binFile = writeBinary(tempDir);
+
+    assertEquals(ParserType.BINARY, ParserType.fromPath(binFile.toString()));
+    assertEquals(TWEETS, new TweetParser(binFile.toString(), ParserType.BINARY).parse());
+    try (TweetStore store = TweetStore.open(binFile.toString())) {
+      assertTrue(store instanceof MappedTweetStore);
+      assertEquals(5, store.size());
+      assertEquals(TWEETS.subList(1, 4), store.read(1, 3));
+      assertEquals(TWEETS.subList(3, 5), store.read(3, 10));
+      assertEquals(List.of(), store.read(5, 10));
+    }
+  }
+
+  @Test
+  void testMappedStoreExposesRowsWithoutCopying(@TempDir Path tempDir) throws IOException {
+    Path binFile = writeBinary(tempDir);
+
+    try (MappedTweetStore store = MappedTweetStore.open(binFile)) {
+      assertEquals(4L, store.id(3));
+      MemorySegment text = store.text(3);
+      assertEquals("Emoji 🎉 tweet".getBytes(StandardCharsets.UTF_8).length, text.byteSize());
+      assertEquals(
+          "Emoji 🎉 tweet", new String(text.toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8));
+      assertThrows(IndexOutOfBoundsException.class, () -> store.id(5));
+    }
+  }
+
+  @Test
+  void testMappedStoreRejectsCorruptOffsets(@TempDir Path tempDir) throws IOException {
+    Path binFile = writeBinary(tempDir);
+    byte[] bytes = Files.readAllBytes(binFile);
+    int offsetsStart = bytes.length - BinaryTweetFormat.FOOTER_BYTES - TWEETS.size() * Long.BYTES;
+    ByteBuffer.wrap(bytes).putLong(offsetsStart + 2 * Long.BYTES, bytes.length);
+    Files.write(binFile, bytes);
+
+    try (TweetStore store = TweetStore.open(binFile.toString())) {
+      assertEquals(TWEETS.subList(0, 2), store.read(0, 2));
+      IOException exception = assertThrows(IOException.class, () -> store.read(2, 1));
+      assertTrue(exception.getMessage().contains("bad text offset"));
+    }
+  }
+
+  @Test
+  void testBinaryChecksumMismatchFailsParse(@TempDir Path tempDir) throws IOException {
+    Path binFile = writeBinary(tempDir);
+    byte[] bytes = Files.readAllBytes(binFile);
+    bytes[BinaryTweetFormat.HEADER_BYTES + 6] ^= 1;
+    Files.write(binFile, bytes);
+
+    IOException exception =
+        assertThrows(IOException.class, () -> new TweetParser(binFile.toString(), ParserType.BINARY).parse());
+    assertTrue(exception.getMessage().contains("checksum mismatch"));
+  }
+
+  @Test
+  void testOpenBinaryReadsRowsFromMappingAndChecksThemAtEnd(@TempDir Path tempDir) throws IOException {
+    Path binFile = writeBinary(tempDir);
+
+    try (TweetReader reader = new TweetParser(binFile.toString(), ParserType.BINARY).open()) {
+      assertTrue(reader.getClass().getEnclosingClass() == MappedTweetStore.class);
+      for (Tweet tweet : TWEETS) {
+        assertEquals(tweet, reader.next());
+      }
+      assertEquals(null, reader.next());
+    }
+
+    byte[] bytes = Files.readAllBytes(binFile);
+    bytes[BinaryTweetFormat.HEADER_BYTES + 6] ^= 1;
+    Files.write(binFile, bytes);
+    try (TweetReader reader = new TweetParser(binFile.toString(), ParserType.BINARY).open()) {
+      for (int i = 0; i < TWEETS.size(); i++) {
+        reader.next();
+      }
+      IOException exception = assertThrows(IOException.class, reader::next);
+      assertTrue(exception.getMessage().contains("checksum mismatch"));
+    }
+  }
+
+  @Test
+  void testBinaryRejectsTruncatedFile(@TempDir Path tempDir) throws IOException {
+    Path binFile = writeBinary(tempDir);
+    byte[] bytes = Files.readAllBytes(binFile);
+    Files.write(binFile, Arrays.copyOf(bytes, bytes.length - 4));
+
+    assertThrows(IOException.class, () -> new TweetParser(binFile.toString(), ParserType.BINARY).parse());
+  }
+
+  @Test
+  void testConvertRejectsNonNumericIds(@TempDir Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("tweets.csv");
+    Files.writeString(csvFile, "id,text\nabc,Not a snowflake id\n");
+
+    IOException exception =
+        assertThrows(
+            IOException.class,
+            () -> BinaryTweetWriter.convertCsv(csvFile.toString(), tempDir.resolve("tweets.bin").toString()));
+    assertTrue(exception.getMessage().contains("must be numeric"));
+  }
+
+  @Test
+  void testConvertCsvToBinary(@TempDir Path tempDir) throws IOException {
+    Path csvFile = writeIndexed(tempDir);
+    Path binFile = tempDir.resolve("converted.bin");
+
+    assertEquals(5, BinaryTweetWriter.convertCsv(csvFile.toString(), binFile.toString()));
+    assertEquals(TWEETS, new TweetParser(binFile.toString(), ParserType.BINARY).parse());
+  }
+
+  @Test
+  void testAppendIndexedExtendsIndex(@TempDir Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("tweets.csv");
+    try (CSVWriter writer = CSVWriter.createIndexed(csvFile.toString())) {
+      writer.writeTweets(TWEETS.subList(0, 3));
+    }
+    try (TweetWriter writer = TweetWriter.append(csvFile.toString(), ParserType.CSV)) {
+      writer.writeTweet(TWEETS.get(3));
+      writer.writeTweet(TWEETS.get(4));
+    }
+
+    try (TweetStore store = TweetStore.open(csvFile.toString())) {
+      assertTrue(store instanceof IndexedCsvTweetStore);
+      assertEquals(5, store.size());
+      assertEquals(TWEETS.subList(2, 5), store.read(2, 3));
+    }
+  }
+
+  @Test
+  void testAppendBinaryKeepsExistingRows(@TempDir Path tempDir) throws IOException {
+    Path binFile = tempDir.resolve("tweets.bin");
+    try (TweetWriter writer = TweetWriter.create(binFile.toString(), ParserType.BINARY)) {
+      writer.writeTweet(TWEETS.get(0));
+      writer.writeTweet(TWEETS.get(1));
+    }
+    try (TweetWriter writer = TweetWriter.append(binFile.toString(), ParserType.BINARY)) {
+      for (Tweet tweet : TWEETS.subList(2, 5)) {
+        writer.writeTweet(tweet);
+      }
+    }
+
+    assertEquals(TWEETS, new TweetParser(binFile.toString(), ParserType.BINARY).parse());
+    assertFalse(Files.exists(tempDir.resolve("tweets.bin.tmp")));
+  }
+
+  @Test
+  void testTweetIdSetRoundTrip(@TempDir Path tempDir) throws IOException {
+    TweetIdSet ids = new TweetIdSet();
+    for (long id = 0; id < 1000; id++) {
+      assertTrue(ids.add(id * 7919));
+    }
+    assertTrue(ids.add(-1L));
+    assertFalse(ids.add(0L));
+    ids.setRowCount(1001);
+
+    Path idsFile = TweetIdSet.pathFor(tempDir.resolve("tweets.csv"));
+    ids.save(idsFile);
+    TweetIdSet loaded = TweetIdSet.load(idsFile);
+
+    assertEquals(1001, loaded.size());
+    assertEquals(1001, loaded.rowCount());
+    assertTrue(loaded.contains(0L));
+    assertTrue(loaded.contains(-1L));
+    assertTrue(loaded.contains(999 * 7919L));
+    assertFalse(loaded.contains(1L));
+  }
+
+  private static Path writeBinary(Path tempDir) throws IOException {
+    Path binFile = tempDir.resolve("tweets.bin");
+    try (TweetWriter writer = TweetWriter.create(binFile.toString(), ParserType.BINARY)) {
+      for (Tweet tweet : TWEETS) {
+        writer.writeTweet(tweet);
+      }
+    }
+    return binFile;
+  }
+
+  private static Path writeIndexed(Path tempDir) throws IOException {
+    Path csvFile = tempDir.resolve("tweets.csv");
+    try (CSVWriter writer = CSVWriter.createIndexed(csvFile.toString())) {
+      writer.writeTweets(TWEETS);
+    }
+    assertTrue(Files.exists(CSVWriter.indexPath(csvFile)));
+    return csvFile;
+  }
+}